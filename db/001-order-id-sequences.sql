@@ -0,0 +1,102 @@
+-- Switch orders / order_items ids from IDENTITY to pooled sequences so that
+-- Hibernate can batch the INSERTs of an order (hibernate.jdbc.batch_size).
+-- Sequences increment by 50 to match allocationSize on Order / OrderItem.
+USE [bakeryshop]
+GO
+SET XACT_ABORT ON
+GO
+BEGIN TRANSACTION
+GO
+
+-- Foreign keys on/to orders and order_items are unnamed in the original schema
+DECLARE @dropFks NVARCHAR(MAX) = N'';
+SELECT @dropFks += N'ALTER TABLE ' + QUOTENAME(OBJECT_SCHEMA_NAME(fk.parent_object_id)) + N'.'
+        + QUOTENAME(OBJECT_NAME(fk.parent_object_id)) + N' DROP CONSTRAINT ' + QUOTENAME(fk.name) + N';'
+FROM sys.foreign_keys fk
+WHERE fk.parent_object_id IN (OBJECT_ID(N'dbo.orders'), OBJECT_ID(N'dbo.order_items'))
+   OR fk.referenced_object_id IN (OBJECT_ID(N'dbo.orders'), OBJECT_ID(N'dbo.order_items'));
+EXEC sp_executesql @dropFks;
+GO
+
+CREATE TABLE [dbo].[orders_seq_tmp](
+	[id] [bigint] NOT NULL,
+	[user_id] [bigint] NOT NULL,
+	[total_amount] [decimal](10, 2) NOT NULL,
+	[shipping_address] [nvarchar](255) NOT NULL,
+	[shipping_name] [nvarchar](255) NOT NULL,
+	[shipping_phone] [varchar](20) NOT NULL,
+	[order_status] [varchar](50) NULL,
+	[payment_method] [varchar](50) NOT NULL,
+	[payment_status] [varchar](50) NULL,
+	[payment_id] [varchar](255) NULL,
+	[transaction_no] [varchar](255) NULL,
+	[note] [nvarchar](500) NULL,
+	[created_at] [datetime2](7) NULL,
+	[updated_at] [datetime2](7) NULL,
+	[shipper_id] [bigint] NULL,
+	[shipping_note] [nvarchar](255) NULL,
+	[shipping_time] [datetime] NULL,
+	[delivered_time] [datetime] NULL,
+CONSTRAINT [PK_orders_seq_tmp] PRIMARY KEY CLUSTERED ([id] ASC)
+) ON [PRIMARY]
+GO
+CREATE TABLE [dbo].[order_items_seq_tmp](
+	[id] [bigint] NOT NULL,
+	[order_id] [bigint] NOT NULL,
+	[product_id] [bigint] NOT NULL,
+	[quantity] [int] NOT NULL,
+	[price] [decimal](10, 2) NOT NULL,
+	[sub_total] [decimal](10, 2) NOT NULL,
+CONSTRAINT [PK_order_items_seq_tmp] PRIMARY KEY CLUSTERED ([id] ASC)
+) ON [PRIMARY]
+GO
+
+-- SWITCH is metadata-only and allows the target to drop the IDENTITY property
+ALTER TABLE [dbo].[orders] SWITCH TO [dbo].[orders_seq_tmp]
+GO
+ALTER TABLE [dbo].[order_items] SWITCH TO [dbo].[order_items_seq_tmp]
+GO
+DROP TABLE [dbo].[orders]
+GO
+DROP TABLE [dbo].[order_items]
+GO
+EXEC sp_rename N'dbo.orders_seq_tmp', N'orders'
+GO
+EXEC sp_rename N'dbo.order_items_seq_tmp', N'order_items'
+GO
+
+ALTER TABLE [dbo].[orders] ADD DEFAULT ('PENDING') FOR [order_status]
+GO
+ALTER TABLE [dbo].[orders] ADD DEFAULT ('PENDING') FOR [payment_status]
+GO
+ALTER TABLE [dbo].[orders] ADD DEFAULT (getdate()) FOR [created_at]
+GO
+ALTER TABLE [dbo].[order_items] WITH CHECK ADD FOREIGN KEY([order_id])
+REFERENCES [dbo].[orders] ([id])
+GO
+ALTER TABLE [dbo].[order_items] WITH CHECK ADD FOREIGN KEY([product_id])
+REFERENCES [dbo].[products] ([id])
+GO
+ALTER TABLE [dbo].[orders] WITH CHECK ADD FOREIGN KEY([user_id])
+REFERENCES [dbo].[users] ([id])
+GO
+ALTER TABLE [dbo].[orders] WITH CHECK ADD CONSTRAINT [FK_Orders_Shippers] FOREIGN KEY([shipper_id])
+REFERENCES [dbo].[shippers] ([id])
+GO
+CREATE NONCLUSTERED INDEX [IX_order_items_order_id] ON [dbo].[order_items] ([order_id])
+GO
+
+-- Hibernate's pooled optimizer hands out (value - 49 .. value), so start one block above MAX(id)
+DECLARE @sql NVARCHAR(MAX);
+SELECT @sql = N'CREATE SEQUENCE [dbo].[orders_seq] AS BIGINT START WITH '
+        + CAST(ISNULL(MAX(id), 0) + 50 AS NVARCHAR(20)) + N' INCREMENT BY 50'
+FROM [dbo].[orders];
+EXEC sp_executesql @sql;
+SELECT @sql = N'CREATE SEQUENCE [dbo].[order_items_seq] AS BIGINT START WITH '
+        + CAST(ISNULL(MAX(id), 0) + 50 AS NVARCHAR(20)) + N' INCREMENT BY 50'
+FROM [dbo].[order_items];
+EXEC sp_executesql @sql;
+GO
+
+COMMIT TRANSACTION
+GO
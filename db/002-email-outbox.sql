@@ -0,0 +1,21 @@
+-- Outgoing mail is written here in the same transaction as the business change
+-- and delivered by EmailOutboxWorker after commit.
+USE [bakeryshop]
+GO
+CREATE TABLE [dbo].[email_outbox](
+	[id] [bigint] IDENTITY(1,1) NOT NULL,
+	[recipient] [nvarchar](255) NOT NULL,
+	[subject] [nvarchar](255) NOT NULL,
+	[body] [nvarchar](max) NOT NULL,
+	[status] [nvarchar](20) NOT NULL,
+	[attempts] [int] NOT NULL DEFAULT ((0)),
+	[next_attempt_at] [datetime2](7) NOT NULL,
+	[locked_at] [datetime2](7) NULL,
+	[last_error] [nvarchar](1000) NULL,
+	[created_at] [datetime2](7) NULL DEFAULT (getdate()),
+	[sent_at] [datetime2](7) NULL,
+PRIMARY KEY CLUSTERED ([id] ASC)
+)
+GO
+CREATE NONCLUSTERED INDEX [IX_email_outbox_status_next_attempt] ON [dbo].[email_outbox] ([status], [next_attempt_at])
+GO
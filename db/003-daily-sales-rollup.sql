@@ -0,0 +1,30 @@
+-- Pre-aggregated sales per order day x status x payment method x category.
+-- category_id = 0 holds whole-order figures. Maintained incrementally by
+-- SalesReportService; the INSERT below backfills existing orders once.
+-- POST /admin/reports/sales/rebuild recomputes a date range later on.
+USE [bakeryshop]
+GO
+CREATE TABLE [dbo].[daily_sales_rollup](
+	[day] [date] NOT NULL,
+	[order_status] [varchar](50) NOT NULL,
+	[payment_method] [varchar](50) NOT NULL,
+	[category_id] [bigint] NOT NULL,
+	[order_count] [int] NOT NULL,
+	[item_quantity] [int] NOT NULL,
+	[revenue] [decimal](19, 2) NOT NULL,
+CONSTRAINT [PK_daily_sales_rollup] PRIMARY KEY CLUSTERED ([day] ASC, [order_status] ASC, [payment_method] ASC, [category_id] ASC)
+)
+GO
+INSERT INTO [dbo].[daily_sales_rollup] (day, order_status, payment_method, category_id, order_count, item_quantity, revenue)
+SELECT CAST(o.created_at AS date), o.order_status, o.payment_method, 0, COUNT(*),
+       SUM(ISNULL(q.quantity, 0)), SUM(o.total_amount)
+FROM orders o OUTER APPLY (SELECT SUM(oi.quantity) AS quantity FROM order_items oi WHERE oi.order_id = o.id) q
+WHERE o.created_at IS NOT NULL AND o.order_status IS NOT NULL
+GROUP BY CAST(o.created_at AS date), o.order_status, o.payment_method
+UNION ALL
+SELECT CAST(o.created_at AS date), o.order_status, o.payment_method, p.category_id, COUNT(DISTINCT o.id),
+       SUM(oi.quantity), SUM(oi.sub_total)
+FROM orders o JOIN order_items oi ON oi.order_id = o.id JOIN products p ON p.id = oi.product_id
+WHERE o.created_at IS NOT NULL AND o.order_status IS NOT NULL
+GROUP BY CAST(o.created_at AS date), o.order_status, o.payment_method, p.category_id
+GO
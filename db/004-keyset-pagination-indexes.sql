@@ -0,0 +1,16 @@
+-- Indexes for keyset pagination on (created_at DESC, id DESC).
+-- Keyset queries skip rows without created_at, so legacy NULLs are filled first.
+USE [bakeryshop]
+GO
+UPDATE [dbo].[orders] SET created_at = COALESCE(updated_at, SYSDATETIME()) WHERE created_at IS NULL
+UPDATE [dbo].[products] SET created_at = COALESCE(updated_at, SYSDATETIME()) WHERE created_at IS NULL
+UPDATE [dbo].[blogs] SET created_at = COALESCE(updated_at, SYSDATETIME()) WHERE created_at IS NULL
+GO
+CREATE NONCLUSTERED INDEX [IX_orders_created_at_id] ON [dbo].[orders] ([created_at] DESC, [id] DESC)
+GO
+CREATE NONCLUSTERED INDEX [IX_orders_user_id_created_at_id] ON [dbo].[orders] ([user_id], [created_at] DESC, [id] DESC)
+GO
+CREATE NONCLUSTERED INDEX [IX_products_created_at_id] ON [dbo].[products] ([created_at] DESC, [id] DESC)
+GO
+CREATE NONCLUSTERED INDEX [IX_blogs_is_published_created_at_id] ON [dbo].[blogs] ([is_published], [created_at] DESC, [id] DESC)
+GO
@@ -0,0 +1,24 @@
+-- VNPay IPN notifications, stored once per (txn_ref, transaction_no) and applied
+-- to the order asynchronously by PaymentEventWorker.
+USE [bakeryshop]
+GO
+CREATE TABLE [dbo].[payment_events](
+	[id] [bigint] IDENTITY(1,1) NOT NULL,
+	[txn_ref] [nvarchar](100) NOT NULL,
+	[transaction_no] [nvarchar](100) NOT NULL,
+	[order_id] [bigint] NOT NULL,
+	[amount] [bigint] NOT NULL,
+	[response_code] [nvarchar](10) NULL,
+	[transaction_status] [nvarchar](10) NULL,
+	[bank_code] [nvarchar](50) NULL,
+	[status] [nvarchar](20) NOT NULL,
+	[attempts] [int] NOT NULL DEFAULT ((0)),
+	[last_error] [nvarchar](1000) NULL,
+	[received_at] [datetime2](7) NULL DEFAULT (getdate()),
+	[applied_at] [datetime2](7) NULL,
+PRIMARY KEY CLUSTERED ([id] ASC),
+CONSTRAINT [UQ_payment_events_txn] UNIQUE ([txn_ref], [transaction_no])
+)
+GO
+CREATE NONCLUSTERED INDEX [IX_payment_events_status_received] ON [dbo].[payment_events] ([status], [received_at])
+GO
@@ -0,0 +1,7 @@
+-- Filtered index behind the VNPay reconciliation job's keyset scan of pending payments.
+USE [bakeryshop]
+GO
+CREATE NONCLUSTERED INDEX [IX_orders_pending_vnpay] ON [dbo].[orders] ([id])
+    INCLUDE ([created_at], [payment_id], [total_amount])
+    WHERE [payment_method] = 'VNPAY' AND [payment_status] = 'PENDING'
+GO
@@ -0,0 +1,14 @@
+-- Stock movements of hot products (app.inventory.hot-product-ids), written in the order
+-- transaction and applied to products.stock in batches by HotStockInventory.
+USE [bakeryshop]
+GO
+CREATE TABLE [dbo].[stock_reservation_journal](
+	[id] [bigint] IDENTITY(1,1) NOT NULL,
+	[product_id] [bigint] NOT NULL,
+	[quantity] [int] NOT NULL,
+	[created_at] [datetime2](7) NULL DEFAULT (getdate()),
+PRIMARY KEY CLUSTERED ([id] ASC)
+)
+GO
+CREATE NONCLUSTERED INDEX [IX_stock_reservation_journal_product_id] ON [dbo].[stock_reservation_journal] ([product_id]) INCLUDE ([quantity])
+GO
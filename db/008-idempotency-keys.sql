@@ -0,0 +1,16 @@
+-- Idempotency-Key of checkout / order creation requests, one row per (user, key),
+-- inserted in the same transaction as the order it created.
+USE [bakeryshop]
+GO
+CREATE TABLE [dbo].[idempotency_keys](
+	[id] [bigint] IDENTITY(1,1) NOT NULL,
+	[user_id] [bigint] NOT NULL,
+	[idem_key] [nvarchar](100) NOT NULL,
+	[order_id] [bigint] NULL,
+	[created_at] [datetime2](7) NULL DEFAULT (getdate()),
+PRIMARY KEY CLUSTERED ([id] ASC),
+CONSTRAINT [UQ_idempotency_keys_user_key] UNIQUE ([user_id], [idem_key])
+)
+GO
+CREATE NONCLUSTERED INDEX [IX_idempotency_keys_created_at] ON [dbo].[idempotency_keys] ([created_at])
+GO
@@ -0,0 +1,8 @@
+-- Set once an order's items have been returned to products.stock.
+-- Orders already cancelled were restocked by the old per-item code.
+USE [bakeryshop]
+GO
+ALTER TABLE [dbo].[orders] ADD [stock_released] [bit] NOT NULL CONSTRAINT [DF_orders_stock_released] DEFAULT ((0))
+GO
+UPDATE [dbo].[orders] SET stock_released = 1 WHERE order_status = 'CANCELLED'
+GO
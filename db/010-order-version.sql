@@ -0,0 +1,5 @@
+-- Optimistic-lock version for orders; status changes are conditional on it.
+USE [bakeryshop]
+GO
+ALTER TABLE [dbo].[orders] ADD [version] [bigint] NOT NULL CONSTRAINT [DF_orders_version] DEFAULT ((0))
+GO
@@ -0,0 +1,27 @@
+-- Sales rollup changes, written in the order transaction and folded into
+-- daily_sales_rollup in batches by SalesReportService. Checkouts only append here,
+-- so they no longer wait on each other for the shared rollup rows.
+-- order_items.category_id keeps the category the product had when the order was placed.
+USE [bakeryshop]
+GO
+ALTER TABLE [dbo].[order_items] ADD [category_id] [bigint] NULL
+GO
+UPDATE oi SET oi.category_id = p.category_id FROM [dbo].[order_items] oi JOIN [dbo].[products] p ON p.id = oi.product_id
+GO
+ALTER TABLE [dbo].[order_items] ALTER COLUMN [category_id] [bigint] NOT NULL
+GO
+CREATE TABLE [dbo].[sales_rollup_journal](
+	[id] [bigint] IDENTITY(1,1) NOT NULL,
+	[day] [date] NOT NULL,
+	[order_status] [varchar](50) NOT NULL,
+	[payment_method] [varchar](50) NOT NULL,
+	[category_id] [bigint] NOT NULL,
+	[order_count] [int] NOT NULL,
+	[item_quantity] [int] NOT NULL,
+	[revenue] [decimal](19, 2) NOT NULL,
+	[created_at] [datetime2](7) NULL DEFAULT (getdate()),
+PRIMARY KEY CLUSTERED ([id] ASC)
+)
+GO
+CREATE NONCLUSTERED INDEX [IX_sales_rollup_journal_day] ON [dbo].[sales_rollup_journal] ([day])
+GO
@@ -0,0 +1,10 @@
+-- Replaces the filtered index from 006: findPaymentsToReconcile sends payment_method and
+-- payment_status as parameters, and SQL Server does not match parameterized predicates
+-- to a filtered index, so it was never used.
+USE [bakeryshop]
+GO
+DROP INDEX IF EXISTS [IX_orders_pending_vnpay] ON [dbo].[orders]
+GO
+CREATE NONCLUSTERED INDEX [IX_orders_payment_method_status_id] ON [dbo].[orders] ([payment_method], [payment_status], [id])
+    INCLUDE ([created_at], [payment_id])
+GO
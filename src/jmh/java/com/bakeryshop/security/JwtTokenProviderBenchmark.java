@@ -0,0 +1,70 @@
+package com.bakeryshop.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of authenticating one bearer request: a cache hit in {@link JwtTokenProvider#verify}
+ * against verifying the signature on every request, once and twice (the old filter checked
+ * the token and then parsed it again for the username).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtTokenProviderBenchmark {
+    private static final String SECRET = "bakeryshopBenchmarkSecretKey";
+
+    private JwtTokenProvider provider;
+    private JwtParser parser;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        provider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(provider, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(provider, "jwtExpirationMs", 3_600_000);
+        ReflectionTestUtils.setField(provider, "tokenCacheMaxSize", 10_000);
+        provider.init();
+        parser = Jwts.parserBuilder().setSigningKey(SECRET).build();
+
+        User user = new User("customer@example.com", "unused", List.of());
+        token = provider.generateToken(new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+        provider.verify(token);
+    }
+
+    @Benchmark
+    public VerifiedToken cachedVerify() {
+        return provider.verify(token);
+    }
+
+    @Benchmark
+    public Claims signatureCheckPerRequest() {
+        return parser.parseClaimsJws(token).getBody();
+    }
+
+    @Benchmark
+    public String validateThenParseUsername() {
+        parser.parseClaimsJws(token);
+        return parser.parseClaimsJws(token).getBody().getSubject();
+    }
+}
@@ -0,0 +1,111 @@
+package com.bakeryshop.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of signing a VNPay payment URL and a querydr response: the shared
+ * {@link VNPayQueryBuilder} and {@link HmacSha512Signer} against the previous code, which
+ * sorted a copied key list, ran every value through {@link URLEncoder} and created and keyed
+ * a new {@link Mac} per call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VNPaySigningBenchmark {
+    private static final String SECRET = "0PUG9LIUUK29U82GYN88513MLJWM7VDX";
+
+    private final Map<String, String> params = new HashMap<>();
+    private VNPayQueryBuilder builder;
+    private HmacSha512Signer signer;
+    private String queryDrPipe;
+
+    @Setup
+    public void setUp() {
+        params.put("vnp_Version", "2.1.0");
+        params.put("vnp_Command", "pay");
+        params.put("vnp_TmnCode", "UOHKJZDU");
+        params.put("vnp_Amount", "25000000");
+        params.put("vnp_CurrCode", "VND");
+        params.put("vnp_TxnRef", "1001");
+        params.put("vnp_OrderInfo", "Thanh toan don hang:1001");
+        params.put("vnp_OrderType", "other");
+        params.put("vnp_Locale", "vn");
+        params.put("vnp_ReturnUrl", "http://localhost:8081/bakery-shop/vnpay/return");
+        params.put("vnp_IpAddr", "127.0.0.1");
+        params.put("vnp_CreateDate", "20261018101500");
+        params.put("vnp_ExpireDate", "20261018103000");
+        builder = new VNPayQueryBuilder();
+        signer = new HmacSha512Signer(SECRET);
+        queryDrPipe = "r1001|querydr|00|Giao dịch thành công|UOHKJZDU|1001|25000000|NCB|20261018102000|"
+                + "14000001|01|00|Thanh toan don hang:1001||";
+    }
+
+    @Benchmark
+    public String signPaymentQuery() {
+        return signer.sign(builder.build(params));
+    }
+
+    @Benchmark
+    public String signPaymentQueryPerCallMac() throws Exception {
+        List<String> names = new ArrayList<>(params.keySet());
+        Collections.sort(names);
+        StringBuilder hashData = new StringBuilder();
+        for (String name : names) {
+            String value = params.get(name);
+            if (value != null && !value.isEmpty()) {
+                if (hashData.length() > 0) {
+                    hashData.append('&');
+                }
+                hashData.append(name).append('=').append(URLEncoder.encode(value, StandardCharsets.US_ASCII));
+            }
+        }
+        return perCallMac(hashData.toString());
+    }
+
+    @Benchmark
+    public String signQueryDrResponse() {
+        return signer.sign(queryDrPipe);
+    }
+
+    @Benchmark
+    public String signQueryDrResponsePerCallMac() throws Exception {
+        return perCallMac(queryDrPipe);
+    }
+
+    private static String perCallMac(String data) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA512");
+        mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA512"));
+        StringBuilder hash = new StringBuilder();
+        for (byte b : mac.doFinal(data.getBytes(StandardCharsets.UTF_8))) {
+            String hex = Integer.toHexString(0xff & b);
+            if (hex.length() == 1) {
+                hash.append('0');
+            }
+            hash.append(hex);
+        }
+        return hash.toString();
+    }
+}
@@ -1,24 +1,32 @@
 package com.bakeryshop.admin.service;
 
+import com.bakeryshop.dto.KeysetSlice;
 import com.bakeryshop.dto.OrderDTO;
+import com.bakeryshop.dto.OrderRevenueSummary;
 import com.bakeryshop.entity.Order;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.math.BigDecimal;
+import java.util.List;
+
 public interface AdminOrderService {
     // Basic CRUD operations
     OrderDTO getOrderById(Long id);
     Page<OrderDTO> getAllOrders(String keyword, Pageable pageable);
+    KeysetSlice<OrderDTO> getAllOrdersKeyset(String keyword, String cursor, int size);
     void updateOrderStatus(Long id, Order.OrderStatus status, String note);
     void updatePaymentStatus(Long id, Order.PaymentStatus status, String note);
+    int cancelOrders(List<Long> ids, String reason);
     void deleteOrder(Long id);
 
     // Statistics
     long getTotalOrders();
     long getOrdersByStatus(Order.OrderStatus status);
     long getOrdersByPaymentStatus(Order.PaymentStatus status);
-    double getTotalRevenue();
-    double getRevenueByStatus(Order.OrderStatus status);
-    double getRevenueByPaymentStatus(Order.PaymentStatus status);
-    double getAverageOrderValue();
+    OrderRevenueSummary getRevenueSummary();
+    BigDecimal getTotalRevenue();
+    BigDecimal getRevenueByStatus(Order.OrderStatus status);
+    BigDecimal getRevenueByPaymentStatus(Order.PaymentStatus status);
+    BigDecimal getAverageOrderValue();
 } 
\ No newline at end of file
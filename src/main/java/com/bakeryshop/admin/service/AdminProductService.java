@@ -1,5 +1,6 @@
 package com.bakeryshop.admin.service;
 
+import com.bakeryshop.dto.KeysetSlice;
 import com.bakeryshop.dto.ProductDTO;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -12,6 +13,7 @@ public interface AdminProductService {
     void deleteProduct(Long id);
     ProductDTO getProductById(Long id);
     Page<ProductDTO> getAllProducts(String keyword, Pageable pageable);
+    KeysetSlice<ProductDTO> getAllProductsKeyset(String cursor, int size);
     
     // Product Statistics
     long getTotalProducts();
@@ -1,37 +1,54 @@
 package com.bakeryshop.admin.service.impl;
 
 import com.bakeryshop.admin.service.AdminOrderService;
+import com.bakeryshop.dto.KeysetCursor;
+import com.bakeryshop.dto.KeysetSlice;
 import com.bakeryshop.dto.OrderDTO;
 import com.bakeryshop.dto.OrderItemDTO;
+import com.bakeryshop.dto.OrderRevenueSummary;
 import com.bakeryshop.entity.Order;
 import com.bakeryshop.entity.OrderItem;
-import com.bakeryshop.entity.Product;
+import com.bakeryshop.exception.IllegalOrderTransitionException;
 import com.bakeryshop.exception.ResourceNotFoundException;
+import com.bakeryshop.repository.OrderReportRepository;
 import com.bakeryshop.repository.OrderRepository;
-import com.bakeryshop.repository.ProductRepository;
 import com.bakeryshop.service.EmailService;
+import com.bakeryshop.service.SalesReportService;
+import com.bakeryshop.service.impl.OrderRestocker;
+import com.bakeryshop.service.impl.OrderStateMachine;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
 public class AdminOrderServiceImpl implements AdminOrderService {
     private final OrderRepository orderRepository;
-    private final ProductRepository productRepository;
+    private final OrderReportRepository orderReportRepository;
     private final EmailService emailService;
+    private final SalesReportService salesReportService;
+    private final OrderRestocker orderRestocker;
+    private final OrderStateMachine orderStateMachine;
 
     public AdminOrderServiceImpl(OrderRepository orderRepository,
-                               ProductRepository productRepository,
-                               EmailService emailService) {
+                               OrderReportRepository orderReportRepository,
+                               EmailService emailService,
+                               SalesReportService salesReportService,
+                               OrderRestocker orderRestocker,
+                               OrderStateMachine orderStateMachine) {
         this.orderRepository = orderRepository;
-        this.productRepository = productRepository;
+        this.orderReportRepository = orderReportRepository;
         this.emailService = emailService;
+        this.salesReportService = salesReportService;
+        this.orderRestocker = orderRestocker;
+        this.orderStateMachine = orderStateMachine;
     }
 
     @Override
@@ -52,30 +69,41 @@ public class AdminOrderServiceImpl implements AdminOrderService {
         return orderRepository.findAll(pageable).map(this::convertToDTO);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public KeysetSlice<OrderDTO> getAllOrdersKeyset(String keyword, String cursor, int size) {
+        Specification<Order> filter = null;
+        if (keyword != null && !keyword.isEmpty()) {
+            filter = (root, query, cb) -> cb.or(
+                    cb.like(root.get("user").get("email"), "%" + keyword + "%"),
+                    cb.like(root.get("user").get("phone"), "%" + keyword + "%"));
+        }
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        return KeysetSlice.of(orderRepository.findKeyset(filter, position, size + 1), position, size,
+                        Order::getCreatedAt, Order::getId)
+                .map(this::convertToDTO);
+    }
+
     @Override
     @Transactional
     public void updateOrderStatus(Long id, Order.OrderStatus status, String note) {
+        Order.OrderStatus previousStatus = orderStateMachine.changeStatus(id, status, note);
+        if (previousStatus == status) {
+            // Only the note changed: no rollup move, restock or email
+            return;
+        }
         Order order = orderRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Order", "id", id));
-        
-        String oldStatus = order.getStatus().toString();
-        order.setStatus(status);
-        order.setNote(note);
-        order.setUpdatedAt(LocalDateTime.now());
-        orderRepository.save(order);
+        salesReportService.recordOrderChanged(order, previousStatus, order.getPaymentMethod());
 
         // If order is cancelled, return products to stock
         if (Order.OrderStatus.CANCELLED.equals(status)) {
-            order.getItems().forEach(item -> {
-                Product product = item.getProduct();
-                product.setStock(product.getStock() + item.getQuantity());
-                productRepository.save(product);
-            });
+            orderRestocker.restock(order.getId());
         }
 
         // Send notification email
         try {
-            emailService.sendOrderStatusUpdateEmail(order, oldStatus, status.toString());
+            emailService.sendOrderStatusUpdateEmail(order, previousStatus.toString(), status.toString());
         } catch (Exception e) {
             // Log error but don't fail the transaction
             e.printStackTrace();
@@ -85,24 +113,52 @@ public class AdminOrderServiceImpl implements AdminOrderService {
     @Override
     @Transactional
     public void updatePaymentStatus(Long id, Order.PaymentStatus status, String note) {
+        Order.PaymentStatus previousStatus = orderStateMachine.changePaymentStatus(id, status, note);
+        if (previousStatus == status) {
+            return;
+        }
         Order order = orderRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Order", "id", id));
-        
-        String oldStatus = order.getPaymentStatus().toString();
-        order.setPaymentStatus(status);
-        order.setNote(note);
-        order.setUpdatedAt(LocalDateTime.now());
-        orderRepository.save(order);
 
         // Send notification email
         try {
-            emailService.sendPaymentStatusUpdateEmail(order, oldStatus, status.toString());
+            emailService.sendPaymentStatusUpdateEmail(order, previousStatus.toString(), status.toString());
         } catch (Exception e) {
             // Log error but don't fail the transaction
             e.printStackTrace();
         }
     }
 
+    @Override
+    @Transactional
+    public int cancelOrders(List<Long> ids, String reason) {
+        Map<Long, Order.OrderStatus> previous = new LinkedHashMap<>();
+        for (Long id : ids) {
+            try {
+                Order.OrderStatus status = orderStateMachine.changeStatus(id, Order.OrderStatus.CANCELLED, reason);
+                if (!Order.OrderStatus.CANCELLED.equals(status)) {
+                    previous.put(id, status);
+                }
+            } catch (IllegalOrderTransitionException | ResourceNotFoundException e) {
+                // Delivered or deleted: leave it out of the batch
+            }
+        }
+        if (previous.isEmpty()) {
+            return 0;
+        }
+
+        for (Order order : orderRepository.findAllById(previous.keySet())) {
+            Order.OrderStatus previousStatus = previous.get(order.getId());
+            salesReportService.recordOrderChanged(order, previousStatus, order.getPaymentMethod());
+            emailService.sendOrderStatusUpdateEmail(order, previousStatus.toString(),
+                    Order.OrderStatus.CANCELLED.toString());
+        }
+
+        // One restock statement for the whole selection
+        orderRestocker.restock(previous.keySet());
+        return previous.size();
+    }
+
     @Override
     @Transactional
     public void deleteOrder(Long id) {
@@ -110,12 +166,9 @@ public class AdminOrderServiceImpl implements AdminOrderService {
                 .orElseThrow(() -> new ResourceNotFoundException("Order", "id", id));
         
         // Return products to stock before deleting
-        order.getItems().forEach(item -> {
-            Product product = item.getProduct();
-            product.setStock(product.getStock() + item.getQuantity());
-            productRepository.save(product);
-        });
+        orderRestocker.restock(order.getId());
         
+        salesReportService.recordOrderDeleted(order);
         orderRepository.delete(order);
     }
 
@@ -135,37 +188,29 @@ public class AdminOrderServiceImpl implements AdminOrderService {
     }
 
     @Override
-    public double getTotalRevenue() {
-        return orderRepository.findAll().stream()
-                .filter(order -> order.getStatus() == Order.OrderStatus.DELIVERED)
-                .mapToDouble(order -> order.getTotalAmount().doubleValue())
-                .sum();
+    @Transactional(readOnly = true)
+    public OrderRevenueSummary getRevenueSummary() {
+        return new OrderRevenueSummary(orderReportRepository.summarizeByStatusAndPaymentStatus());
     }
 
     @Override
-    public double getRevenueByStatus(Order.OrderStatus status) {
-        return orderRepository.findByStatus(status).stream()
-                .mapToDouble(order -> order.getTotalAmount().doubleValue())
-                .sum();
+    public BigDecimal getTotalRevenue() {
+        return getRevenueSummary().getRevenue(Order.OrderStatus.DELIVERED);
     }
 
     @Override
-    public double getRevenueByPaymentStatus(Order.PaymentStatus status) {
-        return orderRepository.findByPaymentStatus(status).stream()
-                .mapToDouble(order -> order.getTotalAmount().doubleValue())
-                .sum();
+    public BigDecimal getRevenueByStatus(Order.OrderStatus status) {
+        return getRevenueSummary().getRevenue(status);
     }
 
     @Override
-    public double getAverageOrderValue() {
-        List<Order> deliveredOrders = orderRepository.findByStatus(Order.OrderStatus.DELIVERED);
-        if (deliveredOrders.isEmpty()) {
-            return 0.0;
-        }
-        double totalRevenue = deliveredOrders.stream()
-                .mapToDouble(order -> order.getTotalAmount().doubleValue())
-                .sum();
-        return totalRevenue / deliveredOrders.size();
+    public BigDecimal getRevenueByPaymentStatus(Order.PaymentStatus status) {
+        return getRevenueSummary().getRevenue(status);
+    }
+
+    @Override
+    public BigDecimal getAverageOrderValue() {
+        return getRevenueSummary().getAverageOrderValue(Order.OrderStatus.DELIVERED);
     }
 
     private OrderDTO convertToDTO(Order order) {
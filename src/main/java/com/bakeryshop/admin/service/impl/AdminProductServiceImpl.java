@@ -1,32 +1,49 @@
 package com.bakeryshop.admin.service.impl;
 
 import com.bakeryshop.admin.service.AdminProductService;
+import com.bakeryshop.dto.KeysetCursor;
+import com.bakeryshop.dto.KeysetSlice;
 import com.bakeryshop.dto.ProductDTO;
 import com.bakeryshop.entity.Category;
 import com.bakeryshop.entity.Product;
+import com.bakeryshop.event.CatalogChangedEvent;
 import com.bakeryshop.repository.CategoryRepository;
 import com.bakeryshop.repository.ProductRepository;
 import com.bakeryshop.service.FileStorageService;
+import com.bakeryshop.service.impl.ProductSearchIndex;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class AdminProductServiceImpl implements AdminProductService {
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
     private final FileStorageService fileStorageService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ProductSearchIndex productSearchIndex;
 
     public AdminProductServiceImpl(ProductRepository productRepository,
                                  CategoryRepository categoryRepository,
-                                 FileStorageService fileStorageService) {
+                                 FileStorageService fileStorageService,
+                                 ApplicationEventPublisher eventPublisher,
+                                 ProductSearchIndex productSearchIndex) {
         this.productRepository = productRepository;
         this.categoryRepository = categoryRepository;
         this.fileStorageService = fileStorageService;
+        this.eventPublisher = eventPublisher;
+        this.productSearchIndex = productSearchIndex;
     }
 
     @Override
@@ -40,7 +57,9 @@ public class AdminProductServiceImpl implements AdminProductService {
             product.setImageUrl(imagePath);
         }
         
-        return convertToDTO(productRepository.save(product));
+        Product savedProduct = productRepository.save(product);
+        eventPublisher.publishEvent(new CatalogChangedEvent(savedProduct.getId()));
+        return convertToDTO(savedProduct);
     }
 
     @Override
@@ -48,6 +67,7 @@ public class AdminProductServiceImpl implements AdminProductService {
     public ProductDTO updateProduct(Long id, ProductDTO productDTO, MultipartFile image) {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Product not found"));
+        Integer previousStock = product.getStock();
 
         updateProductFromDTO(product, productDTO);
         
@@ -56,7 +76,10 @@ public class AdminProductServiceImpl implements AdminProductService {
             product.setImageUrl(imagePath);
         }
 
-        return convertToDTO(productRepository.save(product));
+        Product savedProduct = productRepository.save(product);
+        eventPublisher.publishEvent(new CatalogChangedEvent(savedProduct.getId(),
+                stockDelta(previousStock, savedProduct.getStock())));
+        return convertToDTO(savedProduct);
     }
 
     @Override
@@ -71,6 +94,7 @@ public class AdminProductServiceImpl implements AdminProductService {
         }
         
         productRepository.delete(product);
+        eventPublisher.publishEvent(new CatalogChangedEvent(id));
     }
 
     @Override
@@ -83,12 +107,32 @@ public class AdminProductServiceImpl implements AdminProductService {
     @Override
     public Page<ProductDTO> getAllProducts(String keyword, Pageable pageable) {
         if (keyword != null && !keyword.isEmpty()) {
-            return productRepository.findByNameContainingIgnoreCaseOrDescriptionContainingIgnoreCase(keyword, keyword, pageable)
-                    .map(this::convertToDTO);
+            // Ranked by relevance; only the requested page is loaded from the database
+            List<Long> ids = productSearchIndex.search(keyword, true);
+            int from = (int) Math.min(pageable.getOffset(), ids.size());
+            int to = Math.min(from + pageable.getPageSize(), ids.size());
+            List<Long> pageIds = ids.subList(from, to);
+            Map<Long, Product> products = productRepository.findAllById(pageIds).stream()
+                    .collect(Collectors.toMap(Product::getId, Function.identity()));
+            List<ProductDTO> content = pageIds.stream()
+                    .map(products::get)
+                    .filter(Objects::nonNull)
+                    .map(this::convertToDTO)
+                    .collect(Collectors.toList());
+            return new PageImpl<>(content, pageable, ids.size());
         }
         return productRepository.findAll(pageable).map(this::convertToDTO);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public KeysetSlice<ProductDTO> getAllProductsKeyset(String cursor, int size) {
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        return KeysetSlice.of(productRepository.findKeyset(null, position, size + 1), position, size,
+                        Product::getCreatedAt, Product::getId)
+                .map(this::convertToDTO);
+    }
+
     @Override
     public long getTotalProducts() {
         return productRepository.count();
@@ -117,6 +161,7 @@ public class AdminProductServiceImpl implements AdminProductService {
                 .orElseThrow(() -> new RuntimeException("Product not found"));
         product.setActive(true);
         productRepository.save(product);
+        eventPublisher.publishEvent(new CatalogChangedEvent(id));
     }
 
     @Override
@@ -126,6 +171,7 @@ public class AdminProductServiceImpl implements AdminProductService {
                 .orElseThrow(() -> new RuntimeException("Product not found"));
         product.setActive(false);
         productRepository.save(product);
+        eventPublisher.publishEvent(new CatalogChangedEvent(id));
     }
 
     @Override
@@ -133,8 +179,10 @@ public class AdminProductServiceImpl implements AdminProductService {
     public void updateStock(Long id, int quantity) {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Product not found"));
+        Integer previousStock = product.getStock();
         product.setStock(quantity);
         productRepository.save(product);
+        eventPublisher.publishEvent(new CatalogChangedEvent(id, stockDelta(previousStock, quantity)));
     }
 
     @Override
@@ -145,6 +193,7 @@ public class AdminProductServiceImpl implements AdminProductService {
         product.setBestSeller(isBestSeller);
         product.setUpdatedAt(LocalDateTime.now());
         productRepository.save(product);
+        eventPublisher.publishEvent(new CatalogChangedEvent(id));
     }
 
     @Override
@@ -155,6 +204,13 @@ public class AdminProductServiceImpl implements AdminProductService {
         product.setNewArrival(isNewArrival);
         product.setUpdatedAt(LocalDateTime.now());
         productRepository.save(product);
+        eventPublisher.publishEvent(new CatalogChangedEvent(id));
+    }
+
+    // Null when the stock did not change
+    private static Integer stockDelta(Integer previous, Integer current) {
+        int delta = (current == null ? 0 : current) - (previous == null ? 0 : previous);
+        return delta != 0 ? delta : null;
     }
 
     private void updateProductFromDTO(Product product, ProductDTO dto) {
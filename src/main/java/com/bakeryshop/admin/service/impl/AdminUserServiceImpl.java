@@ -4,6 +4,7 @@ import com.bakeryshop.admin.service.AdminUserService;
 import com.bakeryshop.dto.UserDTO;
 import com.bakeryshop.entity.User;
 import com.bakeryshop.repository.UserRepository;
+import com.bakeryshop.security.UserDetailsCache;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -14,11 +15,14 @@ import org.springframework.transaction.annotation.Transactional;
 public class AdminUserServiceImpl implements AdminUserService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final UserDetailsCache userDetailsCache;
 
     public AdminUserServiceImpl(UserRepository userRepository,
-                              PasswordEncoder passwordEncoder) {
+                              PasswordEncoder passwordEncoder,
+                              UserDetailsCache userDetailsCache) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.userDetailsCache = userDetailsCache;
     }
 
     @Override
@@ -46,6 +50,7 @@ public class AdminUserServiceImpl implements AdminUserService {
             throw new RuntimeException("Email already exists");
         }
 
+        userDetailsCache.invalidate(user.getEmail());
         updateUserFromDTO(user, userDTO);
         if (userDTO.getPassword() != null && !userDTO.getPassword().isEmpty()) {
             user.setPassword(passwordEncoder.encode(userDTO.getPassword()));
@@ -59,6 +64,7 @@ public class AdminUserServiceImpl implements AdminUserService {
     public void deleteUser(Long id) {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("User not found"));
+        userDetailsCache.invalidate(user.getEmail());
         userRepository.delete(user);
     }
 
@@ -99,6 +105,7 @@ public class AdminUserServiceImpl implements AdminUserService {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("User not found"));
         user.setBlocked(true);
+        userDetailsCache.invalidate(user.getEmail());
         userRepository.save(user);
     }
 
@@ -108,6 +115,7 @@ public class AdminUserServiceImpl implements AdminUserService {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("User not found"));
         user.setBlocked(false);
+        userDetailsCache.invalidate(user.getEmail());
         userRepository.save(user);
     }
 
@@ -117,6 +125,7 @@ public class AdminUserServiceImpl implements AdminUserService {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("User not found"));
         user.setRole(role);
+        userDetailsCache.invalidate(user.getEmail());
         userRepository.save(user);
     }
 
@@ -0,0 +1,94 @@
+package com.bakeryshop.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+@EnableScheduling
+public class AsyncConfig {
+
+    // Tasks dropped when the queue is full stay PENDING in the outbox and are picked up by the poller
+    @Bean
+    public ThreadPoolTaskExecutor emailOutboxExecutor(@Value("${app.mail.outbox.workers:2}") int workers,
+                                                      @Value("${app.mail.outbox.queue-capacity:500}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("mail-outbox-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.DiscardPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(10);
+        return executor;
+    }
+
+    // One worker and one queued task: requests arriving while a rebuild is queued are covered by it
+    @Bean
+    public ThreadPoolTaskExecutor catalogRebuildExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1);
+        executor.setThreadNamePrefix("catalog-rebuild-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.DiscardPolicy());
+        return executor;
+    }
+
+    // Events dropped when the queue is full stay RECEIVED and are picked up by the poller
+    @Bean
+    public ThreadPoolTaskExecutor paymentEventExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(2);
+        executor.setQueueCapacity(200);
+        executor.setThreadNamePrefix("payment-event-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.DiscardPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(10);
+        return executor;
+    }
+
+    // Runs the reconciliation off the shared scheduler, whose few threads also drive the expiry
+    // tick and the flush jobs. A trigger arriving while a run is in progress is dropped
+    @Bean
+    public ThreadPoolTaskExecutor paymentReconcileRunner() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("payment-reconcile-run-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.DiscardPolicy());
+        return executor;
+    }
+
+    // The pool size bounds concurrent querydr calls; a full queue makes the reconciliation thread run the call itself
+    @Bean
+    public ThreadPoolTaskExecutor paymentReconcileExecutor(@Value("${app.payment.reconcile.parallelism:4}") int parallelism,
+                                                           @Value("${app.payment.reconcile.batch-size:100}") int batchSize) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(parallelism);
+        executor.setMaxPoolSize(parallelism);
+        executor.setQueueCapacity(batchSize);
+        executor.setThreadNamePrefix("payment-reconcile-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return executor;
+    }
+
+    // Bounded queue with AbortPolicy: callers get a fast rejection instead of queueing behind a login burst
+    @Bean
+    public ThreadPoolTaskExecutor passwordHashExecutor(@Value("${app.security.password-hashing.threads:4}") int threads,
+                                                       @Value("${app.security.password-hashing.queue-capacity:64}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("password-hash-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        return executor;
+    }
+}
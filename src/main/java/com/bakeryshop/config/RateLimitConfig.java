@@ -0,0 +1,35 @@
+package com.bakeryshop.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.rate-limit")
+@Data
+public class RateLimitConfig {
+    private boolean enabled = true;
+    private long sweepIntervalMs = 60000;
+    // Per rule and key type; beyond this new clients are not tracked (fail open)
+    private int maxBuckets = 100000;
+    private List<Rule> rules = new ArrayList<>();
+
+    @Data
+    public static class Rule {
+        private String name;
+        // Optional HTTP method; any method when empty
+        private String method;
+        // Ant-style path relative to the context path
+        private String pattern;
+        // Burst size and sustained rate of each bucket
+        private int capacity = 10;
+        private double refillPerMinute = 10;
+        private boolean perIp = true;
+        private boolean perAccount = false;
+        // Request parameter identifying the account (e.g. login email); falls back to the session user
+        private String accountParameter;
+    }
+}
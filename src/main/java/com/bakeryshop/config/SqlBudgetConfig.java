@@ -0,0 +1,28 @@
+package com.bakeryshop.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.sql-budget")
+@Data
+public class SqlBudgetConfig {
+    private boolean enabled = true;
+    // Default per-request limits; 0 disables the check
+    private int maxStatements = 40;
+    private long maxJdbcMillis = 500;
+    // Same statement shape issued this many times in one request is reported as N+1
+    private int repeatThreshold = 5;
+    // Throw instead of logging when a budget is exceeded (meant for tests)
+    private boolean failOnExceed = false;
+    // Per-endpoint statement limits keyed by "Controller.method"
+    private Map<String, Integer> endpoints = new HashMap<>();
+
+    public int maxStatementsFor(String endpoint) {
+        return endpoints.getOrDefault(endpoint, maxStatements);
+    }
+}
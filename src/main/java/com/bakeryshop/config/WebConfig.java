@@ -1,7 +1,9 @@
 package com.bakeryshop.config;
 
+import com.bakeryshop.monitoring.SqlEndpointInterceptor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
@@ -13,6 +15,17 @@ public class WebConfig implements WebMvcConfigurer {
     @Value("${file.upload-dir}")
     private String uploadDir;
 
+    private final SqlEndpointInterceptor sqlEndpointInterceptor;
+
+    public WebConfig(SqlEndpointInterceptor sqlEndpointInterceptor) {
+        this.sqlEndpointInterceptor = sqlEndpointInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(sqlEndpointInterceptor);
+    }
+
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
         // Static resources
@@ -5,6 +5,7 @@ import com.bakeryshop.dto.LoginRequest;
 import com.bakeryshop.dto.SignUpRequest;
 import com.bakeryshop.entity.User;
 import com.bakeryshop.security.JwtTokenProvider;
+import com.bakeryshop.security.UserPrincipal;
 import com.bakeryshop.service.UserService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -45,9 +46,10 @@ public class AuthController {
         SecurityContextHolder.getContext().setAuthentication(authentication);
 
         String jwt = tokenProvider.generateToken(authentication);
-        User user = userService.getUserByEmail(loginRequest.getEmail());
-        
-        return ResponseEntity.ok(new JwtAuthenticationResponse(jwt, user.getId(), user.getName(), user.getEmail(), user.getRole()));
+        UserPrincipal principal = (UserPrincipal) authentication.getPrincipal();
+
+        return ResponseEntity.ok(new JwtAuthenticationResponse(jwt, principal.getId(), principal.getName(),
+                principal.getEmail(), principal.getRole()));
     }
 
     @PostMapping("/signup")
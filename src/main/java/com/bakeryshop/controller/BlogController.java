@@ -22,7 +22,17 @@ public class BlogController {
     @GetMapping
     public String listBlogs(Model model, 
                           @RequestParam(defaultValue = "0") int page,
-                          @RequestParam(defaultValue = "9") int size) {
+                          @RequestParam(defaultValue = "9") int size,
+                          @RequestParam(defaultValue = "false") boolean keyset,
+                          @RequestParam(required = false) String cursor) {
+        if (keyset) {
+            var slice = blogService.getPublishedBlogsKeyset(cursor, size);
+            model.addAttribute("blogs", slice.getContent());
+            model.addAttribute("slice", slice);
+            model.addAttribute("currentPage", 0);
+            model.addAttribute("totalPages", 0);
+            return "blog/blogs";
+        }
         var blogPage = blogService.getPublishedBlogs(
             PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"))
         );
@@ -1,11 +1,10 @@
 package com.bakeryshop.controller;
 
 import com.bakeryshop.dto.CartItemDTO;
+import com.bakeryshop.security.UserPrincipal;
 import com.bakeryshop.service.CartService;
-import com.bakeryshop.service.UserService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
@@ -18,20 +17,18 @@ import java.util.Map;
 @RequestMapping("/api/cart")
 public class CartController {
     private final CartService cartService;
-    private final UserService userService;
 
-    public CartController(CartService cartService, UserService userService) {
+    public CartController(CartService cartService) {
         this.cartService = cartService;
-        this.userService = userService;
     }
 
     @PostMapping("/add")
     public ResponseEntity<?> addToCart(
-            @AuthenticationPrincipal UserDetails userDetails,
+            @AuthenticationPrincipal UserPrincipal principal,
             @RequestParam Long productId,
             @RequestParam(defaultValue = "1") @Min(1) Integer quantity) {
         try {
-            Long userId = userService.getUserByEmail(userDetails.getUsername()).getId();
+            Long userId = principal.getId();
             cartService.addToCart(userId, productId, quantity);
             
             // Return cart item count for UI update
@@ -50,11 +47,11 @@ public class CartController {
 
     @PutMapping("/items/{cartItemId}")
     public ResponseEntity<?> updateCartItem(
-            @AuthenticationPrincipal UserDetails userDetails,
+            @AuthenticationPrincipal UserPrincipal principal,
             @PathVariable Long cartItemId,
             @RequestParam @Min(1) Integer quantity) {
         try {
-            Long userId = userService.getUserByEmail(userDetails.getUsername()).getId();
+            Long userId = principal.getId();
             cartService.updateCartItem(userId, cartItemId, quantity);
             return ResponseEntity.ok().build();
         } catch (RuntimeException e) {
@@ -66,10 +63,10 @@ public class CartController {
 
     @DeleteMapping("/items/{cartItemId}")
     public ResponseEntity<?> removeFromCart(
-            @AuthenticationPrincipal UserDetails userDetails,
+            @AuthenticationPrincipal UserPrincipal principal,
             @PathVariable Long cartItemId) {
         try {
-            Long userId = userService.getUserByEmail(userDetails.getUsername()).getId();
+            Long userId = principal.getId();
             cartService.removeFromCart(userId, cartItemId);
             return ResponseEntity.ok().build();
         } catch (RuntimeException e) {
@@ -81,9 +78,9 @@ public class CartController {
 
     @DeleteMapping("/clear")
     public ResponseEntity<?> clearCart(
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @AuthenticationPrincipal UserPrincipal principal) {
         try {
-            Long userId = userService.getUserByEmail(userDetails.getUsername()).getId();
+            Long userId = principal.getId();
             cartService.clearCart(userId);
             return ResponseEntity.ok().build();
         } catch (RuntimeException e) {
@@ -95,9 +92,9 @@ public class CartController {
 
     @GetMapping("/items")
     public ResponseEntity<?> getCartItems(
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @AuthenticationPrincipal UserPrincipal principal) {
         try {
-            Long userId = userService.getUserByEmail(userDetails.getUsername()).getId();
+            Long userId = principal.getId();
             List<CartItemDTO> items = cartService.getCartItems(userId);
             return ResponseEntity.ok(items);
         } catch (RuntimeException e) {
@@ -109,9 +106,9 @@ public class CartController {
 
     @GetMapping("/count")
     public ResponseEntity<?> getCartItemCount(
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @AuthenticationPrincipal UserPrincipal principal) {
         try {
-            Long userId = userService.getUserByEmail(userDetails.getUsername()).getId();
+            Long userId = principal.getId();
             return ResponseEntity.ok(cartService.getCartItemCount(userId));
         } catch (RuntimeException e) {
             Map<String, String> error = new HashMap<>();
@@ -2,6 +2,8 @@ package com.bakeryshop.controller;
 
 import com.bakeryshop.dto.OrderDTO;
 import com.bakeryshop.entity.Order;
+import com.bakeryshop.security.UserPrincipal;
+import com.bakeryshop.service.IdempotencyService;
 import com.bakeryshop.service.OrderService;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.Resource;
@@ -12,7 +14,6 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
@@ -21,37 +22,40 @@ import javax.validation.Valid;
 @RequestMapping("/api/orders")
 public class OrderController {
     private final OrderService orderService;
+    private final IdempotencyService idempotencyService;
 
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService, IdempotencyService idempotencyService) {
         this.orderService = orderService;
+        this.idempotencyService = idempotencyService;
     }
 
     @PostMapping
     public ResponseEntity<OrderDTO> createOrder(
-            @AuthenticationPrincipal UserDetails userDetails,
+            @AuthenticationPrincipal UserPrincipal principal,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             @Valid @RequestBody OrderDTO orderDTO) {
-        return ResponseEntity.ok(orderService.createOrder(
-                Long.parseLong(userDetails.getUsername()),
-                orderDTO));
+        Long orderId = idempotencyService.createOnce(principal.getId(), idempotencyKey,
+                () -> orderService.createOrder(principal.getId(), orderDTO).getId());
+        return ResponseEntity.ok(orderService.getOrderDTOById(orderId));
     }
 
     @GetMapping("/{orderId}")
     public ResponseEntity<OrderDTO> getOrder(
-            @AuthenticationPrincipal UserDetails userDetails,
+            @AuthenticationPrincipal UserPrincipal principal,
             @PathVariable Long orderId) {
         return ResponseEntity.ok(orderService.getOrderDTOById(orderId));
     }
 
     @GetMapping("/my-orders")
     public ResponseEntity<Page<OrderDTO>> getUserOrders(
-            @AuthenticationPrincipal UserDetails userDetails,
+            @AuthenticationPrincipal UserPrincipal principal,
             @RequestParam(required = false) String keyword,
             @RequestParam(required = false) Order.OrderStatus status,
             @RequestParam(required = false) Order.PaymentStatus paymentStatus,
             @RequestParam(required = false) Order.PaymentMethod paymentMethod,
             Pageable pageable) {
         return ResponseEntity.ok(orderService.searchOrders(
-                Long.parseLong(userDetails.getUsername()),
+                principal.getId(),
                 keyword, status, paymentStatus, paymentMethod,
                 pageable));
     }
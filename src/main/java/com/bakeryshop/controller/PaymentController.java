@@ -2,7 +2,9 @@ package com.bakeryshop.controller;
 
 import com.bakeryshop.entity.Order;
 import com.bakeryshop.service.OrderService;
+import com.bakeryshop.service.PaymentEventService;
 import com.bakeryshop.service.PaymentService;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
@@ -15,10 +17,13 @@ import java.util.Map;
 public class PaymentController {
     private final PaymentService paymentService;
     private final OrderService orderService;
+    private final PaymentEventService paymentEventService;
 
-    public PaymentController(PaymentService paymentService, OrderService orderService) {
+    public PaymentController(PaymentService paymentService, OrderService orderService,
+                             PaymentEventService paymentEventService) {
         this.paymentService = paymentService;
         this.orderService = orderService;
+        this.paymentEventService = paymentEventService;
     }
 
     @GetMapping("/create-payment/{orderId}")
@@ -36,11 +41,14 @@ public class PaymentController {
                 return "redirect:/orders/" + orderId;
             }
 
-            // Check if order is already paid
             if (Order.PaymentStatus.PAID.equals(order.getPaymentStatus())) {
                 redirectAttributes.addFlashAttribute("error", "Đơn hàng đã được thanh toán");
                 return "redirect:/orders/" + orderId;
             }
+            if (!isPayable(order)) {
+                redirectAttributes.addFlashAttribute("error", "Đơn hàng không còn có thể thanh toán");
+                return "redirect:/orders/" + orderId;
+            }
 
             String paymentUrl = paymentService.createPaymentUrl(order);
 
@@ -64,10 +72,12 @@ public class PaymentController {
                 return ResponseEntity.badRequest().body("Invalid order amount");
             }
 
-            // Check if order is already paid
             if (Order.PaymentStatus.PAID.equals(order.getPaymentStatus())) {
                 return ResponseEntity.badRequest().body("Order is already paid");
             }
+            if (!isPayable(order)) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body("Order can no longer be paid");
+            }
 
             String paymentUrl = paymentService.createPaymentUrl(order);
             return ResponseEntity.ok(paymentUrl);
@@ -76,37 +86,36 @@ public class PaymentController {
         }
     }
 
+    // Server-to-server notification; the only place a VNPay payment changes order state
+    @GetMapping("/ipn")
+    public ResponseEntity<Map<String, String>> paymentIpn(@RequestParam Map<String, String> queryParams) {
+        return ResponseEntity.ok(paymentEventService.handleIpn(queryParams));
+    }
+
+    // Browser redirect after payment: read-only, the order is updated by the IPN
     @GetMapping("/return")
     public String paymentCallback(@RequestParam Map<String, String> queryParams,
                                 RedirectAttributes redirectAttributes) {
-        try {
-            if (paymentService.validatePaymentResponse(queryParams)) {
-                String orderId = queryParams.get("vnp_TxnRef");
-                String vnpResponseCode = queryParams.get("vnp_ResponseCode");
-                String transactionNo = queryParams.get("vnp_TransactionNo");
-
-                if ("00".equals(vnpResponseCode)) {
-                    // Update order payment status and transaction number
-                    orderService.updatePaymentStatus(Long.parseLong(orderId), Order.PaymentStatus.PAID, "Payment completed via VNPay - Transaction: " + transactionNo);
-//                    orderService.updateTransactionNo(Long.parseLong(orderId), transactionNo);
-                    
-                    redirectAttributes.addFlashAttribute("paymentSuccess", true);
-                    return "redirect:/order/success/" + orderId;
-                }
-            }else{
-                String orderId = queryParams.get("vnp_TxnRef");
-                String vnpResponseCode = queryParams.get("vnp_ResponseCode");
-                String transactionNo = queryParams.get("vnp_TransactionNo");
-                orderService.updatePaymentStatus(Long.parseLong(orderId), Order.PaymentStatus.FAILED, "Payment completed via VNPay - Transaction: " + transactionNo);
-//                orderService.updateTransactionNo(Long.parseLong(orderId), transactionNo);
+        if (paymentService.verifySignature(queryParams)) {
+            String orderId = queryParams.get("vnp_TxnRef");
+            if ("00".equals(queryParams.get("vnp_ResponseCode"))) {
                 redirectAttributes.addFlashAttribute("paymentSuccess", true);
                 return "redirect:/order/success/" + orderId;
             }
-        } catch (Exception e) {
-            redirectAttributes.addFlashAttribute("errorMessage", "Payment processing error: " + e.getMessage());
+            redirectAttributes.addFlashAttribute("errorMessage",
+                    "Thanh toán không thành công (mã " + queryParams.get("vnp_ResponseCode") + ")");
         }
-        
+
         redirectAttributes.addFlashAttribute("paymentError", true);
         return "redirect:/order/error";
     }
-} 
\ No newline at end of file
+
+    // An order cancelled by the expiry job (or shipped) must not get a fresh payment URL,
+    // otherwise VNPay could take money for stock that was already released
+    private static boolean isPayable(Order order) {
+        Order.OrderStatus status = order.getStatus();
+        Order.PaymentStatus paymentStatus = order.getPaymentStatus();
+        return (status == Order.OrderStatus.PENDING || status == Order.OrderStatus.CONFIRMED)
+                && (paymentStatus == Order.PaymentStatus.PENDING || paymentStatus == Order.PaymentStatus.FAILED);
+    }
+}
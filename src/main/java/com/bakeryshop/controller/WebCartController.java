@@ -1,9 +1,8 @@
 package com.bakeryshop.controller;
 
+import com.bakeryshop.security.UserPrincipal;
 import com.bakeryshop.service.CartService;
-import com.bakeryshop.service.UserService;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
@@ -13,21 +12,19 @@ import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 @RequestMapping("/cart")
 public class WebCartController {
     private final CartService cartService;
-    private final UserService userService;
 
-    public WebCartController(CartService cartService, UserService userService) {
+    public WebCartController(CartService cartService) {
         this.cartService = cartService;
-        this.userService = userService;
     }
 
     @GetMapping
-    public String viewCart(@AuthenticationPrincipal UserDetails userDetails, Model model) {
-        if (userDetails == null) {
+    public String viewCart(@AuthenticationPrincipal UserPrincipal principal, Model model) {
+        if (principal == null) {
             return "redirect:/login?redirect=/cart";
         }
         
         try {
-            Long userId = userService.getUserByEmail(userDetails.getUsername()).getId();
+            Long userId = principal.getId();
             model.addAttribute("cartItems", cartService.getCartItems(userId));
             model.addAttribute("totalAmount", cartService.calculateTotal(userId));
             return "cart/cart";
@@ -39,16 +36,16 @@ public class WebCartController {
 
     @PostMapping("/add")
     public String addToCart(
-            @AuthenticationPrincipal UserDetails userDetails,
+            @AuthenticationPrincipal UserPrincipal principal,
             @RequestParam Long productId,
             @RequestParam(defaultValue = "1") Integer quantity,
             RedirectAttributes redirectAttributes) {
-        if (userDetails == null) {
+        if (principal == null) {
             return "redirect:/login?redirect=/products/" + productId;
         }
         
         try {
-            Long userId = userService.getUserByEmail(userDetails.getUsername()).getId();
+            Long userId = principal.getId();
             cartService.addToCart(userId, productId, quantity);
             redirectAttributes.addFlashAttribute("success", "Sản phẩm đã được thêm vào giỏ hàng");
         } catch (Exception e) {
@@ -59,16 +56,16 @@ public class WebCartController {
 
     @PostMapping("/update")
     public String updateCartItem(
-            @AuthenticationPrincipal UserDetails userDetails,
+            @AuthenticationPrincipal UserPrincipal principal,
             @RequestParam Long cartItemId,
             @RequestParam Integer quantity,
             RedirectAttributes redirectAttributes) {
-        if (userDetails == null) {
+        if (principal == null) {
             return "redirect:/login?redirect=/cart";
         }
         
         try {
-            Long userId = userService.getUserByEmail(userDetails.getUsername()).getId();
+            Long userId = principal.getId();
             cartService.updateCartItem(userId, cartItemId, quantity);
             redirectAttributes.addFlashAttribute("success", "Giỏ hàng đã được cập nhật");
         } catch (Exception e) {
@@ -79,15 +76,15 @@ public class WebCartController {
 
     @PostMapping("/remove")
     public String removeFromCart(
-            @AuthenticationPrincipal UserDetails userDetails,
+            @AuthenticationPrincipal UserPrincipal principal,
             @RequestParam Long cartItemId,
             RedirectAttributes redirectAttributes) {
-        if (userDetails == null) {
+        if (principal == null) {
             return "redirect:/login?redirect=/cart";
         }
         
         try {
-            Long userId = userService.getUserByEmail(userDetails.getUsername()).getId();
+            Long userId = principal.getId();
             cartService.removeFromCart(userId, cartItemId);
             redirectAttributes.addFlashAttribute("success", "Sản phẩm đã được xóa khỏi giỏ hàng");
         } catch (Exception e) {
@@ -98,14 +95,14 @@ public class WebCartController {
 
     @PostMapping("/clear")
     public String clearCart(
-            @AuthenticationPrincipal UserDetails userDetails,
+            @AuthenticationPrincipal UserPrincipal principal,
             RedirectAttributes redirectAttributes) {
-        if (userDetails == null) {
+        if (principal == null) {
             return "redirect:/login?redirect=/cart";
         }
         
         try {
-            Long userId = userService.getUserByEmail(userDetails.getUsername()).getId();
+            Long userId = principal.getId();
             cartService.clearCart(userId);
             redirectAttributes.addFlashAttribute("success", "Giỏ hàng đã được xóa");
         } catch (Exception e) {
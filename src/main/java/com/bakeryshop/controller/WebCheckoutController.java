@@ -4,12 +4,12 @@ import com.bakeryshop.dto.CartItemDTO;
 import com.bakeryshop.dto.OrderDTO;
 import com.bakeryshop.dto.OrderItemDTO;
 import com.bakeryshop.entity.Order;
-import com.bakeryshop.entity.User;
+import com.bakeryshop.security.UserPrincipal;
 import com.bakeryshop.service.CartService;
+import com.bakeryshop.service.IdempotencyService;
 import com.bakeryshop.service.OrderService;
 import com.bakeryshop.service.UserService;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
@@ -24,22 +24,24 @@ public class WebCheckoutController {
     private final CartService cartService;
     private final UserService userService;
     private final OrderService orderService;
+    private final IdempotencyService idempotencyService;
 
-    public WebCheckoutController(CartService cartService, UserService userService, OrderService orderService) {
+    public WebCheckoutController(CartService cartService, UserService userService, OrderService orderService,
+                                 IdempotencyService idempotencyService) {
         this.cartService = cartService;
         this.userService = userService;
         this.orderService = orderService;
+        this.idempotencyService = idempotencyService;
     }
 
     @GetMapping
-    public String showCheckoutPage(@AuthenticationPrincipal UserDetails userDetails, Model model) {
-        if (userDetails == null) {
+    public String showCheckoutPage(@AuthenticationPrincipal UserPrincipal principal, Model model) {
+        if (principal == null) {
             return "redirect:/login?redirect=/checkout";
         }
 
         try {
-            User user = userService.getUserByEmail(userDetails.getUsername());
-            Long userId = user.getId();
+            Long userId = principal.getId();
 
             // Check if cart is empty
             if (cartService.getCartItems(userId).isEmpty()) {
@@ -50,7 +52,8 @@ public class WebCheckoutController {
             model.addAttribute("cartItems", cartService.getCartItems(userId));
             model.addAttribute("totalAmount", cartService.calculateTotal(userId));
             model.addAttribute("shippingFee", 0); // Free shipping
-            model.addAttribute("user", user);
+            model.addAttribute("user", userService.getUserById(userId));
+            model.addAttribute("idempotencyKey", idempotencyService.newKey());
 
             return "cart/checkout";
         } catch (Exception e) {
@@ -60,52 +63,57 @@ public class WebCheckoutController {
     }
 
     @PostMapping
-    public String processCheckout(@AuthenticationPrincipal UserDetails userDetails,
+    public String processCheckout(@AuthenticationPrincipal UserPrincipal principal,
                                 @RequestParam String name,
                                 @RequestParam String email,
                                 @RequestParam String phone,
                                 @RequestParam String address,
                                 @RequestParam(required = false) String note,
                                 @RequestParam Order.PaymentMethod paymentMethod,
+                                @RequestParam(required = false) String idempotencyKey,
+                                @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyHeader,
                                 RedirectAttributes redirectAttributes) {
-        if (userDetails == null) {
+        if (principal == null) {
             return "redirect:/login?redirect=/checkout";
         }
 
         try {
-            User user = userService.getUserByEmail(userDetails.getUsername());
-            Long userId = user.getId();
-
-            // Get cart items and convert to OrderItemDTO
-            List<CartItemDTO> cartItems = cartService.getCartItems(userId);
-            List<OrderItemDTO> orderItems = cartItems.stream()
-                .map(cartItem -> {
-                    OrderItemDTO orderItem = new OrderItemDTO();
-                    orderItem.setProductId(cartItem.getProductId());
-                    orderItem.setQuantity(cartItem.getQuantity());
-                    orderItem.setPrice(cartItem.getPrice());
-                    return orderItem;
-                })
-                .collect(Collectors.toList());
-
-            // Create OrderDTO
-            OrderDTO orderDTO = new OrderDTO();
-            orderDTO.setShippingName(name);
-            orderDTO.setShippingPhone(phone);
-            orderDTO.setShippingAddress(address);
-            orderDTO.setNote(note);
-            orderDTO.setPaymentMethod(paymentMethod);
-            orderDTO.setOrderItems(orderItems);
-
-            // Create order
-            OrderDTO createdOrder = orderService.createOrder(userId, orderDTO);
+            Long userId = principal.getId();
+            String key = idempotencyHeader != null ? idempotencyHeader : idempotencyKey;
+
+            // A repeated submit of the same form gets the order created by the first one
+            Long orderId = idempotencyService.createOnce(userId, key, () -> {
+                // Get cart items and convert to OrderItemDTO
+                List<CartItemDTO> cartItems = cartService.getCartItems(userId);
+                List<OrderItemDTO> orderItems = cartItems.stream()
+                    .map(cartItem -> {
+                        OrderItemDTO orderItem = new OrderItemDTO();
+                        orderItem.setProductId(cartItem.getProductId());
+                        orderItem.setQuantity(cartItem.getQuantity());
+                        orderItem.setPrice(cartItem.getPrice());
+                        return orderItem;
+                    })
+                    .collect(Collectors.toList());
+
+                // Create OrderDTO
+                OrderDTO orderDTO = new OrderDTO();
+                orderDTO.setShippingName(name);
+                orderDTO.setShippingPhone(phone);
+                orderDTO.setShippingAddress(address);
+                orderDTO.setNote(note);
+                orderDTO.setPaymentMethod(paymentMethod);
+                orderDTO.setOrderItems(orderItems);
+
+                // Create order
+                return orderService.createOrder(userId, orderDTO).getId();
+            });
 
             // Handle different payment methods
             if (paymentMethod == Order.PaymentMethod.VNPAY) {
-                return "redirect:/vnpay/create-payment/" + createdOrder.getId();
+                return "redirect:/vnpay/create-payment/" + orderId;
             } else {
                 redirectAttributes.addFlashAttribute("success", "Đặt hàng thành công!");
-                return "redirect:/orders/" + createdOrder.getId();
+                return "redirect:/orders/" + orderId;
             }
 
         } catch (Exception e) {
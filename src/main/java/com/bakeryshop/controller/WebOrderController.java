@@ -1,14 +1,15 @@
 package com.bakeryshop.controller;
 
+import com.bakeryshop.dto.KeysetSlice;
 import com.bakeryshop.dto.OrderDTO;
 import com.bakeryshop.entity.Order;
-import com.bakeryshop.entity.User;
+import com.bakeryshop.security.UserPrincipal;
+import com.bakeryshop.service.IdempotencyService;
 import com.bakeryshop.service.OrderService;
 import com.bakeryshop.service.PaymentService;
 import com.bakeryshop.service.UserService;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
@@ -18,27 +19,29 @@ import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 @RequestMapping("/orders")
 public class WebOrderController {
     private final OrderService orderService;
-    private final UserService userService;
     private final PaymentService paymentService;
+    private final IdempotencyService idempotencyService;
+    private final UserService userService;
 
-    public WebOrderController(OrderService orderService, UserService userService, PaymentService paymentService) {
+    public WebOrderController(OrderService orderService, PaymentService paymentService,
+                              IdempotencyService idempotencyService, UserService userService) {
         this.orderService = orderService;
-        this.userService = userService;
         this.paymentService = paymentService;
+        this.idempotencyService = idempotencyService;
+        this.userService = userService;
     }
 
     @GetMapping
-    public String viewOrders(@AuthenticationPrincipal UserDetails userDetails,
+    public String viewOrders(@AuthenticationPrincipal UserPrincipal principal,
                            @RequestParam(required = false) String keyword,
                            @RequestParam(required = false) Order.OrderStatus status,
                            @RequestParam(required = false) Order.PaymentStatus paymentStatus,
                            @RequestParam(required = false) Order.PaymentMethod paymentMethod,
                            @RequestParam(defaultValue = "0") int page,
                            @RequestParam(defaultValue = "10") int size,
+                           @RequestParam(defaultValue = "false") boolean keyset,
+                           @RequestParam(required = false) String cursor,
                            Model model) {
-        String email = userDetails.getUsername(); // email is stored as username in UserDetails
-        User user = userService.getUserByEmail(email);
-        
         // Add search parameters to model for form
         model.addAttribute("keyword", keyword);
         model.addAttribute("selectedStatus", status);
@@ -50,28 +53,32 @@ public class WebOrderController {
         model.addAttribute("paymentStatuses", Order.PaymentStatus.values());
         model.addAttribute("paymentMethods", Order.PaymentMethod.values());
         
-        // Get filtered orders
-        model.addAttribute("orders", 
-            orderService.searchOrders(user.getId(), keyword, status, paymentStatus, paymentMethod,
-                                    PageRequest.of(page, size)));
+        // Get filtered orders; keyset mode pages with cursors instead of page numbers
+        if (keyset) {
+            KeysetSlice<OrderDTO> slice = orderService.searchOrdersKeyset(principal.getId(), keyword, status,
+                    paymentStatus, paymentMethod, cursor, size);
+            model.addAttribute("orders", slice);
+            model.addAttribute("slice", slice);
+        } else {
+            model.addAttribute("orders", 
+                orderService.searchOrders(principal.getId(), keyword, status, paymentStatus, paymentMethod,
+                                        PageRequest.of(page, size)));
+        }
         
         return "order/orders";
     }
 
     @GetMapping("/{id}")
-    public String viewOrderDetail(@AuthenticationPrincipal UserDetails userDetails,
+    public String viewOrderDetail(@AuthenticationPrincipal UserPrincipal principal,
                                 @PathVariable Long id,
                                 Model model,
                                 RedirectAttributes redirectAttributes) {
         try {
-            String email = userDetails.getUsername();
-            User user = userService.getUserByEmail(email);
-            
             // Get order
             OrderDTO order = orderService.getOrderDTOById(id);
             
             // Check if user has access to this order
-            if (!user.getRole().equals("ADMIN") && !order.getUserId().equals(user.getId())) {
+            if (!canAccess(principal, order)) {
                 redirectAttributes.addFlashAttribute("error", "Bạn không có quyền xem đơn hàng này");
                 return "redirect:/orders";
             }
@@ -85,19 +92,16 @@ public class WebOrderController {
     }
 
     @PostMapping("/{id}/cancel")
-    public String cancelOrder(@AuthenticationPrincipal UserDetails userDetails,
+    public String cancelOrder(@AuthenticationPrincipal UserPrincipal principal,
                             @PathVariable Long id,
                             @RequestParam(required = false) String reason,
                             RedirectAttributes redirectAttributes) {
         try {
-            String email = userDetails.getUsername();
-            User user = userService.getUserByEmail(email);
-            
             // Get order
             OrderDTO order = orderService.getOrderDTOById(id);
             
             // Check if user has access to this order
-            if (!user.getRole().equals("ADMIN") && !order.getUserId().equals(user.getId())) {
+            if (!canAccess(principal, order)) {
                 redirectAttributes.addFlashAttribute("error", "Bạn không có quyền hủy đơn hàng này");
                 return "redirect:/orders";
             }
@@ -111,30 +115,36 @@ public class WebOrderController {
     }
 
     @PostMapping("/create")
-    public String createOrder(@AuthenticationPrincipal UserDetails userDetails,
+    public String createOrder(@AuthenticationPrincipal UserPrincipal principal,
                             @ModelAttribute OrderDTO orderDTO,
+                            @RequestParam(required = false) String idempotencyKey,
+                            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyHeader,
                             RedirectAttributes redirectAttributes) {
         try {
-            String email = userDetails.getUsername();
-            User user = userService.getUserByEmail(email);
-            
-            // Create order
-            OrderDTO createdOrder = orderService.createOrder(user.getId(), orderDTO);
+            // Create order, or get the one created by an earlier submit with the same key
+            Long orderId = idempotencyService.createOnce(principal.getId(),
+                    idempotencyHeader != null ? idempotencyHeader : idempotencyKey,
+                    () -> orderService.createOrder(principal.getId(), orderDTO).getId());
+            Order createdOrder = orderService.findById(orderId);
             
             // If payment method is VNPAY, redirect to payment page
             if (Order.PaymentMethod.VNPAY.equals(createdOrder.getPaymentMethod())) {
-                String paymentUrl = paymentService.createPaymentUrl(
-                    orderService.findById(createdOrder.getId())
-                );
+                String paymentUrl = paymentService.createPaymentUrl(createdOrder);
                 return "redirect:" + paymentUrl;
             }
             
             // For other payment methods, redirect to order detail
             redirectAttributes.addFlashAttribute("success", "Đặt hàng thành công");
-            return "redirect:/orders/" + createdOrder.getId();
+            return "redirect:/orders/" + orderId;
         } catch (Exception e) {
             redirectAttributes.addFlashAttribute("error", "Lỗi đặt hàng: " + e.getMessage());
             return "redirect:/cart";
         }
     }
-} 
\ No newline at end of file
+
+    // The session principal keeps the role it had at login, so a demoted or blocked admin
+    // would keep access to other users' orders; the role is re-read only for that case
+    private boolean canAccess(UserPrincipal principal, OrderDTO order) {
+        return order.getUserId().equals(principal.getId()) || userService.isActiveAdmin(principal.getId());
+    }
+}
@@ -1,9 +1,8 @@
 package com.bakeryshop.controller;
 
-import com.bakeryshop.entity.User;
+import com.bakeryshop.security.UserPrincipal;
 import com.bakeryshop.service.UserService;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
@@ -19,23 +18,19 @@ public class WebUserController {
     }
 
     @GetMapping("/profile")
-    public String viewProfile(@AuthenticationPrincipal UserDetails userDetails, Model model) {
-        String email = userDetails.getUsername();
-        User user = userService.getUserByEmail(email);
-        model.addAttribute("user", user);
+    public String viewProfile(@AuthenticationPrincipal UserPrincipal principal, Model model) {
+        model.addAttribute("user", userService.getUserById(principal.getId()));
         return "user/profile";
     }
 
     @PostMapping("/profile/update")
-    public String updateProfile(@AuthenticationPrincipal UserDetails userDetails,
+    public String updateProfile(@AuthenticationPrincipal UserPrincipal principal,
                               @RequestParam String name,
                               @RequestParam String phone,
                               @RequestParam String address,
                               RedirectAttributes redirectAttributes) {
         try {
-            String email = userDetails.getUsername();
-            User user = userService.getUserByEmail(email);
-            userService.updateProfile(user.getId(), name, phone, address);
+            userService.updateProfile(principal.getId(), name, phone, address);
             redirectAttributes.addFlashAttribute("success", "Cập nhật thông tin thành công");
         } catch (Exception e) {
             redirectAttributes.addFlashAttribute("error", e.getMessage());
@@ -44,7 +39,7 @@ public class WebUserController {
     }
 
     @PostMapping("/profile/change-password")
-    public String changePassword(@AuthenticationPrincipal UserDetails userDetails,
+    public String changePassword(@AuthenticationPrincipal UserPrincipal principal,
                                @RequestParam String currentPassword,
                                @RequestParam String newPassword,
                                @RequestParam String confirmPassword,
@@ -53,9 +48,7 @@ public class WebUserController {
             if (!newPassword.equals(confirmPassword)) {
                 throw new RuntimeException("Mật khẩu xác nhận không khớp");
             }
-            String email = userDetails.getUsername();
-            User user = userService.getUserByEmail(email);
-            userService.changePassword(user.getId(), currentPassword, newPassword);
+            userService.changePassword(principal.getId(), currentPassword, newPassword);
             redirectAttributes.addFlashAttribute("success", "Đổi mật khẩu thành công");
         } catch (Exception e) {
             redirectAttributes.addFlashAttribute("error", e.getMessage());
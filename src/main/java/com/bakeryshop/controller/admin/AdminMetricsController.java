@@ -0,0 +1,38 @@
+package com.bakeryshop.controller.admin;
+
+import com.bakeryshop.monitoring.SqlMetricsRegistry;
+import com.bakeryshop.security.BoundedPasswordEncoder;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/metrics")
+@PreAuthorize("hasRole('ADMIN')")
+public class AdminMetricsController {
+    private final SqlMetricsRegistry sqlMetricsRegistry;
+    private final BoundedPasswordEncoder passwordEncoder;
+
+    public AdminMetricsController(SqlMetricsRegistry sqlMetricsRegistry, BoundedPasswordEncoder passwordEncoder) {
+        this.sqlMetricsRegistry = sqlMetricsRegistry;
+        this.passwordEncoder = passwordEncoder;
+    }
+
+    @GetMapping("/sql")
+    public ResponseEntity<Map<String, Map<String, Object>>> getSqlMetrics() {
+        return ResponseEntity.ok(sqlMetricsRegistry.snapshot());
+    }
+
+    @DeleteMapping("/sql")
+    public ResponseEntity<Void> resetSqlMetrics() {
+        sqlMetricsRegistry.reset();
+        return ResponseEntity.ok().build();
+    }
+
+    @GetMapping("/password-hashing")
+    public ResponseEntity<Map<String, Object>> getPasswordHashingMetrics() {
+        return ResponseEntity.ok(passwordEncoder.getMetrics());
+    }
+}
@@ -1,7 +1,9 @@
 package com.bakeryshop.controller.admin;
 
 import com.bakeryshop.admin.service.AdminOrderService;
+import com.bakeryshop.dto.KeysetSlice;
 import com.bakeryshop.dto.OrderDTO;
+import com.bakeryshop.dto.OrderRevenueSummary;
 import com.bakeryshop.entity.Order;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -12,6 +14,8 @@ import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import java.util.List;
+
 @Controller
 @RequestMapping("/admin/orders")
 @PreAuthorize("hasRole('ADMIN')")
@@ -27,30 +31,41 @@ public class AdminOrderController {
                            @RequestParam(defaultValue = "10") int size,
                            @RequestParam(required = false) String status,
                            @RequestParam(required = false) String keyword,
+                           @RequestParam(defaultValue = "false") boolean keyset,
+                           @RequestParam(required = false) String cursor,
                            Model model) {
-        PageRequest pageRequest = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"));
-        Page<OrderDTO> ordersPage = adminOrderService.getAllOrders(keyword, pageRequest);
-
-        model.addAttribute("orders", ordersPage);
-        model.addAttribute("currentPage", page);
-        model.addAttribute("totalPages", ordersPage.getTotalPages());
+        if (keyset) {
+            KeysetSlice<OrderDTO> slice = adminOrderService.getAllOrdersKeyset(keyword, cursor, size);
+            model.addAttribute("orders", slice.getContent());
+            model.addAttribute("slice", slice);
+            model.addAttribute("currentPage", 0);
+            model.addAttribute("totalPages", 0);
+        } else {
+            PageRequest pageRequest = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"));
+            Page<OrderDTO> ordersPage = adminOrderService.getAllOrders(keyword, pageRequest);
+
+            model.addAttribute("orders", ordersPage);
+            model.addAttribute("currentPage", page);
+            model.addAttribute("totalPages", ordersPage.getTotalPages());
+        }
         model.addAttribute("selectedStatus", status);
         model.addAttribute("keyword", keyword);
 
         // Add order statistics
-        model.addAttribute("totalOrders", adminOrderService.getTotalOrders());
-        model.addAttribute("pendingOrders", adminOrderService.getOrdersByStatus(Order.OrderStatus.PENDING));
-        model.addAttribute("shippingOrders", adminOrderService.getOrdersByStatus(Order.OrderStatus.SHIPPING));
-        model.addAttribute("deliveredOrders", adminOrderService.getOrdersByStatus(Order.OrderStatus.DELIVERED));
-        model.addAttribute("cancelledOrders", adminOrderService.getOrdersByStatus(Order.OrderStatus.CANCELLED));
+        OrderRevenueSummary summary = adminOrderService.getRevenueSummary();
+        model.addAttribute("totalOrders", summary.getTotalOrders());
+        model.addAttribute("pendingOrders", summary.getOrderCount(Order.OrderStatus.PENDING));
+        model.addAttribute("shippingOrders", summary.getOrderCount(Order.OrderStatus.SHIPPING));
+        model.addAttribute("deliveredOrders", summary.getOrderCount(Order.OrderStatus.DELIVERED));
+        model.addAttribute("cancelledOrders", summary.getOrderCount(Order.OrderStatus.CANCELLED));
 
         // Add payment statistics
-        model.addAttribute("paidOrders", adminOrderService.getOrdersByPaymentStatus(Order.PaymentStatus.PAID));
+        model.addAttribute("paidOrders", summary.getOrderCount(Order.PaymentStatus.PAID));
 
         // Add revenue statistics
-        model.addAttribute("totalRevenue", adminOrderService.getTotalRevenue());
-        model.addAttribute("deliveredRevenue", adminOrderService.getRevenueByStatus(Order.OrderStatus.DELIVERED));
-        model.addAttribute("paidRevenue", adminOrderService.getRevenueByPaymentStatus(Order.PaymentStatus.PAID));
+        model.addAttribute("totalRevenue", summary.getRevenue(Order.OrderStatus.DELIVERED));
+        model.addAttribute("deliveredRevenue", summary.getRevenue(Order.OrderStatus.DELIVERED));
+        model.addAttribute("paidRevenue", summary.getRevenue(Order.PaymentStatus.PAID));
 
         return "admin/orders";
     }
@@ -104,12 +119,12 @@ public class AdminOrderController {
     }
 
     @PostMapping("/cancel")
-    public String cancelOrder(@RequestParam Long orderId,
+    public String cancelOrder(@RequestParam("orderId") List<Long> orderIds,
                             @RequestParam String reason,
                             RedirectAttributes redirectAttributes) {
         try {
-            adminOrderService.updateOrderStatus(orderId, Order.OrderStatus.CANCELLED, reason);
-            redirectAttributes.addFlashAttribute("success", "Đơn hàng đã được hủy thành công");
+            int cancelled = adminOrderService.cancelOrders(orderIds, reason);
+            redirectAttributes.addFlashAttribute("success", cancelled + " đơn hàng đã được hủy thành công");
         } catch (Exception e) {
             redirectAttributes.addFlashAttribute("error", "Lỗi: " + e.getMessage());
         }
@@ -1,6 +1,7 @@
 package com.bakeryshop.controller.admin;
 
 import com.bakeryshop.admin.service.AdminProductService;
+import com.bakeryshop.dto.KeysetSlice;
 import com.bakeryshop.dto.ProductDTO;
 import com.bakeryshop.service.CategoryService;
 import org.springframework.data.domain.Page;
@@ -33,10 +34,23 @@ public class AdminProductController {
             @RequestParam(required = false) String keyword,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "false") boolean keyset,
+            @RequestParam(required = false) String cursor,
             Model model) {
 
         // Add categories for filter
         model.addAttribute("categories", categoryService.getAllCategories());
+        model.addAttribute("size", size);
+
+        // Keyset mode only applies to the unfiltered list; search results are ranked by relevance
+        if (keyset && (keyword == null || keyword.isEmpty())) {
+            KeysetSlice<ProductDTO> slice = adminProductService.getAllProductsKeyset(cursor, size);
+            model.addAttribute("products", slice.getContent());
+            model.addAttribute("slice", slice);
+            model.addAttribute("currentPage", 0);
+            model.addAttribute("totalPages", 0);
+            return "admin/product/products";
+        }
 
         // Get products with filters
         PageRequest pageRequest = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"));
@@ -46,7 +60,6 @@ public class AdminProductController {
         model.addAttribute("products", productsPage.getContent());
         model.addAttribute("currentPage", page);
         model.addAttribute("totalPages", productsPage.getTotalPages());
-        model.addAttribute("size", size);
 
         return "admin/product/products";
     }
@@ -1,19 +1,21 @@
 package com.bakeryshop.controller.admin;
 
-import com.bakeryshop.admin.service.AdminOrderService;
 import com.bakeryshop.admin.service.AdminProductService;
+import com.bakeryshop.dto.SalesReport;
 import com.bakeryshop.entity.Order;
+import com.bakeryshop.service.SalesReportService;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -21,12 +23,12 @@ import java.util.Map;
 @RequestMapping("/admin/reports")
 @PreAuthorize("hasRole('ADMIN')")
 public class AdminReportController {
-    private final AdminOrderService adminOrderService;
+    private final SalesReportService salesReportService;
     private final AdminProductService adminProductService;
 
-    public AdminReportController(AdminOrderService adminOrderService,
+    public AdminReportController(SalesReportService salesReportService,
                                AdminProductService adminProductService) {
-        this.adminOrderService = adminOrderService;
+        this.salesReportService = salesReportService;
         this.adminProductService = adminProductService;
     }
 
@@ -44,30 +46,34 @@ public class AdminReportController {
             endDate = LocalDate.now();
         }
 
-        // Chuyển đổi LocalDate thành LocalDateTime để bao gồm cả ngày kết thúc
-        LocalDateTime startDateTime = startDate.atStartOfDay();
-        LocalDateTime endDateTime = endDate.atTime(LocalTime.MAX);
+        // Đọc từ bảng tổng hợp theo ngày thay vì quét toàn bộ đơn hàng
+        SalesReport report = salesReportService.getSalesReport(startDate, endDate);
 
         // Thống kê tổng quan
-        model.addAttribute("totalRevenue", adminOrderService.getTotalRevenue());
-        model.addAttribute("totalOrders", adminOrderService.getTotalOrders());
-        model.addAttribute("deliveredOrders", adminOrderService.getOrdersByStatus(Order.OrderStatus.DELIVERED));
-        model.addAttribute("averageOrderValue", adminOrderService.getAverageOrderValue());
+        model.addAttribute("totalRevenue", report.getDeliveredRevenue());
+        model.addAttribute("totalOrders", report.getTotalOrders());
+        model.addAttribute("deliveredOrders", report.getDeliveredOrders());
+        model.addAttribute("averageOrderValue", report.getAverageOrderValue());
 
         // Thống kê theo trạng thái đơn hàng
-        Map<String, Double> revenueByStatus = new LinkedHashMap<>();
-        revenueByStatus.put("Đã giao", adminOrderService.getRevenueByStatus(Order.OrderStatus.DELIVERED));
-        revenueByStatus.put("Đang giao", adminOrderService.getRevenueByStatus(Order.OrderStatus.SHIPPING));
-        revenueByStatus.put("Chờ xử lý", adminOrderService.getRevenueByStatus(Order.OrderStatus.PENDING));
-        revenueByStatus.put("Đã hủy", adminOrderService.getRevenueByStatus(Order.OrderStatus.CANCELLED));
+        Map<String, BigDecimal> revenueByStatus = new LinkedHashMap<>();
+        revenueByStatus.put("Đã giao", report.getRevenueByStatus().getOrDefault(Order.OrderStatus.DELIVERED, BigDecimal.ZERO));
+        revenueByStatus.put("Đang giao", report.getRevenueByStatus().getOrDefault(Order.OrderStatus.SHIPPING, BigDecimal.ZERO));
+        revenueByStatus.put("Đã xác nhận", report.getRevenueByStatus().getOrDefault(Order.OrderStatus.CONFIRMED, BigDecimal.ZERO));
+        revenueByStatus.put("Chờ xử lý", report.getRevenueByStatus().getOrDefault(Order.OrderStatus.PENDING, BigDecimal.ZERO));
+        revenueByStatus.put("Đã hủy", report.getRevenueByStatus().getOrDefault(Order.OrderStatus.CANCELLED, BigDecimal.ZERO));
         model.addAttribute("revenueByStatus", revenueByStatus);
 
-        // Thống kê theo phương thức thanh toán
-        Map<String, Double> revenueByPayment = new LinkedHashMap<>();
-        revenueByPayment.put("Đã thanh toán", adminOrderService.getRevenueByPaymentStatus(Order.PaymentStatus.PAID));
-        revenueByPayment.put("Chưa thanh toán", adminOrderService.getRevenueByPaymentStatus(Order.PaymentStatus.PENDING));
+        // Thống kê theo phương thức thanh toán (không tính đơn đã hủy)
+        Map<String, BigDecimal> revenueByPayment = new LinkedHashMap<>();
+        revenueByPayment.put("Thanh toán khi nhận hàng", report.getRevenueByPaymentMethod().getOrDefault(Order.PaymentMethod.COD, BigDecimal.ZERO));
+        revenueByPayment.put("VNPay", report.getRevenueByPaymentMethod().getOrDefault(Order.PaymentMethod.VNPAY, BigDecimal.ZERO));
         model.addAttribute("revenueByPayment", revenueByPayment);
 
+        // Doanh thu theo ngày và theo danh mục (đơn đã giao)
+        model.addAttribute("dailyRevenue", report.getDailyRevenue());
+        model.addAttribute("revenueByCategory", report.getRevenueByCategory());
+
         // Thêm ngày bắt đầu và kết thúc vào model
         model.addAttribute("startDate", startDate);
         model.addAttribute("endDate", endDate);
@@ -75,6 +81,20 @@ public class AdminReportController {
         return "admin/reports/sales";
     }
 
+    @PostMapping("/sales/rebuild")
+    public String rebuildSalesRollup(
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate endDate,
+            RedirectAttributes redirectAttributes) {
+        try {
+            salesReportService.rebuild(startDate, endDate);
+            redirectAttributes.addFlashAttribute("success", "Dữ liệu báo cáo đã được tổng hợp lại");
+        } catch (Exception e) {
+            redirectAttributes.addFlashAttribute("error", "Lỗi: " + e.getMessage());
+        }
+        return "redirect:/admin/reports/sales";
+    }
+
     @GetMapping("/inventory")
     public String inventoryReport(Model model) {
         model.addAttribute("totalProducts", adminProductService.getTotalProducts());
@@ -0,0 +1,17 @@
+package com.bakeryshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CategorySalesRow {
+    private Long categoryId;
+    private String categoryName;
+    private Long itemQuantity;
+    private BigDecimal revenue;
+}
@@ -0,0 +1,17 @@
+package com.bakeryshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyRevenueRow {
+    private LocalDate day;
+    private Long orderCount;
+    private BigDecimal revenue;
+}
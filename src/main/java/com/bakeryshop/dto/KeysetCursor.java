@@ -0,0 +1,56 @@
+package com.bakeryshop.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Position in a listing ordered by (createdAt DESC, id DESC). A forward cursor asks for the
+ * rows after that position, a backward cursor for the rows before it. Clients only ever see
+ * the opaque {@link #encode()} form.
+ */
+public class KeysetCursor {
+    private final LocalDateTime createdAt;
+    private final Long id;
+    private final boolean backward;
+
+    public KeysetCursor(LocalDateTime createdAt, Long id, boolean backward) {
+        this.createdAt = createdAt;
+        this.id = id;
+        this.backward = backward;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public boolean isBackward() {
+        return backward;
+    }
+
+    public String encode() {
+        String raw = (backward ? "b" : "f") + "|" + createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Returns null for a missing or malformed token, which means "start from the first page"
+    public static KeysetCursor decode(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            if (parts.length != 3 || !("f".equals(parts[0]) || "b".equals(parts[0]))) {
+                return null;
+            }
+            return new KeysetCursor(LocalDateTime.parse(parts[1]), Long.parseLong(parts[2]), "b".equals(parts[0]));
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+}
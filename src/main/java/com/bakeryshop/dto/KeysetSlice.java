@@ -0,0 +1,73 @@
+package com.bakeryshop.dto;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * One page of a keyset-paginated listing. Unlike a Page there is no total count; the
+ * previous/next tokens are null when there is nothing in that direction.
+ */
+public class KeysetSlice<T> {
+    private final List<T> content;
+    private final String previousCursor;
+    private final String nextCursor;
+
+    public KeysetSlice(List<T> content, String previousCursor, String nextCursor) {
+        this.content = content;
+        this.previousCursor = previousCursor;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Builds a slice from at most size + 1 rows fetched for the given cursor; the extra row
+     * only tells whether there is more in the fetch direction.
+     */
+    public static <E> KeysetSlice<E> of(List<E> rows, KeysetCursor cursor, int size,
+                                        Function<E, LocalDateTime> createdAt, Function<E, Long> id) {
+        boolean backward = cursor != null && cursor.isBackward();
+        boolean hasMore = rows.size() > size;
+        List<E> content = new ArrayList<>(hasMore ? rows.subList(0, size) : rows);
+        if (backward) {
+            Collections.reverse(content);
+        }
+        if (content.isEmpty()) {
+            return new KeysetSlice<>(content, null, null);
+        }
+
+        boolean hasPrevious = backward ? hasMore : cursor != null;
+        boolean hasNext = backward || hasMore;
+        E first = content.get(0);
+        E last = content.get(content.size() - 1);
+        return new KeysetSlice<>(content,
+                hasPrevious ? new KeysetCursor(createdAt.apply(first), id.apply(first), true).encode() : null,
+                hasNext ? new KeysetCursor(createdAt.apply(last), id.apply(last), false).encode() : null);
+    }
+
+    public <R> KeysetSlice<R> map(Function<T, R> converter) {
+        return new KeysetSlice<>(content.stream().map(converter).collect(Collectors.toList()), previousCursor, nextCursor);
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public String getPreviousCursor() {
+        return previousCursor;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean isHasPrevious() {
+        return previousCursor != null;
+    }
+
+    public boolean isHasNext() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,96 @@
+package com.bakeryshop.dto;
+
+import com.bakeryshop.entity.Order;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Order counts and revenue per order status / payment status, folded from a single
+ * GROUP BY over the orders table. All amounts are exact.
+ */
+public class OrderRevenueSummary {
+    private final Map<Order.OrderStatus, Map<Order.PaymentStatus, OrderStatsRow>> cells =
+            new EnumMap<>(Order.OrderStatus.class);
+    private final Map<Order.OrderStatus, OrderStatsRow> byStatus = new EnumMap<>(Order.OrderStatus.class);
+    private final Map<Order.PaymentStatus, OrderStatsRow> byPaymentStatus = new EnumMap<>(Order.PaymentStatus.class);
+    private long totalOrders;
+    private BigDecimal totalRevenue = BigDecimal.ZERO;
+
+    public OrderRevenueSummary(List<OrderStatsRow> rows) {
+        for (OrderStatsRow row : rows) {
+            long count = row.getOrderCount() != null ? row.getOrderCount() : 0L;
+            BigDecimal revenue = row.getRevenue() != null ? row.getRevenue() : BigDecimal.ZERO;
+
+            if (row.getStatus() != null) {
+                add(byStatus.computeIfAbsent(row.getStatus(), s -> empty()), count, revenue);
+                if (row.getPaymentStatus() != null) {
+                    add(cells.computeIfAbsent(row.getStatus(), s -> new EnumMap<>(Order.PaymentStatus.class))
+                            .computeIfAbsent(row.getPaymentStatus(), p -> empty()), count, revenue);
+                }
+            }
+            if (row.getPaymentStatus() != null) {
+                add(byPaymentStatus.computeIfAbsent(row.getPaymentStatus(), p -> empty()), count, revenue);
+            }
+            totalOrders += count;
+            totalRevenue = totalRevenue.add(revenue);
+        }
+    }
+
+    public long getTotalOrders() {
+        return totalOrders;
+    }
+
+    public BigDecimal getTotalRevenue() {
+        return totalRevenue;
+    }
+
+    public long getOrderCount(Order.OrderStatus status) {
+        return count(byStatus.get(status));
+    }
+
+    public long getOrderCount(Order.PaymentStatus paymentStatus) {
+        return count(byPaymentStatus.get(paymentStatus));
+    }
+
+    public BigDecimal getRevenue(Order.OrderStatus status) {
+        return revenue(byStatus.get(status));
+    }
+
+    public BigDecimal getRevenue(Order.PaymentStatus paymentStatus) {
+        return revenue(byPaymentStatus.get(paymentStatus));
+    }
+
+    public BigDecimal getRevenue(Order.OrderStatus status, Order.PaymentStatus paymentStatus) {
+        Map<Order.PaymentStatus, OrderStatsRow> row = cells.get(status);
+        return revenue(row != null ? row.get(paymentStatus) : null);
+    }
+
+    public BigDecimal getAverageOrderValue(Order.OrderStatus status) {
+        long count = getOrderCount(status);
+        if (count == 0) {
+            return BigDecimal.ZERO;
+        }
+        return getRevenue(status).divide(BigDecimal.valueOf(count), 2, RoundingMode.HALF_UP);
+    }
+
+    private static OrderStatsRow empty() {
+        return new OrderStatsRow(null, null, 0L, BigDecimal.ZERO);
+    }
+
+    private static void add(OrderStatsRow target, long count, BigDecimal revenue) {
+        target.setOrderCount(target.getOrderCount() + count);
+        target.setRevenue(target.getRevenue().add(revenue));
+    }
+
+    private static long count(OrderStatsRow row) {
+        return row != null ? row.getOrderCount() : 0L;
+    }
+
+    private static BigDecimal revenue(OrderStatsRow row) {
+        return row != null ? row.getRevenue() : BigDecimal.ZERO;
+    }
+}
@@ -0,0 +1,16 @@
+package com.bakeryshop.dto;
+
+import com.bakeryshop.entity.Order;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderStateRow {
+    private Order.OrderStatus status;
+    private Order.PaymentStatus paymentStatus;
+    private Order.PaymentMethod paymentMethod;
+    private Long version;
+}
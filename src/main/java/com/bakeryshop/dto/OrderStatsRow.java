@@ -0,0 +1,18 @@
+package com.bakeryshop.dto;
+
+import com.bakeryshop.entity.Order;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderStatsRow {
+    private Order.OrderStatus status;
+    private Order.PaymentStatus paymentStatus;
+    private Long orderCount;
+    private BigDecimal revenue;
+}
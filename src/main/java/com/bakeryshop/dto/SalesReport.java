@@ -0,0 +1,26 @@
+package com.bakeryshop.dto;
+
+import com.bakeryshop.entity.Order;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+public class SalesReport {
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private long totalOrders;
+    private long deliveredOrders;
+    private BigDecimal deliveredRevenue = BigDecimal.ZERO;
+    private BigDecimal averageOrderValue = BigDecimal.ZERO;
+    private Map<Order.OrderStatus, Long> ordersByStatus = new EnumMap<>(Order.OrderStatus.class);
+    private Map<Order.OrderStatus, BigDecimal> revenueByStatus = new EnumMap<>(Order.OrderStatus.class);
+    private Map<Order.PaymentMethod, BigDecimal> revenueByPaymentMethod = new EnumMap<>(Order.PaymentMethod.class);
+    private List<DailyRevenueRow> dailyRevenue = new ArrayList<>();
+    private List<CategorySalesRow> revenueByCategory = new ArrayList<>();
+}
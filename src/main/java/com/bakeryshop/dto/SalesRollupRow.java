@@ -0,0 +1,19 @@
+package com.bakeryshop.dto;
+
+import com.bakeryshop.entity.Order;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SalesRollupRow {
+    private Order.OrderStatus status;
+    private Order.PaymentMethod paymentMethod;
+    private Long orderCount;
+    private Long itemQuantity;
+    private BigDecimal revenue;
+}
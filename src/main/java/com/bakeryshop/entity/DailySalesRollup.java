@@ -0,0 +1,34 @@
+package com.bakeryshop.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.math.BigDecimal;
+
+/**
+ * Pre-aggregated sales per order day, status, payment method and category.
+ * Rows with {@link #ORDER_TOTAL} as category hold whole-order figures; the other rows
+ * hold the order lines of one category.
+ */
+@Entity
+@Table(name = "daily_sales_rollup")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailySalesRollup {
+    public static final long ORDER_TOTAL = 0L;
+
+    @EmbeddedId
+    private DailySalesRollupId id;
+
+    @Column(name = "order_count", nullable = false)
+    private Integer orderCount;
+
+    @Column(name = "item_quantity", nullable = false)
+    private Integer itemQuantity;
+
+    @Column(nullable = false)
+    private BigDecimal revenue;
+}
@@ -0,0 +1,39 @@
+package com.bakeryshop.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Idempotency-Key of an order-creating request. The row is inserted in the same transaction
+ * as the order, so a key is either bound to exactly one order or not stored at all.
+ */
+@Entity
+@Table(name = "idempotency_keys",
+       uniqueConstraints = @UniqueConstraint(name = "UQ_idempotency_keys_user_key",
+                                             columnNames = {"user_id", "idem_key"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyKey {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "idem_key", nullable = false, length = 100)
+    private String key;
+
+    @Column(name = "order_id")
+    private Long orderId;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+}
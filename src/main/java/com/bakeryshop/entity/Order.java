@@ -14,12 +14,17 @@ import java.util.List;
 
 @Entity
 @Table(name = "orders")
+@NamedEntityGraph(name = Order.WITH_USER, attributeNodes = @NamedAttributeNode("user"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Order {
+    // Listing fetch plan; items, products and categories are batch-loaded (hibernate.default_batch_fetch_size)
+    public static final String WITH_USER = "Order.withUser";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "orders_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -50,6 +55,13 @@ public class Order {
     @Column(name = "transaction_no")
     private String transactionNo;
 
+    @Version
+    private Long version;
+
+    // Set only by OrderRepository.releaseStock, so entity saves never overwrite it
+    @Column(name = "stock_released", insertable = false, updatable = false)
+    private boolean stockReleased;
+
     @Column(name = "shipping_address", nullable = false)
     private String shippingAddress;
 
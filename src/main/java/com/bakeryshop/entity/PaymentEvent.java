@@ -0,0 +1,69 @@
+package com.bakeryshop.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "payment_events",
+       uniqueConstraints = @UniqueConstraint(name = "UQ_payment_events_txn",
+                                             columnNames = {"txn_ref", "transaction_no"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "txn_ref", nullable = false, length = 100)
+    private String txnRef;
+
+    @Column(name = "transaction_no", nullable = false, length = 100)
+    private String transactionNo;
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    // vnp_Amount as sent by VNPay (VND x 100)
+    @Column(nullable = false)
+    private long amount;
+
+    @Column(name = "response_code", length = 10)
+    private String responseCode;
+
+    @Column(name = "transaction_status", length = 10)
+    private String transactionStatus;
+
+    @Column(name = "bank_code", length = 50)
+    private String bankCode;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Status status = Status.RECEIVED;
+
+    @Column(nullable = false)
+    private int attempts = 0;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @CreationTimestamp
+    @Column(name = "received_at", updatable = false)
+    private LocalDateTime receivedAt;
+
+    @Column(name = "applied_at")
+    private LocalDateTime appliedAt;
+
+    public enum Status {
+        RECEIVED, APPLIED, DEAD
+    }
+
+    public boolean isSuccessful() {
+        return "00".equals(responseCode) && "00".equals(transactionStatus);
+    }
+}
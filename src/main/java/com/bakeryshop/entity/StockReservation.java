@@ -0,0 +1,39 @@
+package com.bakeryshop.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Stock movement of a hot product that has not yet been applied to {@code products.stock}.
+ * Positive quantities are reservations, negative ones are releases.
+ */
+@Entity
+@Table(name = "stock_reservation_journal")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockReservation {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(nullable = false)
+    private int quantity;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    public StockReservation(Long productId, int quantity) {
+        this.productId = productId;
+        this.quantity = quantity;
+    }
+}
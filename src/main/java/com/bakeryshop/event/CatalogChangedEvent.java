@@ -0,0 +1,28 @@
+package com.bakeryshop.event;
+
+/**
+ * Published by product/category writes. Listeners react after the transaction commits.
+ * A null productId means the change may affect any product (e.g. a category rename).
+ * stockDelta is set only when the write changed the product's stock, by that amount.
+ */
+public class CatalogChangedEvent {
+    private final Long productId;
+    private final Integer stockDelta;
+
+    public CatalogChangedEvent(Long productId) {
+        this(productId, null);
+    }
+
+    public CatalogChangedEvent(Long productId, Integer stockDelta) {
+        this.productId = productId;
+        this.stockDelta = stockDelta;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public Integer getStockDelta() {
+        return stockDelta;
+    }
+}
@@ -0,0 +1,32 @@
+package com.bakeryshop.event;
+
+import com.bakeryshop.entity.Order;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published when an order is created. Listeners react after the transaction commits.
+ */
+public class OrderPlacedEvent {
+    private final Long orderId;
+    private final Order.PaymentMethod paymentMethod;
+    private final LocalDateTime createdAt;
+
+    public OrderPlacedEvent(Long orderId, Order.PaymentMethod paymentMethod, LocalDateTime createdAt) {
+        this.orderId = orderId;
+        this.paymentMethod = paymentMethod;
+        this.createdAt = createdAt;
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public Order.PaymentMethod getPaymentMethod() {
+        return paymentMethod;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -0,0 +1,13 @@
+package com.bakeryshop.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// Password hashing capacity is exhausted; the caller should retry later
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class PasswordHashingRejectedException extends AuthenticationServiceException {
+    public PasswordHashingRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.bakeryshop.exception;
+
+public class SqlBudgetExceededException extends RuntimeException {
+    public SqlBudgetExceededException(String message) {
+        super(message);
+    }
+}
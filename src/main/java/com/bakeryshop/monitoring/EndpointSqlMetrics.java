@@ -0,0 +1,83 @@
+package com.bakeryshop.monitoring;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free per-endpoint aggregates with fixed-bucket histograms for statement count
+ * and JDBC time. Bucket bounds are inclusive upper limits; the last bucket is open.
+ */
+public class EndpointSqlMetrics {
+    static final long[] STATEMENT_BUCKETS = {0, 1, 2, 5, 10, 20, 50, 100};
+    static final long[] JDBC_MILLIS_BUCKETS = {1, 5, 10, 25, 50, 100, 250, 500, 1000};
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder statements = new LongAdder();
+    private final LongAdder jdbcNanos = new LongAdder();
+    private final LongAdder nPlusOneRequests = new LongAdder();
+    private final LongAdder overBudgetRequests = new LongAdder();
+    private final AtomicLong maxStatements = new AtomicLong();
+    private final LongAdder[] statementHistogram = newHistogram(STATEMENT_BUCKETS.length + 1);
+    private final LongAdder[] jdbcHistogram = newHistogram(JDBC_MILLIS_BUCKETS.length + 1);
+    private final AtomicReference<String> lastRepeatedShape = new AtomicReference<>();
+
+    void record(SqlRequestStats stats, String repeatedShape, boolean overBudget) {
+        requests.increment();
+        statements.add(stats.getStatements());
+        jdbcNanos.add(stats.getJdbcNanos());
+        maxStatements.accumulateAndGet(stats.getStatements(), Math::max);
+        statementHistogram[bucket(stats.getStatements(), STATEMENT_BUCKETS)].increment();
+        jdbcHistogram[bucket(stats.getJdbcNanos() / 1_000_000, JDBC_MILLIS_BUCKETS)].increment();
+        if (repeatedShape != null) {
+            nPlusOneRequests.increment();
+            lastRepeatedShape.set(repeatedShape);
+        }
+        if (overBudget) {
+            overBudgetRequests.increment();
+        }
+    }
+
+    Map<String, Object> toView() {
+        long count = requests.sum();
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("requests", count);
+        view.put("avgStatements", count == 0 ? 0 : (double) statements.sum() / count);
+        view.put("maxStatements", maxStatements.get());
+        view.put("avgJdbcMillis", count == 0 ? 0 : jdbcNanos.sum() / 1_000_000.0 / count);
+        view.put("nPlusOneRequests", nPlusOneRequests.sum());
+        view.put("overBudgetRequests", overBudgetRequests.sum());
+        view.put("statementHistogram", histogramView(statementHistogram, STATEMENT_BUCKETS));
+        view.put("jdbcMillisHistogram", histogramView(jdbcHistogram, JDBC_MILLIS_BUCKETS));
+        view.put("lastRepeatedShape", lastRepeatedShape.get());
+        return view;
+    }
+
+    private static int bucket(long value, long[] bounds) {
+        for (int i = 0; i < bounds.length; i++) {
+            if (value <= bounds[i]) {
+                return i;
+            }
+        }
+        return bounds.length;
+    }
+
+    private static Map<String, Long> histogramView(LongAdder[] histogram, long[] bounds) {
+        Map<String, Long> view = new LinkedHashMap<>();
+        for (int i = 0; i < bounds.length; i++) {
+            view.put("le_" + bounds[i], histogram[i].sum());
+        }
+        view.put("gt_" + bounds[bounds.length - 1], histogram[bounds.length].sum());
+        return view;
+    }
+
+    private static LongAdder[] newHistogram(int size) {
+        LongAdder[] histogram = new LongAdder[size];
+        for (int i = 0; i < size; i++) {
+            histogram[i] = new LongAdder();
+        }
+        return histogram;
+    }
+}
@@ -0,0 +1,87 @@
+package com.bakeryshop.monitoring;
+
+import com.bakeryshop.config.SqlBudgetConfig;
+import com.bakeryshop.exception.SqlBudgetExceededException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Opens a {@link SqlRequestStats} scope around each request (security filters included),
+ * then records per-endpoint metrics and checks the configured statement and JDBC time budgets.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class SqlBudgetFilter extends OncePerRequestFilter {
+    private static final Logger logger = LoggerFactory.getLogger(SqlBudgetFilter.class);
+
+    private final SqlBudgetConfig config;
+    private final SqlMetricsRegistry registry;
+
+    public SqlBudgetFilter(SqlBudgetConfig config, SqlMetricsRegistry registry) {
+        this.config = config;
+        this.registry = registry;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !config.isEnabled();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        SqlRequestStats stats = SqlRequestStats.begin();
+        String violation;
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            SqlRequestStats.end();
+            violation = complete(request, stats);
+        }
+        if (violation != null && config.isFailOnExceed()) {
+            throw new SqlBudgetExceededException(violation);
+        }
+    }
+
+    private String complete(HttpServletRequest request, SqlRequestStats stats) {
+        if (stats.getEndpoint() == null && stats.getStatements() == 0) {
+            return null; // static resources and other unmapped requests without SQL
+        }
+        String endpoint = stats.getEndpoint() != null
+                ? stats.getEndpoint()
+                : request.getMethod() + " " + request.getRequestURI();
+
+        String repeatedShape = null;
+        Map.Entry<String, Integer> top = stats.mostRepeatedShape();
+        if (top != null && config.getRepeatThreshold() > 0 && top.getValue() >= config.getRepeatThreshold()) {
+            repeatedShape = top.getKey();
+            logger.warn("Possible N+1 in {}: statement issued {} times: {}", endpoint, top.getValue(), repeatedShape);
+        }
+
+        String violation = null;
+        int maxStatements = config.maxStatementsFor(endpoint);
+        long jdbcMillis = stats.getJdbcNanos() / 1_000_000;
+        if (maxStatements > 0 && stats.getStatements() > maxStatements) {
+            violation = endpoint + " issued " + stats.getStatements() + " statements (budget " + maxStatements + ")";
+        } else if (config.getMaxJdbcMillis() > 0 && jdbcMillis > config.getMaxJdbcMillis()) {
+            violation = endpoint + " spent " + jdbcMillis + " ms in JDBC (budget " + config.getMaxJdbcMillis() + " ms)";
+        }
+        if (violation != null) {
+            logger.warn("SQL budget exceeded: {}, {} distinct shapes", violation, stats.getDistinctShapes());
+        }
+
+        registry.record(endpoint, stats, repeatedShape, violation != null);
+        return violation;
+    }
+}
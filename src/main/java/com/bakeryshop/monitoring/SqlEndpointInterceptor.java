@@ -0,0 +1,22 @@
+package com.bakeryshop.monitoring;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/** Labels the current request's SQL stats with the handling "Controller.method". */
+@Component
+public class SqlEndpointInterceptor implements HandlerInterceptor {
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        SqlRequestStats stats = SqlRequestStats.current();
+        if (stats != null && handler instanceof HandlerMethod) {
+            HandlerMethod method = (HandlerMethod) handler;
+            stats.setEndpoint(method.getBeanType().getSimpleName() + "." + method.getMethod().getName());
+        }
+        return true;
+    }
+}
@@ -0,0 +1,27 @@
+package com.bakeryshop.monitoring;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+public class SqlMetricsRegistry {
+    private final Map<String, EndpointSqlMetrics> endpoints = new ConcurrentHashMap<>();
+
+    public void record(String endpoint, SqlRequestStats stats, String repeatedShape, boolean overBudget) {
+        endpoints.computeIfAbsent(endpoint, key -> new EndpointSqlMetrics())
+                .record(stats, repeatedShape, overBudget);
+    }
+
+    public Map<String, Map<String, Object>> snapshot() {
+        Map<String, Map<String, Object>> view = new TreeMap<>();
+        endpoints.forEach((endpoint, metrics) -> view.put(endpoint, metrics.toView()));
+        return view;
+    }
+
+    public void reset() {
+        endpoints.clear();
+    }
+}
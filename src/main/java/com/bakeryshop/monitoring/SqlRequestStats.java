@@ -0,0 +1,71 @@
+package com.bakeryshop.monitoring;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * SQL activity of the request bound to the current thread. Populated by
+ * {@link SqlShapeInspector} and {@link SqlTimingListener}, read by {@link SqlBudgetFilter}.
+ */
+public class SqlRequestStats {
+    private static final ThreadLocal<SqlRequestStats> CURRENT = new ThreadLocal<>();
+
+    private String endpoint;
+    private int statements;
+    private long jdbcNanos;
+    private final Map<String, Integer> shapes = new HashMap<>();
+
+    static SqlRequestStats begin() {
+        SqlRequestStats stats = new SqlRequestStats();
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    static SqlRequestStats current() {
+        return CURRENT.get();
+    }
+
+    static void end() {
+        CURRENT.remove();
+    }
+
+    void recordStatement(String shape) {
+        statements++;
+        shapes.merge(shape, 1, Integer::sum);
+    }
+
+    void recordJdbcTime(long nanos) {
+        jdbcNanos += nanos;
+    }
+
+    /** Most frequent statement shape, or null when nothing was executed. */
+    Map.Entry<String, Integer> mostRepeatedShape() {
+        Map.Entry<String, Integer> top = null;
+        for (Map.Entry<String, Integer> entry : shapes.entrySet()) {
+            if (top == null || entry.getValue() > top.getValue()) {
+                top = entry;
+            }
+        }
+        return top;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    void setEndpoint(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    public long getJdbcNanos() {
+        return jdbcNanos;
+    }
+
+    public int getDistinctShapes() {
+        return shapes.size();
+    }
+}
@@ -0,0 +1,75 @@
+package com.bakeryshop.monitoring;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.regex.Pattern;
+
+/**
+ * Counts every statement Hibernate prepares for the current request and groups them by
+ * shape (literals replaced with ?, IN lists collapsed). The SQL itself is passed through
+ * unchanged. Registered through hibernate.session_factory.statement_inspector.
+ */
+public class SqlShapeInspector implements StatementInspector {
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\?(?:\\s*,\\s*\\?)+\\)");
+
+    @Override
+    public String inspect(String sql) {
+        SqlRequestStats stats = SqlRequestStats.current();
+        if (stats != null) {
+            stats.recordStatement(shapeOf(sql));
+        }
+        return sql;
+    }
+
+    static String shapeOf(String sql) {
+        int length = sql.length();
+        StringBuilder shape = new StringBuilder(length);
+        boolean pendingSpace = false;
+        for (int i = 0; i < length; i++) {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = shape.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                shape.append(' ');
+                pendingSpace = false;
+            }
+            if (c == '\'') {
+                i = skipStringLiteral(sql, i);
+                shape.append('?');
+            } else if (Character.isDigit(c) && !followsIdentifier(shape)) {
+                while (i + 1 < length && (Character.isDigit(sql.charAt(i + 1)) || sql.charAt(i + 1) == '.')) {
+                    i++;
+                }
+                shape.append('?');
+            } else {
+                shape.append(c);
+            }
+        }
+        return IN_LIST.matcher(shape).replaceAll("(?)");
+    }
+
+    private static int skipStringLiteral(String sql, int start) {
+        int i = start + 1;
+        while (i < sql.length()) {
+            if (sql.charAt(i) == '\'') {
+                if (i + 1 < sql.length() && sql.charAt(i + 1) == '\'') {
+                    i += 2;
+                    continue;
+                }
+                return i;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean followsIdentifier(StringBuilder shape) {
+        if (shape.length() == 0) {
+            return false;
+        }
+        char previous = shape.charAt(shape.length() - 1);
+        return Character.isLetterOrDigit(previous) || previous == '_' || previous == '@';
+    }
+}
@@ -0,0 +1,40 @@
+package com.bakeryshop.monitoring;
+
+import org.hibernate.BaseSessionEventListener;
+
+/**
+ * Adds JDBC execution time to the current request's {@link SqlRequestStats}.
+ * Hibernate creates one instance per session (hibernate.session.events.auto).
+ */
+public class SqlTimingListener extends BaseSessionEventListener {
+    private long statementStart = -1;
+    private long batchStart = -1;
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        statementStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        statementStart = record(statementStart);
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        batchStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        batchStart = record(batchStart);
+    }
+
+    private static long record(long start) {
+        SqlRequestStats stats = SqlRequestStats.current();
+        if (start >= 0 && stats != null) {
+            stats.recordJdbcTime(System.nanoTime() - start);
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,12 @@
+package com.bakeryshop.repository;
+
+import com.bakeryshop.dto.KeysetCursor;
+import com.bakeryshop.entity.Blog;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+public interface BlogRepositoryCustom {
+    // Up to limit blogs after/before the cursor in (createdAt DESC, id DESC) order
+    List<Blog> findKeyset(Specification<Blog> filter, KeysetCursor cursor, int limit);
+}
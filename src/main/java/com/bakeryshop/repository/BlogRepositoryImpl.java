@@ -0,0 +1,19 @@
+package com.bakeryshop.repository;
+
+import com.bakeryshop.dto.KeysetCursor;
+import com.bakeryshop.entity.Blog;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+
+public class BlogRepositoryImpl implements BlogRepositoryCustom {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Blog> findKeyset(Specification<Blog> filter, KeysetCursor cursor, int limit) {
+        return KeysetQueries.seek(entityManager, Blog.class, filter, cursor, limit);
+    }
+}
@@ -1,12 +1,25 @@
 package com.bakeryshop.repository;
 
 import com.bakeryshop.entity.Cart;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface CartRepository extends JpaRepository<Cart, Long> {
     Optional<Cart> findByUserId(Long userId);
-} 
\ No newline at end of file
+
+    @EntityGraph(attributePaths = {"items", "items.product"})
+    @Query("SELECT c FROM Cart c WHERE c.user.id = :userId")
+    Optional<Cart> findWithItemsByUserId(@Param("userId") Long userId);
+
+    @EntityGraph(attributePaths = "items")
+    @Query("SELECT DISTINCT c FROM Cart c WHERE c.user.id IN :userIds")
+    List<Cart> findWithItemsByUserIdIn(@Param("userIds") Collection<Long> userIds);
+}
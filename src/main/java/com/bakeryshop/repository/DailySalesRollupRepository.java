@@ -0,0 +1,39 @@
+package com.bakeryshop.repository;
+
+import com.bakeryshop.dto.CategorySalesRow;
+import com.bakeryshop.dto.DailyRevenueRow;
+import com.bakeryshop.dto.SalesRollupRow;
+import com.bakeryshop.entity.DailySalesRollup;
+import com.bakeryshop.entity.DailySalesRollupId;
+import com.bakeryshop.entity.Order;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DailySalesRollupRepository extends JpaRepository<DailySalesRollup, DailySalesRollupId>,
+        DailySalesRollupRepositoryCustom {
+    @Query("SELECT new com.bakeryshop.dto.SalesRollupRow(r.id.orderStatus, r.id.paymentMethod, " +
+           "SUM(r.orderCount), SUM(r.itemQuantity), SUM(r.revenue)) " +
+           "FROM DailySalesRollup r WHERE r.id.categoryId = 0 AND r.id.day BETWEEN :from AND :to " +
+           "GROUP BY r.id.orderStatus, r.id.paymentMethod")
+    List<SalesRollupRow> summarize(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query("SELECT new com.bakeryshop.dto.DailyRevenueRow(r.id.day, SUM(r.orderCount), SUM(r.revenue)) " +
+           "FROM DailySalesRollup r WHERE r.id.categoryId = 0 AND r.id.orderStatus = :status " +
+           "AND r.id.day BETWEEN :from AND :to GROUP BY r.id.day ORDER BY r.id.day")
+    List<DailyRevenueRow> dailyRevenue(@Param("status") Order.OrderStatus status,
+                                       @Param("from") LocalDate from,
+                                       @Param("to") LocalDate to);
+
+    @Query("SELECT new com.bakeryshop.dto.CategorySalesRow(c.id, c.name, SUM(r.itemQuantity), SUM(r.revenue)) " +
+           "FROM DailySalesRollup r, Category c WHERE c.id = r.id.categoryId AND r.id.orderStatus = :status " +
+           "AND r.id.day BETWEEN :from AND :to GROUP BY c.id, c.name ORDER BY SUM(r.revenue) DESC")
+    List<CategorySalesRow> revenueByCategory(@Param("status") Order.OrderStatus status,
+                                             @Param("from") LocalDate from,
+                                             @Param("to") LocalDate to);
+}
@@ -0,0 +1,21 @@
+package com.bakeryshop.repository;
+
+import com.bakeryshop.entity.Order;
+
+import java.time.LocalDate;
+
+public interface DailySalesRollupRepositoryCustom {
+    // Journals adding (sign = 1) or removing (sign = -1) one order under the given status and payment method
+    void applyOrder(Long orderId, Order.OrderStatus status, Order.PaymentMethod paymentMethod, int sign);
+
+    /**
+     * Removes up to {@code limit} committed journal rows and adds their sums to the rollup
+     * rows, all in one transaction.
+     *
+     * @return the number of journal rows folded
+     */
+    int foldJournal(int limit);
+
+    // Recomputes every rollup row with from <= day < to from orders / order_items
+    void rebuild(LocalDate from, LocalDate to);
+}
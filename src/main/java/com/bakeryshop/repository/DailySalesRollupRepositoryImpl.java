@@ -0,0 +1,116 @@
+package com.bakeryshop.repository;
+
+import com.bakeryshop.entity.DailySalesRollup;
+import com.bakeryshop.entity.Order;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.LocalDate;
+
+public class DailySalesRollupRepositoryImpl implements DailySalesRollupRepositoryCustom {
+    // Append-only, so concurrent checkouts never wait on each other for the same rollup row
+    private static final String APPLY_ORDER_SQL =
+            "INSERT INTO sales_rollup_journal (day, order_status, payment_method, category_id, order_count, item_quantity, revenue) " +
+            "SELECT CAST(o.created_at AS date), :status, :paymentMethod, :orderTotal, :sign, " +
+            "       :sign * ISNULL((SELECT SUM(oi.quantity) FROM order_items oi WHERE oi.order_id = o.id), 0), " +
+            "       :sign * o.total_amount " +
+            "FROM orders o WHERE o.id = :orderId AND o.created_at IS NOT NULL " +
+            "UNION ALL " +
+            "SELECT CAST(o.created_at AS date), :status, :paymentMethod, oi.category_id, :sign, " +
+            "       :sign * SUM(oi.quantity), :sign * SUM(oi.sub_total) " +
+            "FROM orders o JOIN order_items oi ON oi.order_id = o.id " +
+            "WHERE o.id = :orderId AND o.created_at IS NOT NULL " +
+            "GROUP BY CAST(o.created_at AS date), oi.category_id";
+
+    // Folds and rebuilds take turns; checkouts only touch the journal and are not affected
+    private static final String LOCK_ROLLUP_SQL =
+            "EXEC sp_getapplock @Resource = 'daily_sales_rollup', @LockMode = 'Exclusive', @LockOwner = 'Transaction'";
+
+    // READPAST skips rows of order transactions that have not committed yet instead of waiting for them
+    private static final String FOLD_SQL =
+            "SET NOCOUNT ON; " +
+            LOCK_ROLLUP_SQL + "; " +
+            "DECLARE @folded TABLE (day DATE NOT NULL, order_status VARCHAR(50) NOT NULL, payment_method VARCHAR(50) NOT NULL, " +
+            "  category_id BIGINT NOT NULL, order_count INT NOT NULL, item_quantity INT NOT NULL, revenue DECIMAL(19, 2) NOT NULL); " +
+            "DELETE TOP (:limit) FROM sales_rollup_journal WITH (READPAST) " +
+            "OUTPUT deleted.day, deleted.order_status, deleted.payment_method, deleted.category_id, " +
+            "       deleted.order_count, deleted.item_quantity, deleted.revenue INTO @folded; " +
+            "MERGE daily_sales_rollup AS t " +
+            "USING (SELECT day, order_status, payment_method, category_id, SUM(order_count) AS order_count, " +
+            "              SUM(item_quantity) AS item_quantity, SUM(revenue) AS revenue " +
+            "       FROM @folded GROUP BY day, order_status, payment_method, category_id) AS s " +
+            "ON t.day = s.day AND t.order_status = s.order_status AND t.payment_method = s.payment_method " +
+            "   AND t.category_id = s.category_id " +
+            "WHEN MATCHED THEN UPDATE SET t.order_count = t.order_count + s.order_count, " +
+            "  t.item_quantity = t.item_quantity + s.item_quantity, t.revenue = t.revenue + s.revenue " +
+            "WHEN NOT MATCHED THEN INSERT (day, order_status, payment_method, category_id, order_count, item_quantity, revenue) " +
+            "  VALUES (s.day, s.order_status, s.payment_method, s.category_id, s.order_count, s.item_quantity, s.revenue); " +
+            "SELECT COUNT(*) FROM @folded";
+
+    // Journal rows of the window are already reflected in orders, so they are dropped with the old rows.
+    // An order change that commits between this and the recompute is counted twice; rebuilds are a
+    // repair tool and are meant to run while the shop is quiet
+    private static final String DELETE_JOURNAL_RANGE_SQL =
+            "DELETE FROM sales_rollup_journal WHERE day >= :fromDay AND day < :toDay";
+
+    private static final String DELETE_RANGE_SQL =
+            "DELETE FROM daily_sales_rollup WHERE day >= :fromDay AND day < :toDay";
+
+    private static final String INSERT_RANGE_SQL =
+            "INSERT INTO daily_sales_rollup (day, order_status, payment_method, category_id, order_count, item_quantity, revenue) " +
+            "SELECT CAST(o.created_at AS date), o.order_status, o.payment_method, :orderTotal, COUNT(*), " +
+            "       SUM(ISNULL(q.quantity, 0)), SUM(o.total_amount) " +
+            "FROM orders o OUTER APPLY (SELECT SUM(oi.quantity) AS quantity FROM order_items oi WHERE oi.order_id = o.id) q " +
+            "WHERE o.created_at >= :fromTime AND o.created_at < :toTime AND o.order_status IS NOT NULL " +
+            "GROUP BY CAST(o.created_at AS date), o.order_status, o.payment_method " +
+            "UNION ALL " +
+            "SELECT CAST(o.created_at AS date), o.order_status, o.payment_method, oi.category_id, COUNT(DISTINCT o.id), " +
+            "       SUM(oi.quantity), SUM(oi.sub_total) " +
+            "FROM orders o JOIN order_items oi ON oi.order_id = o.id " +
+            "WHERE o.created_at >= :fromTime AND o.created_at < :toTime AND o.order_status IS NOT NULL " +
+            "GROUP BY CAST(o.created_at AS date), o.order_status, o.payment_method, oi.category_id";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public void applyOrder(Long orderId, Order.OrderStatus status, Order.PaymentMethod paymentMethod, int sign) {
+        // The statement reads the order from the database, so pending inserts/updates must be there first
+        entityManager.flush();
+        entityManager.createNativeQuery(APPLY_ORDER_SQL)
+                .setParameter("orderId", orderId)
+                .setParameter("status", status.name())
+                .setParameter("paymentMethod", paymentMethod.name())
+                .setParameter("sign", sign)
+                .setParameter("orderTotal", DailySalesRollup.ORDER_TOTAL)
+                .executeUpdate();
+    }
+
+    @Override
+    @Transactional
+    public int foldJournal(int limit) {
+        Number folded = (Number) entityManager.createNativeQuery(FOLD_SQL)
+                .setParameter("limit", limit)
+                .getSingleResult();
+        return folded.intValue();
+    }
+
+    @Override
+    public void rebuild(LocalDate from, LocalDate to) {
+        entityManager.createNativeQuery(LOCK_ROLLUP_SQL).executeUpdate();
+        entityManager.createNativeQuery(DELETE_JOURNAL_RANGE_SQL)
+                .setParameter("fromDay", from)
+                .setParameter("toDay", to)
+                .executeUpdate();
+        entityManager.createNativeQuery(DELETE_RANGE_SQL)
+                .setParameter("fromDay", from)
+                .setParameter("toDay", to)
+                .executeUpdate();
+        entityManager.createNativeQuery(INSERT_RANGE_SQL)
+                .setParameter("orderTotal", DailySalesRollup.ORDER_TOTAL)
+                .setParameter("fromTime", from.atStartOfDay())
+                .setParameter("toTime", to.atStartOfDay())
+                .executeUpdate();
+    }
+}
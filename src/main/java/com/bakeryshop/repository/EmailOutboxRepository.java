@@ -0,0 +1,37 @@
+package com.bakeryshop.repository;
+
+import com.bakeryshop.entity.EmailOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, Long> {
+    @Query("SELECT m.id FROM EmailOutbox m WHERE m.status = :status AND m.nextAttemptAt <= :now ORDER BY m.nextAttemptAt")
+    List<Long> findDueIds(@Param("status") EmailOutbox.Status status,
+                          @Param("now") LocalDateTime now,
+                          Pageable pageable);
+
+    // Only one worker can move a message from PENDING to SENDING
+    @Transactional
+    @Modifying
+    @Query("UPDATE EmailOutbox m SET m.status = :to, m.lockedAt = :now WHERE m.id = :id AND m.status = :from")
+    int claim(@Param("id") Long id,
+              @Param("from") EmailOutbox.Status from,
+              @Param("to") EmailOutbox.Status to,
+              @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE EmailOutbox m SET m.status = :pending, m.lockedAt = null WHERE m.status = :sending AND m.lockedAt < :before")
+    int releaseStuck(@Param("sending") EmailOutbox.Status sending,
+                     @Param("pending") EmailOutbox.Status pending,
+                     @Param("before") LocalDateTime before);
+}
@@ -0,0 +1,68 @@
+package com.bakeryshop.repository;
+
+import com.bakeryshop.dto.KeysetCursor;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Seek queries over entities with createdAt / id attributes. Instead of OFFSET the query
+ * starts right after the cursor row, so with an index on (created_at, id) every page costs
+ * the same regardless of depth. No COUNT query is issued.
+ */
+final class KeysetQueries {
+    private KeysetQueries() {
+    }
+
+    static <T> List<T> seek(EntityManager entityManager, Class<T> type, Specification<T> filter,
+                            KeysetCursor cursor, int limit) {
+        return seek(entityManager, type, filter, cursor, limit, null);
+    }
+
+    // entityGraph: optional named graph applied as a fetch graph
+    static <T> List<T> seek(EntityManager entityManager, Class<T> type, Specification<T> filter,
+                            KeysetCursor cursor, int limit, String entityGraph) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> query = cb.createQuery(type);
+        Root<T> root = query.from(type);
+        Path<LocalDateTime> createdAt = root.get("createdAt");
+        Path<Long> id = root.get("id");
+
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.isNotNull(createdAt));
+        if (filter != null) {
+            Predicate predicate = filter.toPredicate(root, query, cb);
+            if (predicate != null) {
+                predicates.add(predicate);
+            }
+        }
+
+        boolean backward = cursor != null && cursor.isBackward();
+        if (cursor != null) {
+            LocalDateTime at = cursor.getCreatedAt();
+            predicates.add(backward
+                    ? cb.or(cb.greaterThan(createdAt, at), cb.and(cb.equal(createdAt, at), cb.greaterThan(id, cursor.getId())))
+                    : cb.or(cb.lessThan(createdAt, at), cb.and(cb.equal(createdAt, at), cb.lessThan(id, cursor.getId()))));
+        }
+
+        query.select(root)
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(backward
+                        ? List.of(cb.asc(createdAt), cb.asc(id))
+                        : List.of(cb.desc(createdAt), cb.desc(id)));
+        TypedQuery<T> typedQuery = entityManager.createQuery(query).setMaxResults(limit);
+        if (entityGraph != null) {
+            typedQuery.setHint("javax.persistence.fetchgraph", entityManager.getEntityGraph(entityGraph));
+        }
+        return typedQuery.getResultList();
+    }
+}
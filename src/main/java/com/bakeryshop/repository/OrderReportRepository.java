@@ -0,0 +1,27 @@
+package com.bakeryshop.repository;
+
+import com.bakeryshop.dto.OrderStatsRow;
+import com.bakeryshop.entity.Order;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.RepositoryDefinition;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Read-only aggregates over orders; nothing here loads Order entities
+@RepositoryDefinition(domainClass = Order.class, idClass = Long.class)
+public interface OrderReportRepository {
+    @Query("SELECT new com.bakeryshop.dto.OrderStatsRow(o.status, o.paymentStatus, COUNT(o), SUM(o.totalAmount)) " +
+           "FROM Order o GROUP BY o.status, o.paymentStatus")
+    List<OrderStatsRow> summarizeByStatusAndPaymentStatus();
+
+    @Query("SELECT COALESCE(SUM(o.totalAmount), 0) FROM Order o " +
+           "WHERE o.status = :status AND o.paymentStatus = :paymentStatus")
+    BigDecimal sumRevenue(@Param("status") Order.OrderStatus status,
+                          @Param("paymentStatus") Order.PaymentStatus paymentStatus);
+
+    @Query("SELECT MIN(o.createdAt) FROM Order o")
+    LocalDateTime findFirstOrderTime();
+}
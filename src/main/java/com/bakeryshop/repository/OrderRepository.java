@@ -1,20 +1,45 @@
 package com.bakeryshop.repository;
 
+import com.bakeryshop.dto.OrderStateRow;
 import com.bakeryshop.entity.Order;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface OrderRepository extends JpaRepository<Order, Long>, JpaSpecificationExecutor<Order> {
+public interface OrderRepository extends JpaRepository<Order, Long>, JpaSpecificationExecutor<Order>,
+        OrderRepositoryCustom {
     // Paginated queries
+    @Override
+    @EntityGraph(Order.WITH_USER)
+    Page<Order> findAll(Pageable pageable);
+
+    @Override
+    @EntityGraph(Order.WITH_USER)
+    Page<Order> findAll(Specification<Order> spec, Pageable pageable);
+
+    @EntityGraph(Order.WITH_USER)
     Page<Order> findByUserId(Long userId, Pageable pageable);
+
+    @EntityGraph(Order.WITH_USER)
     Page<Order> findByStatus(Order.OrderStatus status, Pageable pageable);
+
+    @EntityGraph(Order.WITH_USER)
     Page<Order> findByUserEmailContainingOrUserPhoneContaining(String email, String phone, Pageable pageable);
+
     Page<Order> findAllByOrderByCreatedAtDesc(Pageable pageable);
     
     // List queries
@@ -26,4 +51,89 @@ public interface OrderRepository extends JpaRepository<Order, Long>, JpaSpecific
     // Count queries
     long countByStatus(Order.OrderStatus status);
     long countByPaymentStatus(Order.PaymentStatus status);
+
+    // Keyset scan by id over orders that reached the payment gateway (payment_id holds vnp_CreateDate)
+    @Query("SELECT o FROM Order o WHERE o.paymentMethod = :method AND o.paymentStatus = :status " +
+           "AND o.paymentId IS NOT NULL AND o.createdAt < :before AND o.id > :afterId ORDER BY o.id")
+    List<Order> findPaymentsToReconcile(@Param("method") Order.PaymentMethod method,
+                                        @Param("status") Order.PaymentStatus status,
+                                        @Param("before") LocalDateTime before,
+                                        @Param("afterId") Long afterId,
+                                        Pageable pageable);
+
+    // Keyset scan by id used to rebuild the payment expiry schedule on startup
+    @Query("SELECT o.id, o.createdAt FROM Order o WHERE o.paymentMethod = :method " +
+           "AND o.paymentStatus = :status AND o.status = :orderStatus AND o.id > :afterId ORDER BY o.id")
+    List<Object[]> findUnpaidDeadlines(@Param("method") Order.PaymentMethod method,
+                                       @Param("status") Order.PaymentStatus status,
+                                       @Param("orderStatus") Order.OrderStatus orderStatus,
+                                       @Param("afterId") Long afterId,
+                                       Pageable pageable);
+
+    @Query("SELECT o.id FROM Order o WHERE o.id IN :ids AND o.paymentMethod = :method " +
+           "AND o.paymentStatus = :status AND o.status = :orderStatus")
+    List<Long> findUnpaidIds(@Param("ids") Collection<Long> ids,
+                             @Param("method") Order.PaymentMethod method,
+                             @Param("status") Order.PaymentStatus status,
+                             @Param("orderStatus") Order.OrderStatus orderStatus);
+
+    // Always read from the database, never from the persistence context
+    @Query("SELECT new com.bakeryshop.dto.OrderStateRow(o.status, o.paymentStatus, o.paymentMethod, o.version) " +
+           "FROM Order o WHERE o.id = :id")
+    Optional<OrderStateRow> findState(@Param("id") Long id);
+
+    // Conditional updates used by OrderStateMachine: 0 rows means another writer got there first
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Order o SET o.status = :to, o.note = :note, o.updatedAt = :now, o.version = o.version + 1 " +
+           "WHERE o.id = :id AND o.status = :from AND o.version = :version")
+    int compareAndSetStatus(@Param("id") Long id,
+                            @Param("from") Order.OrderStatus from,
+                            @Param("to") Order.OrderStatus to,
+                            @Param("version") Long version,
+                            @Param("note") String note,
+                            @Param("now") LocalDateTime now);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Order o SET o.paymentStatus = :to, o.note = :note, o.updatedAt = :now, o.version = o.version + 1 " +
+           "WHERE o.id = :id AND (o.paymentStatus = :from OR (:from IS NULL AND o.paymentStatus IS NULL)) " +
+           "AND o.version = :version")
+    int compareAndSetPaymentStatus(@Param("id") Long id,
+                                   @Param("from") Order.PaymentStatus from,
+                                   @Param("to") Order.PaymentStatus to,
+                                   @Param("version") Long version,
+                                   @Param("note") String note,
+                                   @Param("now") LocalDateTime now);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Order o SET o.paymentMethod = :to, o.updatedAt = :now, o.version = o.version + 1 " +
+           "WHERE o.id = :id AND o.version = :version")
+    int compareAndSetPaymentMethod(@Param("id") Long id,
+                                   @Param("to") Order.PaymentMethod to,
+                                   @Param("version") Long version,
+                                   @Param("now") LocalDateTime now);
+
+    // Cancels an order only while both its status and its payment are still pending
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Order o SET o.status = :cancelled, o.paymentStatus = :failed, o.note = :note, " +
+           "o.updatedAt = :now, o.version = o.version + 1 " +
+           "WHERE o.id = :id AND o.status = :pending AND o.paymentStatus = :pendingPayment")
+    int expireIfUnpaid(@Param("id") Long id,
+                       @Param("pending") Order.OrderStatus pending,
+                       @Param("cancelled") Order.OrderStatus cancelled,
+                       @Param("pendingPayment") Order.PaymentStatus pendingPayment,
+                       @Param("failed") Order.PaymentStatus failed,
+                       @Param("note") String note,
+                       @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Order o SET o.paymentId = :paymentId, o.version = o.version + 1 WHERE o.id = :id")
+    int updatePaymentId(@Param("id") Long id, @Param("paymentId") String paymentId);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Order o SET o.transactionNo = :transactionNo, o.updatedAt = :now, o.version = o.version + 1 " +
+           "WHERE o.id = :id")
+    int updateTransactionNo(@Param("id") Long id,
+                            @Param("transactionNo") String transactionNo,
+                            @Param("now") LocalDateTime now);
 } 
\ No newline at end of file
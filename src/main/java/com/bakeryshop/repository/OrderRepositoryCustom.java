@@ -0,0 +1,22 @@
+package com.bakeryshop.repository;
+
+import com.bakeryshop.dto.KeysetCursor;
+import com.bakeryshop.entity.Order;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public interface OrderRepositoryCustom {
+    // Up to limit orders after/before the cursor in (createdAt DESC, id DESC) order
+    List<Order> findKeyset(Specification<Order> filter, KeysetCursor cursor, int limit);
+
+    /**
+     * Returns the items of every order in {@code orderIds} whose stock has not been released
+     * yet to {@code products.stock} and flags those orders, in one statement batch. Lines of
+     * {@code skipProductIds} are not applied. Returns the released quantity per product,
+     * including the skipped lines.
+     */
+    Map<Long, Integer> releaseStock(Collection<Long> orderIds, Collection<Long> skipProductIds);
+}
@@ -0,0 +1,53 @@
+package com.bakeryshop.repository;
+
+import com.bakeryshop.dto.KeysetCursor;
+import com.bakeryshop.entity.Order;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class OrderRepositoryImpl implements OrderRepositoryCustom {
+    // The flag flip and the restock see the same set of orders, so an order is never restocked twice
+    private static final String RELEASE_STOCK_SQL =
+            "SET NOCOUNT ON; " +
+            "DECLARE @released TABLE (id BIGINT NOT NULL PRIMARY KEY); " +
+            "UPDATE orders SET stock_released = 1 OUTPUT inserted.id INTO @released " +
+            "WHERE id IN (:orderIds) AND stock_released = 0; " +
+            "DECLARE @lines TABLE (product_id BIGINT NOT NULL PRIMARY KEY, quantity INT NOT NULL); " +
+            "INSERT INTO @lines SELECT oi.product_id, SUM(oi.quantity) FROM order_items oi " +
+            "JOIN @released r ON r.id = oi.order_id GROUP BY oi.product_id; " +
+            "UPDATE p SET p.stock = p.stock + l.quantity FROM products p JOIN @lines l ON p.id = l.product_id " +
+            "WHERE p.id NOT IN (:skipProductIds); " +
+            "SELECT product_id, quantity FROM @lines";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Order> findKeyset(Specification<Order> filter, KeysetCursor cursor, int limit) {
+        return KeysetQueries.seek(entityManager, Order.class, filter, cursor, limit, Order.WITH_USER);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<Long, Integer> releaseStock(Collection<Long> orderIds, Collection<Long> skipProductIds) {
+        Map<Long, Integer> released = new HashMap<>();
+        if (orderIds.isEmpty()) {
+            return released;
+        }
+        List<Object[]> lines = entityManager.createNativeQuery(RELEASE_STOCK_SQL)
+                .setParameter("orderIds", orderIds)
+                // NOT IN () is not valid SQL; ids are never negative
+                .setParameter("skipProductIds", skipProductIds.isEmpty() ? List.of(-1L) : skipProductIds)
+                .getResultList();
+        for (Object[] line : lines) {
+            released.put(((Number) line[0]).longValue(), ((Number) line[1]).intValue());
+        }
+        return released;
+    }
+}
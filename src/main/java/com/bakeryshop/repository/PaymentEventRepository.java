@@ -0,0 +1,42 @@
+package com.bakeryshop.repository;
+
+import com.bakeryshop.entity.PaymentEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface PaymentEventRepository extends JpaRepository<PaymentEvent, Long> {
+    List<PaymentEvent> findByTxnRefIn(Collection<String> txnRefs);
+
+    @Query("SELECT e.id FROM PaymentEvent e WHERE e.status = :status AND e.receivedAt < :before ORDER BY e.id")
+    List<Long> findPendingIds(@Param("status") PaymentEvent.Status status,
+                              @Param("before") LocalDateTime before,
+                              Pageable pageable);
+
+    // Run inside the applying transaction: the row lock makes a concurrent applier see 0 rows
+    @Modifying
+    @Query("UPDATE PaymentEvent e SET e.status = :to, e.appliedAt = :now WHERE e.id = :id AND e.status = :from")
+    int markApplied(@Param("id") Long id,
+                    @Param("from") PaymentEvent.Status from,
+                    @Param("to") PaymentEvent.Status to,
+                    @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE PaymentEvent e SET e.attempts = e.attempts + 1, e.lastError = :error, " +
+           "e.status = CASE WHEN e.attempts + 1 >= :maxAttempts THEN :dead ELSE e.status END " +
+           "WHERE e.id = :id")
+    int recordFailure(@Param("id") Long id,
+                      @Param("error") String error,
+                      @Param("maxAttempts") int maxAttempts,
+                      @Param("dead") PaymentEvent.Status dead);
+}
@@ -12,7 +12,8 @@ import org.springframework.stereotype.Repository;
 import java.util.List;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product> {
+public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product>,
+        ProductRepositoryCustom {
     Page<Product> findByCategoryId(Long categoryId, Pageable pageable);
     
     Page<Product> findByNameContainingIgnoreCase(String keyword, Pageable pageable);
@@ -29,6 +30,9 @@ public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpec
     
     Page<Product> findByBestSellerTrueOrderByCreatedAtDesc(Pageable pageable);
 
+    @Query("SELECT p FROM Product p JOIN FETCH p.category WHERE p.active = true")
+    List<Product> findAllActiveWithCategory();
+
     @Query("SELECT p FROM Product p WHERE p.bestSeller = true ORDER BY p.createdAt DESC")
     List<Product> findBestSellers();
 
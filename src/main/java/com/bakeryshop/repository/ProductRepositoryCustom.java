@@ -0,0 +1,20 @@
+package com.bakeryshop.repository;
+
+import com.bakeryshop.dto.KeysetCursor;
+import com.bakeryshop.entity.Product;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.Map;
+
+public interface ProductRepositoryCustom {
+    /**
+     * Decrements stock for every product in {@code quantities} with a single guarded
+     * UPDATE. A line is only applied when {@code stock >= quantity}, so the caller must
+     * compare the returned row count with {@code quantities.size()} and roll back on mismatch.
+     */
+    int reserveStock(Map<Long, Integer> quantities);
+
+    // Up to limit products after/before the cursor in (createdAt DESC, id DESC) order
+    List<Product> findKeyset(Specification<Product> filter, KeysetCursor cursor, int limit);
+}
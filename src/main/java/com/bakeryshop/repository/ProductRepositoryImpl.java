@@ -0,0 +1,52 @@
+package com.bakeryshop.repository;
+
+import com.bakeryshop.dto.KeysetCursor;
+import com.bakeryshop.entity.Product;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class ProductRepositoryImpl implements ProductRepositoryCustom {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public int reserveStock(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return 0;
+        }
+        // Rows are listed (and so locked) in product id order, so two checkouts sharing
+        // products wait for each other instead of deadlocking
+        Map<Long, Integer> lines = new TreeMap<>(quantities);
+
+        StringBuilder sql = new StringBuilder(
+                "UPDATE p SET p.stock = p.stock - v.quantity FROM products p JOIN (VALUES ");
+        int i = 0;
+        for (int n = lines.size(); i < n; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append("(:id").append(i).append(", :qty").append(i).append(')');
+        }
+        sql.append(") AS v(product_id, quantity) ON p.id = v.product_id WHERE p.stock >= v.quantity");
+
+        Query query = entityManager.createNativeQuery(sql.toString());
+        i = 0;
+        for (Map.Entry<Long, Integer> line : lines.entrySet()) {
+            query.setParameter("id" + i, line.getKey());
+            query.setParameter("qty" + i, line.getValue());
+            i++;
+        }
+        return query.executeUpdate();
+    }
+
+    @Override
+    public List<Product> findKeyset(Specification<Product> filter, KeysetCursor cursor, int limit) {
+        return KeysetQueries.seek(entityManager, Product.class, filter, cursor, limit);
+    }
+}
@@ -0,0 +1,10 @@
+package com.bakeryshop.repository;
+
+import com.bakeryshop.entity.StockReservation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface StockReservationRepository extends JpaRepository<StockReservation, Long>,
+        StockReservationRepositoryCustom {
+}
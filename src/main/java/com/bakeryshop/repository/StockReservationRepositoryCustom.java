@@ -0,0 +1,11 @@
+package com.bakeryshop.repository;
+
+public interface StockReservationRepositoryCustom {
+    /**
+     * Removes up to {@code limit} committed journal rows and applies their sum per product
+     * to {@code products.stock}, all in one transaction.
+     *
+     * @return the number of journal rows applied
+     */
+    int flushToProducts(int limit);
+}
@@ -0,0 +1,31 @@
+package com.bakeryshop.repository;
+
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+public class StockReservationRepositoryImpl implements StockReservationRepositoryCustom {
+    // READPAST skips rows of checkouts that have not committed yet instead of waiting for them
+    private static final String FLUSH_SQL =
+            "SET NOCOUNT ON; " +
+            "DECLARE @flushed TABLE (product_id BIGINT NOT NULL, quantity INT NOT NULL); " +
+            "DELETE TOP (:limit) FROM stock_reservation_journal WITH (READPAST) " +
+            "OUTPUT deleted.product_id, deleted.quantity INTO @flushed; " +
+            "UPDATE p SET p.stock = p.stock - f.quantity FROM products p " +
+            "JOIN (SELECT product_id, SUM(quantity) AS quantity FROM @flushed GROUP BY product_id) f " +
+            "ON p.id = f.product_id; " +
+            "SELECT COUNT(*) FROM @flushed";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public int flushToProducts(int limit) {
+        Number flushed = (Number) entityManager.createNativeQuery(FLUSH_SQL)
+                .setParameter("limit", limit)
+                .getSingleResult();
+        return flushed.intValue();
+    }
+}
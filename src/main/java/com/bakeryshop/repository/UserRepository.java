@@ -26,4 +26,6 @@ public interface UserRepository extends JpaRepository<User, Long> {
     long countByBlockedFalse();
     
     long countByBlockedTrue();
+
+    boolean existsByIdAndRoleAndBlockedFalse(Long id, String role);
 } 
\ No newline at end of file
@@ -0,0 +1,130 @@
+package com.bakeryshop.security;
+
+import com.bakeryshop.exception.PasswordHashingRejectedException;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs encode/matches on a small dedicated executor so that bursts of logins cannot occupy
+ * every request thread with hashing work. When the queue is full, or a job is still queued
+ * after maxWaitMs, the call fails fast with {@link PasswordHashingRejectedException}. Only
+ * the queue wait is bounded: a hash that has started is waited for, and a job that reaches
+ * a worker after its deadline is skipped instead of hashing for a caller that gave up.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder {
+    private final PasswordEncoder delegate;
+    private final ThreadPoolTaskExecutor executor;
+    private final long maxWaitMs;
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder queueWaitNanos = new LongAdder();
+    private final AtomicLong maxQueueWaitNanos = new AtomicLong();
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, ThreadPoolTaskExecutor executor, long maxWaitMs) {
+        this.delegate = delegate;
+        this.executor = executor;
+        this.maxWaitMs = maxWaitMs;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    // Cheap: compares the cost factor stored in the hash, no hashing involved
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    public Map<String, Object> getMetrics() {
+        long done = completed.sum();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("completed", done);
+        metrics.put("rejected", rejected.sum());
+        metrics.put("active", executor.getActiveCount());
+        metrics.put("queued", executor.getThreadPoolExecutor().getQueue().size());
+        metrics.put("avgQueueWaitMillis", done == 0 ? 0 : queueWaitNanos.sum() / 1_000_000.0 / done);
+        metrics.put("maxQueueWaitMillis", maxQueueWaitNanos.get() / 1_000_000.0);
+        return metrics;
+    }
+
+    private <T> T run(Callable<T> job) {
+        long submittedAt = System.nanoTime();
+        long maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        // Set by whichever side comes first: the worker starting the job or the caller giving up
+        AtomicBoolean claimed = new AtomicBoolean();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long waited = System.nanoTime() - submittedAt;
+                queueWaitNanos.add(waited);
+                maxQueueWaitNanos.accumulateAndGet(waited, Math::max);
+                if (!claimed.compareAndSet(false, true) || waited > maxWaitNanos) {
+                    throw new DeadlineExceeded();
+                }
+                T result = job.call();
+                completed.increment();
+                return result;
+            });
+        } catch (TaskRejectedException e) {
+            throw reject();
+        }
+
+        try {
+            try {
+                return future.get(maxWaitMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // Still queued: it will never hash. Already hashing: BCrypt finishes in bounded time
+                if (claimed.compareAndSet(false, true)) {
+                    future.cancel(false);
+                    throw reject();
+                }
+                return future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            claimed.set(true);
+            future.cancel(false);
+            throw reject();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof DeadlineExceeded) {
+                throw reject();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private PasswordHashingRejectedException reject() {
+        rejected.increment();
+        return new PasswordHashingRejectedException("Hệ thống đang bận, vui lòng thử lại sau ít phút");
+    }
+
+    // Thrown by a job that was dequeued too late; turned into a rejection by run()
+    private static final class DeadlineExceeded extends RuntimeException {
+        private DeadlineExceeded() {
+            super(null, null, false, false);
+        }
+    }
+}
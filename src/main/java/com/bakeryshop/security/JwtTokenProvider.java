@@ -8,7 +8,15 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Component
 public class JwtTokenProvider {
@@ -20,6 +28,27 @@ public class JwtTokenProvider {
     @Value("${jwt.expirationMs}")
     private int jwtExpirationMs;
 
+    @Value("${app.security.token-cache.max-size}")
+    private int tokenCacheMaxSize;
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private JwtParser parser;
+    // SHA-256 of the compact token -> claims already verified for it; entries die at exp.
+    // Keyed by digest so the heap does not hold usable bearer tokens
+    private final Map<String, VerifiedToken> verifiedTokens = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        parser = Jwts.parserBuilder().setSigningKey(jwtSecret).build();
+    }
+
     public String generateToken(Authentication authentication) {
         UserDetails userPrincipal = (UserDetails) authentication.getPrincipal();
 
@@ -34,19 +63,53 @@ public class JwtTokenProvider {
                 .compact();
     }
 
-    public String getUsernameFromJWT(String token) {
-        Claims claims = Jwts.parser()
-                .setSigningKey(jwtSecret)
-                .parseClaimsJws(token)
-                .getBody();
+    /**
+     * Verifies the token once and returns its claims, or null if it is invalid or expired.
+     * Tokens seen before are answered from the cache until they expire.
+     */
+    public VerifiedToken verify(String token) {
+        long now = System.currentTimeMillis();
+        String key = digest(token);
+        VerifiedToken cached = verifiedTokens.get(key);
+        if (cached != null) {
+            if (!cached.isExpired(now)) {
+                return cached;
+            }
+            verifiedTokens.remove(key);
+        }
 
-        return claims.getSubject();
+        VerifiedToken verified = parse(token);
+        if (verified != null && verified.getExpiration() != null) {
+            if (verifiedTokens.size() >= tokenCacheMaxSize) {
+                // Full: drop an arbitrary entry (the first the iterator reaches, not the oldest).
+                // That is O(1) and an evicted token is only verified again on its next use
+                Iterator<String> any = verifiedTokens.keySet().iterator();
+                if (any.hasNext()) {
+                    verifiedTokens.remove(any.next());
+                }
+            }
+            verifiedTokens.put(key, verified);
+        }
+        return verified;
+    }
+
+    public String getUsernameFromJWT(String token) {
+        VerifiedToken verified = verify(token);
+        return verified != null ? verified.getSubject() : null;
     }
 
     public boolean validateToken(String authToken) {
+        return verify(authToken) != null;
+    }
+
+    private static String digest(String token) {
+        return Base64.getEncoder().encodeToString(SHA_256.get().digest(token.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private VerifiedToken parse(String token) {
         try {
-            Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(authToken);
-            return true;
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            return new VerifiedToken(claims.getSubject(), claims.getIssuedAt(), claims.getExpiration());
         } catch (SignatureException ex) {
             logger.error("Invalid JWT signature");
         } catch (MalformedJwtException ex) {
@@ -58,6 +121,6 @@ public class JwtTokenProvider {
         } catch (IllegalArgumentException ex) {
             logger.error("JWT claims string is empty");
         }
-        return false;
+        return null;
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,190 @@
+package com.bakeryshop.security;
+
+import com.bakeryshop.config.RateLimitConfig;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.StringUtils;
+import org.springframework.web.util.UrlPathHelper;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-route token buckets keyed by client IP and by account.
+ * <p>
+ * Each bucket is a single {@link AtomicLong} holding the bucket's "theoretical arrival time"
+ * (GCRA): a request is admitted when that time is at most {@code (capacity - 1) * interval}
+ * ahead of now, and admission advances it by one interval with a CAS. This is equivalent
+ * to a token bucket refilling one token per interval, without locks. Once a client's buckets
+ * exist, a request allocates nothing beyond resolving its path and account key.
+ * A bucket whose time has fallen behind the clock is full, so it can be dropped and
+ * recreated later without changing behaviour.
+ */
+@Component
+public class RateLimiter {
+    private final boolean enabled;
+    private final int maxBuckets;
+    private final List<Route> routes = new ArrayList<>();
+    private static final UrlPathHelper PATH_HELPER = new UrlPathHelper();
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    public RateLimiter(RateLimitConfig config) {
+        this.enabled = config.isEnabled();
+        this.maxBuckets = config.getMaxBuckets();
+        for (RateLimitConfig.Rule rule : config.getRules()) {
+            routes.add(new Route(rule));
+        }
+    }
+
+    /**
+     * Charges one request against the IP and account buckets of the first rule that matches
+     * it; rules are checked in configuration order. A request rejected by one bucket is not
+     * charged to the other.
+     *
+     * @return 0 when admitted, otherwise nanoseconds until the request would be admitted
+     */
+    public long acquire(HttpServletRequest request) {
+        if (!enabled || routes.isEmpty()) {
+            return 0;
+        }
+        Route route = match(request.getMethod(), resolvePath(request));
+        if (route == null) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        AtomicLong ipTat = route.perIp ? route.bucket(route.ipBuckets, request.getRemoteAddr(), now) : null;
+        AtomicLong accountTat = null;
+        if (route.perAccount) {
+            String account = resolveAccount(request, route.accountParameter);
+            if (account != null) {
+                accountTat = route.bucket(route.accountBuckets, account, now);
+            }
+        }
+
+        long ipWait = ipTat == null ? 0 : route.acquire(ipTat, now);
+        long accountWait = accountTat == null ? 0 : route.acquire(accountTat, now);
+        if (ipWait > 0 && accountTat != null && accountWait == 0) {
+            route.refund(accountTat);
+        } else if (accountWait > 0 && ipTat != null && ipWait == 0) {
+            route.refund(ipTat);
+        }
+        return Math.max(ipWait, accountWait);
+    }
+
+    @Scheduled(fixedDelayString = "${app.rate-limit.sweep-interval-ms}")
+    public void evictIdleBuckets() {
+        long now = System.nanoTime();
+        for (Route route : routes) {
+            route.ipBuckets.values().removeIf(tat -> tat.get() - now <= 0);
+            route.accountBuckets.values().removeIf(tat -> tat.get() - now <= 0);
+        }
+    }
+
+    private Route match(String method, String path) {
+        for (Route route : routes) {
+            if (route.matches(method, path)) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The path the handler mapping sees: decoded, without path parameters, with duplicate
+     * slashes collapsed and without a trailing slash, so that none of these bypass a rule.
+     */
+    static String resolvePath(HttpServletRequest request) {
+        String path = PATH_HELPER.getPathWithinApplication(request);
+        while (path.length() > 1 && path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        return path;
+    }
+
+    private static String resolveAccount(HttpServletRequest request, String parameter) {
+        if (parameter != null) {
+            String value = request.getParameter(parameter);
+            if (StringUtils.hasText(value)) {
+                return value.trim().toLowerCase();
+            }
+        }
+        // Runs ahead of Spring Security, so read the session user directly
+        HttpSession session = request.getSession(false);
+        if (session != null) {
+            Object context = session.getAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY);
+            if (context instanceof SecurityContext) {
+                Authentication authentication = ((SecurityContext) context).getAuthentication();
+                if (authentication != null) {
+                    return authentication.getName();
+                }
+            }
+        }
+        return null;
+    }
+
+    private final class Route {
+        private final String method;
+        private final String pattern;
+        private final long intervalNanos;
+        private final long toleranceNanos;
+        private final boolean perIp;
+        private final boolean perAccount;
+        private final String accountParameter;
+        private final Map<String, AtomicLong> ipBuckets = new ConcurrentHashMap<>();
+        private final Map<String, AtomicLong> accountBuckets = new ConcurrentHashMap<>();
+
+        private Route(RateLimitConfig.Rule rule) {
+            this.method = StringUtils.hasText(rule.getMethod()) ? rule.getMethod() : null;
+            this.pattern = rule.getPattern();
+            this.intervalNanos = (long) (60_000_000_000L / rule.getRefillPerMinute());
+            this.toleranceNanos = (rule.getCapacity() - 1) * intervalNanos;
+            this.perIp = rule.isPerIp();
+            this.perAccount = rule.isPerAccount();
+            this.accountParameter = StringUtils.hasText(rule.getAccountParameter()) ? rule.getAccountParameter() : null;
+        }
+
+        private boolean matches(String requestMethod, String path) {
+            return (method == null || method.equalsIgnoreCase(requestMethod)) && pathMatcher.match(pattern, path);
+        }
+
+        // Null when the key is not tracked because the map is full
+        private AtomicLong bucket(Map<String, AtomicLong> buckets, String key, long now) {
+            AtomicLong tat = buckets.get(key);
+            if (tat == null) {
+                if (buckets.size() >= maxBuckets) {
+                    return null;
+                }
+                tat = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+            }
+            return tat;
+        }
+
+        private long acquire(AtomicLong tat, long now) {
+            while (true) {
+                long current = tat.get();
+                long base = current - now > 0 ? current : now;
+                long ahead = base - now;
+                if (ahead > toleranceNanos) {
+                    return ahead - toleranceNanos;
+                }
+                if (tat.compareAndSet(current, base + intervalNanos)) {
+                    return 0;
+                }
+            }
+        }
+
+        private void refund(AtomicLong tat) {
+            tat.addAndGet(-intervalNanos);
+        }
+    }
+}
@@ -1,18 +1,27 @@
 package com.bakeryshop.security;
 
+import com.bakeryshop.exception.PasswordHashingRejectedException;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
+import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
-import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.ExceptionMappingAuthenticationFailureHandler;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import java.util.Map;
+
 @Configuration
 @EnableWebSecurity
 @EnableGlobalMethodSecurity(
@@ -20,40 +29,118 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
     jsr250Enabled = true,
     prePostEnabled = true
 )
-public class SecurityConfig extends WebSecurityConfigurerAdapter {
+public class SecurityConfig {
+    private static final String REMEMBER_ME_KEY = "uniqueAndSecret";
+    private static final int REMEMBER_ME_SECONDS = 86400; // 1 day
+
     private final UserDetailsServiceImpl userDetailsService;
     private final JwtTokenProvider tokenProvider;
+    private final UserDetailsCache userDetailsCache;
 
-    public SecurityConfig(UserDetailsServiceImpl userDetailsService, JwtTokenProvider tokenProvider) {
+    public SecurityConfig(UserDetailsServiceImpl userDetailsService, JwtTokenProvider tokenProvider,
+                          UserDetailsCache userDetailsCache) {
         this.userDetailsService = userDetailsService;
         this.tokenProvider = tokenProvider;
+        this.userDetailsCache = userDetailsCache;
     }
 
+    // Built from the UserDetailsService and PasswordEncoder beans
     @Bean
-    public JwtAuthenticationFilter jwtAuthenticationFilter() {
-        return new JwtAuthenticationFilter(tokenProvider, userDetailsService);
+    public AuthenticationManager authenticationManager(AuthenticationConfiguration configuration) throws Exception {
+        return configuration.getAuthenticationManager();
     }
 
-    @Override
-    public void configure(AuthenticationManagerBuilder authenticationManagerBuilder) throws Exception {
-        authenticationManagerBuilder
-            .userDetailsService(userDetailsService)
-            .passwordEncoder(passwordEncoder());
+    // Raising app.security.bcrypt-strength rehashes existing passwords on their next login
+    @Bean
+    public BoundedPasswordEncoder passwordEncoder(@Qualifier("passwordHashExecutor") ThreadPoolTaskExecutor executor,
+                                                  @Value("${app.security.bcrypt-strength}") int strength,
+                                                  @Value("${app.security.password-hashing.max-wait-ms}") long maxWaitMs) {
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(strength), executor, maxWaitMs);
     }
 
+    /**
+     * Cart API, called both by bearer-token clients and by the storefront's AJAX add-to-cart
+     * buttons with the login session. An existing session (or remember-me cookie) is read,
+     * but none is created.
+     */
     @Bean
-    @Override
-    public AuthenticationManager authenticationManagerBean() throws Exception {
-        return super.authenticationManagerBean();
+    @Order(1)
+    public SecurityFilterChain sessionApiFilterChain(HttpSecurity http) throws Exception {
+        http
+            .antMatcher("/api/cart/**")
+            .cors()
+                .and()
+            .csrf()
+                .disable()
+            .sessionManagement()
+                .sessionCreationPolicy(SessionCreationPolicy.NEVER)
+                .and()
+            .requestCache()
+                .disable()
+            .formLogin()
+                .disable()
+            .httpBasic()
+                .disable()
+            .logout()
+                .disable()
+            .exceptionHandling()
+                .authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED))
+                .and()
+            .authorizeRequests()
+                .anyRequest().authenticated()
+                .and()
+            .rememberMe()
+                .key(REMEMBER_ME_KEY)
+                .userDetailsService(userDetailsService)
+                .tokenValiditySeconds(REMEMBER_ME_SECONDS);
+
+        http.addFilterBefore(new JwtAuthenticationFilter(tokenProvider, userDetailsService, userDetailsCache),
+                UsernamePasswordAuthenticationFilter.class);
+        return http.build();
     }
 
+    /**
+     * Bearer-token API: no session is created or read, and no CSRF, remember-me,
+     * request cache or login page filters run.
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    @Order(2)
+    public SecurityFilterChain apiFilterChain(HttpSecurity http) throws Exception {
+        http
+            .antMatcher("/api/**")
+            .cors()
+                .and()
+            .csrf()
+                .disable()
+            .sessionManagement()
+                .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
+                .and()
+            .requestCache()
+                .disable()
+            .formLogin()
+                .disable()
+            .httpBasic()
+                .disable()
+            .logout()
+                .disable()
+            .exceptionHandling()
+                .authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED))
+                .and()
+            .authorizeRequests()
+                .antMatchers("/api/auth/**").permitAll()
+                .antMatchers("/api/products/**", "/api/categories/**", "/api/blogs/**").permitAll()
+                .antMatchers("/api/admin/**").hasRole("ADMIN")
+                .anyRequest().authenticated();
+
+        http.addFilterBefore(new JwtAuthenticationFilter(tokenProvider, userDetailsService, userDetailsCache),
+                UsernamePasswordAuthenticationFilter.class);
+        return http.build();
     }
 
-    @Override
-    protected void configure(HttpSecurity http) throws Exception {
+    /** Storefront and admin pages: session-based form login with remember-me. */
+    @Bean
+    @Order(3)
+    public SecurityFilterChain webFilterChain(HttpSecurity http) throws Exception {
         http
             .cors()
                 .and()
@@ -83,15 +170,12 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
                     "/login",
                     "/register",
                     "/vnpay/return",
+                    "/vnpay/ipn",
                     "/order/success/**",
                     "/order/error"
                 ).permitAll()
-                // API endpoints
-                .antMatchers("/api/auth/**").permitAll()
-                .antMatchers("/api/products/**", "/api/categories/**", "/api/blogs/**").permitAll()
                 // Admin section
                 .antMatchers("/admin/**").hasRole("ADMIN")
-                .antMatchers("/api/admin/**").hasRole("ADMIN")
                 // User section
                 .antMatchers("/cart/**", "/orders/**").authenticated()
                 .anyRequest().authenticated()
@@ -100,7 +184,7 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
                 .loginPage("/auth/login")
                 .loginProcessingUrl("/auth/login")
                 .defaultSuccessUrl("/")
-                .failureUrl("/auth/login?error")
+                .failureHandler(loginFailureHandler())
                 .and()
             .logout()
                 .logoutUrl("/auth/logout")
@@ -109,9 +193,17 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
                 .invalidateHttpSession(true)
                 .and()
             .rememberMe()
-                .key("uniqueAndSecret")
-                .tokenValiditySeconds(86400); // 1 day
+                .key(REMEMBER_ME_KEY)
+                .userDetailsService(userDetailsService)
+                .tokenValiditySeconds(REMEMBER_ME_SECONDS);
+
+        return http.build();
+    }
 
-        http.addFilterBefore(jwtAuthenticationFilter(), UsernamePasswordAuthenticationFilter.class);
+    private ExceptionMappingAuthenticationFailureHandler loginFailureHandler() {
+        ExceptionMappingAuthenticationFailureHandler handler = new ExceptionMappingAuthenticationFailureHandler();
+        handler.setDefaultFailureUrl("/auth/login?error");
+        handler.setExceptionMappings(Map.of(PasswordHashingRejectedException.class.getName(), "/auth/login?busy"));
+        return handler;
     }
-} 
\ No newline at end of file
+}
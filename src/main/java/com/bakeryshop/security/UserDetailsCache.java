@@ -0,0 +1,73 @@
+package com.bakeryshop.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Bounded TTL cache of principals for bearer-token requests, keyed by email.
+ * Cached entries never carry the password hash.
+ */
+@Component
+public class UserDetailsCache {
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final long ttlMs;
+    private final int maxSize;
+
+    public UserDetailsCache(@Value("${app.security.user-cache.ttl-ms}") long ttlMs,
+                            @Value("${app.security.user-cache.max-size}") int maxSize) {
+        this.ttlMs = ttlMs;
+        this.maxSize = maxSize;
+    }
+
+    public UserPrincipal get(String email, Function<String, UserPrincipal> loader) {
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(email);
+        if (entry != null && entry.expiresAt > now) {
+            return entry.principal;
+        }
+
+        UserPrincipal loaded = loader.apply(email).withoutPassword();
+        if (entries.size() >= maxSize) {
+            entries.values().removeIf(e -> e.expiresAt <= now);
+        }
+        if (entries.size() < maxSize) {
+            entries.put(email, new Entry(loaded, now + ttlMs));
+        }
+        return loaded;
+    }
+
+    /**
+     * Drops the entry now and again after the surrounding transaction commits, so a
+     * request racing the update cannot re-cache the old state.
+     */
+    public void invalidate(String email) {
+        if (email == null) {
+            return;
+        }
+        entries.remove(email);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    entries.remove(email);
+                }
+            });
+        }
+    }
+
+    private static final class Entry {
+        private final UserPrincipal principal;
+        private final long expiresAt;
+
+        private Entry(UserPrincipal principal, long expiresAt) {
+            this.principal = principal;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.bakeryshop.security;
+
+import com.bakeryshop.entity.User;
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Authenticated user as seen by controllers ({@code @AuthenticationPrincipal UserPrincipal}).
+ * Built once at login or token resolution so handlers need no lookup to get the user id.
+ */
+public class UserPrincipal implements UserDetails, CredentialsContainer, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final Long id;
+    private final String email;
+    private final String name;
+    private final String role;
+    private final boolean enabled;
+    private final Collection<? extends GrantedAuthority> authorities;
+    private String password;
+
+    private UserPrincipal(Long id, String email, String name, String role, boolean enabled, String password) {
+        this.id = id;
+        this.email = email;
+        this.name = name;
+        this.role = role;
+        this.enabled = enabled;
+        this.password = password;
+        this.authorities = Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + role));
+    }
+
+    public static UserPrincipal create(User user) {
+        return new UserPrincipal(user.getId(), user.getEmail(), user.getName(), user.getRole(),
+                user.isEnabled(), user.getPassword());
+    }
+
+    /** Copy without the password hash, for principals kept beyond the login itself. */
+    public UserPrincipal withoutPassword() {
+        return new UserPrincipal(id, email, name, role, enabled, null);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public boolean isAdmin() {
+        return "ADMIN".equals(role);
+    }
+
+    @Override
+    public String getUsername() {
+        return email;
+    }
+
+    @Override
+    public String getPassword() {
+        return password;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    @Override
+    public boolean isAccountNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return true;
+    }
+
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void eraseCredentials() {
+        password = null;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof UserPrincipal && email.equals(((UserPrincipal) o).email);
+    }
+
+    @Override
+    public int hashCode() {
+        return email.hashCode();
+    }
+}
@@ -0,0 +1,32 @@
+package com.bakeryshop.security;
+
+import java.util.Date;
+
+/** Claims of a bearer token whose signature and expiry have been checked. */
+public class VerifiedToken {
+    private final String subject;
+    private final Date issuedAt;
+    private final Date expiration;
+
+    VerifiedToken(String subject, Date issuedAt, Date expiration) {
+        this.subject = subject;
+        this.issuedAt = issuedAt;
+        this.expiration = expiration;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public Date getIssuedAt() {
+        return issuedAt;
+    }
+
+    public Date getExpiration() {
+        return expiration;
+    }
+
+    public boolean isExpired(long nowMillis) {
+        return expiration != null && expiration.getTime() <= nowMillis;
+    }
+}
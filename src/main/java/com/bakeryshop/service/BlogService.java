@@ -1,6 +1,7 @@
 package com.bakeryshop.service;
 
 import com.bakeryshop.dto.BlogDTO;
+import com.bakeryshop.dto.KeysetSlice;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.web.multipart.MultipartFile;
@@ -14,6 +15,7 @@ public interface BlogService {
     BlogDTO getBlogById(Long id);
     Page<BlogDTO> getAllBlogs(String keyword, Pageable pageable);
     Page<BlogDTO> getPublishedBlogs(Pageable pageable);
+    KeysetSlice<BlogDTO> getPublishedBlogsKeyset(String cursor, int size);
     Page<BlogDTO> getBlogsByAuthor(Long authorId, Pageable pageable);
     long countPublishedBlogs();
     List<BlogDTO> getLatestBlogs(int limit);
@@ -0,0 +1,14 @@
+package com.bakeryshop.service;
+
+import java.util.function.Supplier;
+
+public interface IdempotencyService {
+    /**
+     * Runs {@code createOrder} once per (userId, key) and returns the id of the order it
+     * created. A repeat returns the same id without running it again; a concurrent repeat
+     * waits for the first call. A blank key runs {@code createOrder} unconditionally.
+     */
+    Long createOnce(Long userId, String key, Supplier<Long> createOrder);
+
+    String newKey();
+}
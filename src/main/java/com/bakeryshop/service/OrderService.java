@@ -1,9 +1,13 @@
 package com.bakeryshop.service;
 
+import com.bakeryshop.dto.KeysetSlice;
 import com.bakeryshop.dto.OrderDTO;
 import com.bakeryshop.entity.Order;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 
 public interface OrderService {
@@ -19,6 +23,7 @@ public interface OrderService {
     void updatePaymentMethod(Long orderId, Order.PaymentMethod method);
     void updateTransactionNo(Long orderId, String transactionNo);
     void cancelOrder(Long orderId, String reason);
+    int expireUnpaidOrders(Collection<Long> orderIds, String reason);
     
     // Order queries
     Page<OrderDTO> getUserOrders(Long userId, Pageable pageable);
@@ -29,13 +34,18 @@ public interface OrderService {
                               Order.PaymentMethod paymentMethod,
                               Pageable pageable);
     Page<OrderDTO> getOrdersByStatus(String status, Pageable pageable);
+    KeysetSlice<OrderDTO> searchOrdersKeyset(Long userId, String keyword,
+                                             Order.OrderStatus status,
+                                             Order.PaymentStatus paymentStatus,
+                                             Order.PaymentMethod paymentMethod,
+                                             String cursor, int size);
     
     // Order processing
     byte[] generateOrderInvoice(Long orderId);
     
     // Statistics & Dashboard
     long countTotalOrders();
-    double calculateTotalRevenue();
+    BigDecimal calculateTotalRevenue();
     List<Order> getRecentOrders();
     List<Order> getOrdersByStatus(Order.OrderStatus status);
 } 
\ No newline at end of file
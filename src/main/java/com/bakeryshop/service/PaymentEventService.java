@@ -0,0 +1,24 @@
+package com.bakeryshop.service;
+
+import com.bakeryshop.entity.PaymentEvent;
+
+import java.util.List;
+import java.util.Map;
+
+public interface PaymentEventService {
+    /**
+     * Handles a VNPay IPN call: verifies it, records the event once per
+     * (vnp_TxnRef, vnp_TransactionNo) and queues the order update.
+     *
+     * @return the RspCode/Message body VNPay expects
+     */
+    Map<String, String> handleIpn(Map<String, String> params);
+
+    /**
+     * Records a batch of transaction results found by reconciliation, skipping any
+     * already recorded by an IPN call, and queues the order updates.
+     *
+     * @return the number of new events recorded
+     */
+    int recordAll(List<PaymentEvent> events);
+}
@@ -7,4 +7,5 @@ import java.util.Map;
 public interface PaymentService {
     String createPaymentUrl(Order order) throws Exception;
     boolean validatePaymentResponse(Map<String, String> response);
+    boolean verifySignature(Map<String, String> params);
 } 
\ No newline at end of file
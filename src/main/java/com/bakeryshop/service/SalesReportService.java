@@ -0,0 +1,21 @@
+package com.bakeryshop.service;
+
+import com.bakeryshop.dto.SalesReport;
+import com.bakeryshop.entity.Order;
+
+import java.time.LocalDate;
+
+public interface SalesReportService {
+    // Incremental maintenance of daily_sales_rollup: journaled inside the order's transaction,
+    // then folded into the rollup in the background, so the report lags by up to one fold interval
+    void recordOrderCreated(Order order);
+
+    void recordOrderChanged(Order order, Order.OrderStatus oldStatus, Order.PaymentMethod oldPaymentMethod);
+
+    void recordOrderDeleted(Order order);
+
+    SalesReport getSalesReport(LocalDate startDate, LocalDate endDate);
+
+    // Recomputes the rollup for [startDate, endDate] from orders; null bounds mean the whole history
+    void rebuild(LocalDate startDate, LocalDate endDate);
+}
@@ -11,6 +11,8 @@ public interface UserService {
     UserDTO createUser(UserDTO userDTO);
     User createUser(SignUpRequest signUpRequest);
     UserDTO getUserDTOById(Long id);
+    // Reads the current role and block state, unlike the role captured in a session principal
+    boolean isActiveAdmin(Long userId);
     User getUserById(Long id);
     User getUserByEmail(String email);
     Page<UserDTO> getAllUsers(Pageable pageable);
@@ -1,6 +1,8 @@
 package com.bakeryshop.service.impl;
 
 import com.bakeryshop.dto.BlogDTO;
+import com.bakeryshop.dto.KeysetCursor;
+import com.bakeryshop.dto.KeysetSlice;
 import com.bakeryshop.entity.Blog;
 import com.bakeryshop.entity.User;
 import com.bakeryshop.repository.BlogRepository;
@@ -11,6 +13,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
@@ -127,6 +130,16 @@ public class BlogServiceImpl implements BlogService {
                 .map(this::convertToDTO);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public KeysetSlice<BlogDTO> getPublishedBlogsKeyset(String cursor, int size) {
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        Specification<Blog> published = (root, query, cb) -> cb.isTrue(root.get("isPublished"));
+        return KeysetSlice.of(blogRepository.findKeyset(published, position, size + 1), position, size,
+                        Blog::getCreatedAt, Blog::getId)
+                .map(this::convertToDTO);
+    }
+
     @Override
     @Transactional(readOnly = true)
     public Page<BlogDTO> getBlogsByAuthor(Long authorId, Pageable pageable) {
@@ -0,0 +1,379 @@
+package com.bakeryshop.service.impl;
+
+import com.bakeryshop.dto.ProductDTO;
+import com.bakeryshop.entity.Cart;
+import com.bakeryshop.entity.CartItem;
+import com.bakeryshop.entity.Product;
+import com.bakeryshop.repository.CartRepository;
+import com.bakeryshop.repository.ProductRepository;
+import com.bakeryshop.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Write-behind store for active carts. Each cart is loaded from {@code carts}/{@code cart_items}
+ * on first use and then changed in memory under a per-user lock stripe. Changed carts are written
+ * back in batches on a schedule, where several clicks on the same cart become one write, and on
+ * shutdown. Only carts with nothing left to write are evicted. Carts are not shared between
+ * instances, so this assumes a user's requests stay on one instance.
+ */
+@Component
+public class CartCache {
+    private static final Logger logger = LoggerFactory.getLogger(CartCache.class);
+
+    private final CartRepository cartRepository;
+    private final UserRepository userRepository;
+    private final ProductRepository productRepository;
+    private final CatalogSnapshotService catalogSnapshotService;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<Long, Entry> carts = new ConcurrentHashMap<>();
+    private final Object[] locks;
+
+    @Value("${app.cart.max-size:10000}")
+    private int maxSize;
+
+    @Value("${app.cart.idle-ms:1800000}")
+    private long idleMs;
+
+    @Value("${app.cart.flush-batch-size:100}")
+    private int flushBatchSize;
+
+    public CartCache(CartRepository cartRepository,
+                     UserRepository userRepository,
+                     ProductRepository productRepository,
+                     CatalogSnapshotService catalogSnapshotService,
+                     PlatformTransactionManager transactionManager,
+                     @Value("${app.cart.lock-stripes:64}") int lockStripes) {
+        this.cartRepository = cartRepository;
+        this.userRepository = userRepository;
+        this.productRepository = productRepository;
+        this.catalogSnapshotService = catalogSnapshotService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.locks = new Object[lockStripes];
+        for (int i = 0; i < lockStripes; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /** Runs {@code reader} over the cart lines, keyed by product id. The lines must not escape it. */
+    public <T> T read(Long userId, Function<Map<Long, Line>, T> reader) {
+        while (true) {
+            Entry entry = entryFor(userId);
+            synchronized (lock(userId)) {
+                if (carts.get(userId) == entry) {
+                    return reader.apply(entry.lines);
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies {@code mutation} to the cart lines, keyed by product id. A mutation that throws
+     * must do so before changing anything.
+     */
+    public void update(Long userId, Consumer<Map<Long, Line>> mutation) {
+        while (true) {
+            Entry entry = entryFor(userId);
+            synchronized (lock(userId)) {
+                // Evicted between the lookup and the lock: start again with the mapped entry
+                if (carts.get(userId) == entry) {
+                    mutation.accept(entry.lines);
+                    entry.version++;
+                    return;
+                }
+            }
+        }
+    }
+
+    /** Empties the cart; inside a transaction, only once it commits. */
+    public void clear(Long userId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            update(userId, Map::clear);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                update(userId, Map::clear);
+            }
+        });
+    }
+
+    /** The product as currently listed, or as it was when the line was loaded if it is not in the catalog snapshot. */
+    public ProductDTO currentProduct(Long productId, Line line) {
+        CatalogSnapshot snapshot = catalogSnapshotService.current();
+        ProductDTO product = snapshot != null ? snapshot.get(productId) : null;
+        return product != null ? product : line.getProduct();
+    }
+
+    public Optional<ProductDTO> findProduct(Long productId) {
+        CatalogSnapshot snapshot = catalogSnapshotService.current();
+        ProductDTO product = snapshot != null ? snapshot.get(productId) : null;
+        return product != null ? Optional.of(product) : productRepository.findById(productId).map(CartCache::toDTO);
+    }
+
+    @Scheduled(fixedDelayString = "${app.cart.flush-interval-ms:2000}")
+    public void flush() {
+        try {
+            flushAll();
+            evictIdle(System.currentTimeMillis() - idleMs);
+        } catch (Exception e) {
+            logger.error("Failed to flush carts, retrying on the next run", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushAll();
+    }
+
+    private Entry entryFor(Long userId) {
+        Entry entry = carts.get(userId);
+        if (entry == null) {
+            if (carts.size() >= maxSize) {
+                evictIdle(Long.MAX_VALUE);
+            }
+            Entry loaded = load(userId);
+            entry = carts.putIfAbsent(userId, loaded);
+            if (entry == null) {
+                entry = loaded;
+            }
+        }
+        entry.lastAccess = System.currentTimeMillis();
+        return entry;
+    }
+
+    private Entry load(Long userId) {
+        Entry entry = new Entry();
+        cartRepository.findWithItemsByUserId(userId).ifPresent(cart -> {
+            for (CartItem item : cart.getItems()) {
+                entry.lines.put(item.getProduct().getId(), new Line(toDTO(item.getProduct()), item.getQuantity()));
+            }
+        });
+        return entry;
+    }
+
+    private void flushAll() {
+        List<Pending> pending = new ArrayList<>();
+        carts.forEach((userId, entry) -> {
+            synchronized (lock(userId)) {
+                if (entry.isDirty()) {
+                    pending.add(new Pending(userId, entry, entry.version, copyLines(entry)));
+                }
+            }
+        });
+        for (int from = 0; from < pending.size(); from += flushBatchSize) {
+            List<Pending> batch = pending.subList(from, Math.min(from + flushBatchSize, pending.size()));
+            try {
+                write(batch);
+            } catch (Exception e) {
+                // Write the carts one by one so a single bad cart does not hold back the others
+                logger.warn("Batched cart flush failed, retrying cart by cart: {}", e.toString());
+                batch.forEach(this::writeAlone);
+            }
+        }
+    }
+
+    private void writeAlone(Pending cart) {
+        try {
+            write(List.of(cart));
+            return;
+        } catch (DataIntegrityViolationException e) {
+            // A product deleted since it was added fails the foreign key; drop it below
+        } catch (Exception e) {
+            logger.error("Failed to flush cart of user {}, retrying on the next run", cart.userId, e);
+            return;
+        }
+
+        Set<Long> missing = new HashSet<>(cart.lines.keySet());
+        productRepository.findAllById(cart.lines.keySet()).forEach(product -> missing.remove(product.getId()));
+        Pending pruned = missing.isEmpty() ? null : prune(cart, missing);
+        if (pruned != null) {
+            try {
+                write(List.of(pruned));
+                logger.warn("Dropped deleted products {} from the cart of user {}", missing, cart.userId);
+                return;
+            } catch (Exception e) {
+                logger.error("Failed to flush cart of user {} after dropping deleted products", cart.userId, e);
+            }
+        }
+        // Would fail the same way on every run: stop retrying so the cart can be evicted and reloaded
+        long failedVersion = pruned != null ? pruned.version : cart.version;
+        synchronized (lock(cart.userId)) {
+            cart.entry.flushedVersion = Math.max(cart.entry.flushedVersion, failedVersion);
+        }
+        logger.error("Cart of user {} cannot be saved, discarding its unsaved changes {}",
+                cart.userId, cart.lines.keySet());
+    }
+
+    private Pending prune(Pending cart, Set<Long> productIds) {
+        synchronized (lock(cart.userId)) {
+            Entry entry = cart.entry;
+            if (entry.lines.keySet().removeAll(productIds)) {
+                entry.version++;
+            }
+            return new Pending(cart.userId, entry, entry.version, copyLines(entry));
+        }
+    }
+
+    private void write(List<Pending> batch) {
+        transactionTemplate.executeWithoutResult(tx -> {
+            Map<Long, Cart> stored = cartRepository.findWithItemsByUserIdIn(
+                            batch.stream().map(p -> p.userId).collect(Collectors.toList())).stream()
+                    .collect(Collectors.toMap(cart -> cart.getUser().getId(), Function.identity()));
+            for (Pending pending : batch) {
+                Cart cart = stored.get(pending.userId);
+                if (cart == null) {
+                    if (pending.lines.isEmpty()) {
+                        continue;
+                    }
+                    cart = new Cart();
+                    cart.setUser(userRepository.getReferenceById(pending.userId));
+                }
+                apply(cart, pending.lines);
+                cartRepository.save(cart);
+            }
+        });
+        for (Pending pending : batch) {
+            synchronized (lock(pending.userId)) {
+                pending.entry.flushedVersion = Math.max(pending.entry.flushedVersion, pending.version);
+            }
+        }
+    }
+
+    // Prices come from the catalog, so no product row is loaded
+    private void apply(Cart cart, Map<Long, PendingLine> lines) {
+        Map<Long, CartItem> items = new LinkedHashMap<>();
+        cart.getItems().removeIf(item -> !lines.containsKey(item.getProduct().getId()));
+        cart.getItems().forEach(item -> items.put(item.getProduct().getId(), item));
+
+        BigDecimal total = BigDecimal.ZERO;
+        for (Map.Entry<Long, PendingLine> line : lines.entrySet()) {
+            CartItem item = items.get(line.getKey());
+            if (item == null) {
+                item = new CartItem();
+                item.setCart(cart);
+                item.setProduct(productRepository.getReferenceById(line.getKey()));
+                cart.getItems().add(item);
+            }
+            item.setQuantity(line.getValue().quantity);
+            item.setSubTotal(line.getValue().subTotal);
+            total = total.add(line.getValue().subTotal);
+        }
+        cart.setTotalAmount(total);
+    }
+
+    private Map<Long, PendingLine> copyLines(Entry entry) {
+        Map<Long, PendingLine> copy = new LinkedHashMap<>();
+        entry.lines.forEach((productId, line) -> copy.put(productId,
+                new PendingLine(line.getQuantity(), currentProduct(productId, line).getPrice()
+                        .multiply(BigDecimal.valueOf(line.getQuantity())))));
+        return copy;
+    }
+
+    private void evictIdle(long idleBefore) {
+        carts.forEach((userId, entry) -> {
+            if (entry.lastAccess < idleBefore) {
+                synchronized (lock(userId)) {
+                    if (!entry.isDirty()) {
+                        carts.remove(userId, entry);
+                    }
+                }
+            }
+        });
+    }
+
+    private Object lock(Long userId) {
+        return locks[Math.floorMod(userId.hashCode(), locks.length)];
+    }
+
+    private static ProductDTO toDTO(Product product) {
+        ProductDTO dto = new ProductDTO();
+        dto.setId(product.getId());
+        dto.setName(product.getName());
+        dto.setImageUrl(product.getImageUrl());
+        dto.setPrice(product.getPrice());
+        dto.setStock(product.getStock());
+        return dto;
+    }
+
+    public static final class Line {
+        private final ProductDTO product;
+        private int quantity;
+
+        public Line(ProductDTO product, int quantity) {
+            this.product = product;
+            this.quantity = quantity;
+        }
+
+        public ProductDTO getProduct() {
+            return product;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public void setQuantity(int quantity) {
+            this.quantity = quantity;
+        }
+    }
+
+    // Guarded by the user's lock stripe
+    private static final class Entry {
+        private final Map<Long, Line> lines = new LinkedHashMap<>();
+        private long version;
+        private long flushedVersion;
+        private volatile long lastAccess;
+
+        private boolean isDirty() {
+            return version != flushedVersion;
+        }
+    }
+
+    private static final class Pending {
+        private final Long userId;
+        private final Entry entry;
+        private final long version;
+        private final Map<Long, PendingLine> lines;
+
+        private Pending(Long userId, Entry entry, long version, Map<Long, PendingLine> lines) {
+            this.userId = userId;
+            this.entry = entry;
+            this.version = version;
+            this.lines = lines;
+        }
+    }
+
+    private static final class PendingLine {
+        private final int quantity;
+        private final BigDecimal subTotal;
+
+        private PendingLine(int quantity, BigDecimal subTotal) {
+            this.quantity = quantity;
+            this.subTotal = subTotal;
+        }
+    }
+}
@@ -1,159 +1,115 @@
 package com.bakeryshop.service.impl;
 
 import com.bakeryshop.dto.CartItemDTO;
-import com.bakeryshop.entity.Cart;
-import com.bakeryshop.entity.CartItem;
-import com.bakeryshop.entity.Product;
-import com.bakeryshop.entity.User;
-import com.bakeryshop.repository.CartRepository;
-import com.bakeryshop.repository.ProductRepository;
-import com.bakeryshop.repository.UserRepository;
+import com.bakeryshop.dto.ProductDTO;
 import com.bakeryshop.service.CartService;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
 public class CartServiceImpl implements CartService {
-    private final CartRepository cartRepository;
-    private final UserRepository userRepository;
-    private final ProductRepository productRepository;
-
-    public CartServiceImpl(CartRepository cartRepository,
-                         UserRepository userRepository,
-                         ProductRepository productRepository) {
-        this.cartRepository = cartRepository;
-        this.userRepository = userRepository;
-        this.productRepository = productRepository;
+    private final CartCache cartCache;
+
+    public CartServiceImpl(CartCache cartCache) {
+        this.cartCache = cartCache;
     }
 
     @Override
-    @Transactional
     public void addToCart(Long userId, Long productId, Integer quantity) {
-        Cart cart = getOrCreateCart(userId);
-        Product product = productRepository.findById(productId)
+        // Stock is checked against the catalog snapshot; checkout reserves against the database
+        ProductDTO product = cartCache.findProduct(productId)
                 .orElseThrow(() -> new RuntimeException("Không tìm thấy sản phẩm"));
 
         if (product.getStock() < quantity) {
             throw new RuntimeException("Số lượng sản phẩm trong kho không đủ");
         }
 
-        CartItem existingItem = cart.getItems().stream()
-                .filter(item -> item.getProduct().getId().equals(productId))
-                .findFirst()
-                .orElse(null);
-
-        if (existingItem != null) {
-            int newQuantity = existingItem.getQuantity() + quantity;
-            if (product.getStock() < newQuantity) {
-                throw new RuntimeException("Số lượng sản phẩm trong kho không đủ");
+        cartCache.update(userId, lines -> {
+            CartCache.Line existingLine = lines.get(productId);
+            if (existingLine != null) {
+                int newQuantity = existingLine.getQuantity() + quantity;
+                if (product.getStock() < newQuantity) {
+                    throw new RuntimeException("Số lượng sản phẩm trong kho không đủ");
+                }
+                existingLine.setQuantity(newQuantity);
+            } else {
+                lines.put(productId, new CartCache.Line(product, quantity));
             }
-            existingItem.setQuantity(newQuantity);
-            existingItem.updateSubTotal();
-        } else {
-            CartItem cartItem = new CartItem();
-            cartItem.setProduct(product);
-            cartItem.setQuantity(quantity);
-            cartItem.updateSubTotal();
-            cart.addItem(cartItem);
-        }
-
-        cart.updateTotalAmount();
-        cartRepository.save(cart);
+        });
     }
 
     @Override
-    @Transactional
     public void updateCartItem(Long userId, Long cartItemId, Integer quantity) {
-        Cart cart = getCart(userId);
-        CartItem cartItem = cart.getItems().stream()
-                .filter(item -> item.getId().equals(cartItemId))
-                .findFirst()
-                .orElseThrow(() -> new RuntimeException("Không tìm thấy sản phẩm trong giỏ hàng"));
-
-        if (cartItem.getProduct().getStock() < quantity) {
-            throw new RuntimeException("Số lượng sản phẩm trong kho không đủ");
-        }
-
-        cartItem.setQuantity(quantity);
-        cartItem.updateSubTotal();
-        cart.updateTotalAmount();
-        cartRepository.save(cart);
+        cartCache.update(userId, lines -> {
+            CartCache.Line line = getLine(lines, cartItemId);
+            if (cartCache.currentProduct(cartItemId, line).getStock() < quantity) {
+                throw new RuntimeException("Số lượng sản phẩm trong kho không đủ");
+            }
+            line.setQuantity(quantity);
+        });
     }
 
     @Override
-    @Transactional
     public void removeFromCart(Long userId, Long cartItemId) {
-        Cart cart = getCart(userId);
-        CartItem cartItem = cart.getItems().stream()
-                .filter(item -> item.getId().equals(cartItemId))
-                .findFirst()
-                .orElseThrow(() -> new RuntimeException("Không tìm thấy sản phẩm trong giỏ hàng"));
-        
-        cart.removeItem(cartItem);
-        cartRepository.save(cart);
+        cartCache.update(userId, lines -> {
+            getLine(lines, cartItemId);
+            lines.remove(cartItemId);
+        });
     }
 
     @Override
-    @Transactional
     public void clearCart(Long userId) {
-        Cart cart = getCart(userId);
-        cart.clearItems();
-        cartRepository.save(cart);
+        cartCache.clear(userId);
     }
 
     @Override
     public List<CartItemDTO> getCartItems(Long userId) {
-        Cart cart = getCart(userId);
-        return cart.getItems().stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return cartCache.read(userId, lines -> lines.entrySet().stream()
+                .map(line -> convertToDTO(line.getKey(), line.getValue()))
+                .collect(Collectors.toList()));
     }
 
     @Override
     public Integer getCartItemCount(Long userId) {
-        Cart cart = getCart(userId);
-        return cart.getItems().stream()
-                .mapToInt(CartItem::getQuantity)
-                .sum();
+        return cartCache.read(userId, lines -> lines.values().stream()
+                .mapToInt(CartCache.Line::getQuantity)
+                .sum());
     }
 
     @Override
     public Double calculateTotal(Long userId) {
-        Cart cart = getCart(userId);
-        return cart.getItems().stream()
-                .mapToDouble(item -> item.getSubTotal().doubleValue())
-                .sum();
+        return cartCache.read(userId, lines -> lines.entrySet().stream()
+                .mapToDouble(line -> subTotal(line.getKey(), line.getValue()).doubleValue())
+                .sum());
     }
 
-    private Cart getCart(Long userId) {
-        return cartRepository.findByUserId(userId)
-                .orElseThrow(() -> new RuntimeException("Không tìm thấy giỏ hàng"));
+    // Cart lines are keyed by product, which is also the id handed out as the cart item id
+    private CartCache.Line getLine(Map<Long, CartCache.Line> lines, Long cartItemId) {
+        CartCache.Line line = lines.get(cartItemId);
+        if (line == null) {
+            throw new RuntimeException("Không tìm thấy sản phẩm trong giỏ hàng");
+        }
+        return line;
     }
 
-    private Cart getOrCreateCart(Long userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("Không tìm thấy người dùng"));
-
-        return cartRepository.findByUserId(userId)
-                .orElseGet(() -> {
-                    Cart newCart = new Cart();
-                    newCart.setUser(user);
-                    return cartRepository.save(newCart);
-                });
+    private BigDecimal subTotal(Long productId, CartCache.Line line) {
+        return cartCache.currentProduct(productId, line).getPrice().multiply(BigDecimal.valueOf(line.getQuantity()));
     }
 
-    private CartItemDTO convertToDTO(CartItem cartItem) {
+    private CartItemDTO convertToDTO(Long productId, CartCache.Line line) {
+        ProductDTO product = cartCache.currentProduct(productId, line);
         CartItemDTO dto = new CartItemDTO();
-        dto.setId(cartItem.getId());
-        dto.setProductId(cartItem.getProduct().getId());
-        dto.setProductName(cartItem.getProduct().getName());
-        dto.setProductImage(cartItem.getProduct().getImageUrl());
-        dto.setQuantity(cartItem.getQuantity());
-        dto.setPrice(cartItem.getProduct().getPrice());
-        dto.setSubTotal(cartItem.getSubTotal());
+        dto.setId(productId);
+        dto.setProductId(productId);
+        dto.setProductName(product.getName());
+        dto.setProductImage(product.getImageUrl());
+        dto.setQuantity(line.getQuantity());
+        dto.setPrice(product.getPrice());
+        dto.setSubTotal(subTotal(productId, line));
         return dto;
     }
-} 
\ No newline at end of file
+}
\ No newline at end of file
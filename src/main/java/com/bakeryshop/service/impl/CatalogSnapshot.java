@@ -0,0 +1,184 @@
+package com.bakeryshop.service.impl;
+
+import com.bakeryshop.dto.ProductDTO;
+import com.bakeryshop.entity.Product;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Immutable column-oriented copy of the active catalog. Row i of every array describes the
+ * same product; the sort orders are precomputed permutations of the row indexes.
+ * The ProductDTOs are shared between requests and must be treated as read-only.
+ */
+public final class CatalogSnapshot {
+    public static final int BEST_SELLER = 1;
+    public static final int NEW_ARRIVAL = 2;
+
+    public enum SortOrder {
+        NEWEST, PRICE_ASC, PRICE_DESC,
+        // Keep the order of the matchingIds passed to query
+        RELEVANCE
+    }
+
+    private final long[] ids;
+    private final long[] priceCents;
+    private final long[] categoryIds;
+    private final long[] createdAt;
+    private final byte[] flags;
+    private final ProductDTO[] products;
+    private final Map<Long, Integer> rowsById;
+    private final int[] byNewest;
+    private final int[] byPriceAsc;
+
+    private CatalogSnapshot(List<Product> source) {
+        int n = source.size();
+        ids = new long[n];
+        priceCents = new long[n];
+        categoryIds = new long[n];
+        createdAt = new long[n];
+        flags = new byte[n];
+        products = new ProductDTO[n];
+        rowsById = new HashMap<>(n * 2);
+
+        for (int i = 0; i < n; i++) {
+            Product product = source.get(i);
+            ids[i] = product.getId();
+            priceCents[i] = product.getPrice().movePointRight(2).longValue();
+            categoryIds[i] = product.getCategory().getId();
+            createdAt[i] = product.getCreatedAt() != null
+                    ? product.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                    : 0L;
+            flags[i] = (byte) ((product.isBestSeller() ? BEST_SELLER : 0) | (product.isNewArrival() ? NEW_ARRIVAL : 0));
+            products[i] = toDTO(product);
+            rowsById.put(ids[i], i);
+        }
+
+        byNewest = sortedRows(Comparator.<Integer>comparingLong(i -> -createdAt[i]).thenComparingLong(i -> -ids[i]));
+        byPriceAsc = sortedRows(Comparator.<Integer>comparingLong(i -> priceCents[i]).thenComparingLong(i -> ids[i]));
+    }
+
+    public static CatalogSnapshot of(List<Product> activeProducts) {
+        return new CatalogSnapshot(activeProducts);
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public ProductDTO get(Long productId) {
+        Integer row = rowsById.get(productId);
+        return row != null ? products[row] : null;
+    }
+
+    /**
+     * Filters and pages the catalog. Null arguments disable the corresponding filter;
+     * matchingIds restricts the result to those products (e.g. search hits) and price bounds
+     * are inclusive and expressed in cents.
+     */
+    public Page<ProductDTO> query(Long categoryId, List<Long> matchingIds, Long minPriceCents, Long maxPriceCents,
+                                  int requiredFlags, SortOrder sortOrder, Pageable pageable) {
+        int[] order;
+        boolean reverse = false;
+        boolean[] allowed = null;
+        if (sortOrder == SortOrder.RELEVANCE && matchingIds != null) {
+            order = rowsOf(matchingIds);
+        } else {
+            order = sortOrder == SortOrder.PRICE_ASC || sortOrder == SortOrder.PRICE_DESC ? byPriceAsc : byNewest;
+            reverse = sortOrder == SortOrder.PRICE_DESC;
+            if (matchingIds != null) {
+                allowed = new boolean[ids.length];
+                for (int row : rowsOf(matchingIds)) {
+                    allowed[row] = true;
+                }
+            }
+        }
+
+        long category = categoryId != null ? categoryId : -1L;
+        long min = minPriceCents != null ? minPriceCents : Long.MIN_VALUE;
+        long max = maxPriceCents != null ? maxPriceCents : Long.MAX_VALUE;
+        long first = pageable.getOffset();
+        long last = first + pageable.getPageSize();
+
+        List<ProductDTO> content = new ArrayList<>(pageable.getPageSize());
+        long matched = 0;
+        for (int k = 0, n = order.length; k < n; k++) {
+            int i = reverse ? order[n - 1 - k] : order[k];
+            if (allowed != null && !allowed[i]) {
+                continue;
+            }
+            if (categoryId != null && categoryIds[i] != category) {
+                continue;
+            }
+            if (priceCents[i] < min || priceCents[i] > max) {
+                continue;
+            }
+            if ((flags[i] & requiredFlags) != requiredFlags) {
+                continue;
+            }
+            if (matched >= first && matched < last) {
+                content.add(products[i]);
+            }
+            matched++;
+        }
+        return new PageImpl<>(content, pageable, matched);
+    }
+
+    public static Long toCents(Double amount, boolean roundUp) {
+        if (amount == null || amount <= 0) {
+            return null;
+        }
+        return BigDecimal.valueOf(amount).movePointRight(2)
+                .setScale(0, roundUp ? RoundingMode.CEILING : RoundingMode.FLOOR)
+                .longValue();
+    }
+
+    // Ids that are not in the snapshot (inactive or not yet rebuilt) are skipped
+    private int[] rowsOf(List<Long> productIds) {
+        int[] rows = new int[productIds.size()];
+        int n = 0;
+        for (Long productId : productIds) {
+            Integer row = rowsById.get(productId);
+            if (row != null) {
+                rows[n++] = row;
+            }
+        }
+        return Arrays.copyOf(rows, n);
+    }
+
+    private int[] sortedRows(Comparator<Integer> comparator) {
+        return IntStream.range(0, ids.length).boxed()
+                .sorted(comparator)
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    private static ProductDTO toDTO(Product product) {
+        ProductDTO dto = new ProductDTO();
+        dto.setId(product.getId());
+        dto.setName(product.getName());
+        dto.setDescription(product.getDescription());
+        dto.setPrice(product.getPrice());
+        dto.setImageUrl(product.getImageUrl());
+        dto.setBestSeller(product.isBestSeller());
+        dto.setNewArrival(product.isNewArrival());
+        dto.setStock(product.getStock());
+        dto.setCategoryId(product.getCategory().getId());
+        dto.setCategoryName(product.getCategory().getName());
+        dto.setActive(product.isActive());
+        dto.setCreatedAt(product.getCreatedAt());
+        dto.setUpdatedAt(product.getUpdatedAt());
+        return dto;
+    }
+}
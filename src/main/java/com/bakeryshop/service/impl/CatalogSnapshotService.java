@@ -0,0 +1,70 @@
+package com.bakeryshop.service.impl;
+
+import com.bakeryshop.event.CatalogChangedEvent;
+import com.bakeryshop.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Holds the current {@link CatalogSnapshot}. Writers never modify a published snapshot;
+ * a rebuild loads the active catalog and swaps the reference in one volatile write.
+ */
+@Component
+public class CatalogSnapshotService {
+    private static final Logger logger = LoggerFactory.getLogger(CatalogSnapshotService.class);
+
+    private final ProductRepository productRepository;
+    private final TaskExecutor rebuildExecutor;
+    private volatile CatalogSnapshot snapshot;
+
+    public CatalogSnapshotService(ProductRepository productRepository,
+                                  @Qualifier("catalogRebuildExecutor") TaskExecutor rebuildExecutor) {
+        this.productRepository = productRepository;
+        this.rebuildExecutor = rebuildExecutor;
+    }
+
+    // Null until the first build has finished; callers fall back to the database
+    public CatalogSnapshot current() {
+        return snapshot;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        requestRebuild();
+    }
+
+    // Stock moves with every order and is not worth a rebuild each time; refresh it periodically instead
+    @Scheduled(initialDelayString = "${app.catalog.refresh-interval-ms:60000}",
+               fixedDelayString = "${app.catalog.refresh-interval-ms:60000}")
+    public void refresh() {
+        requestRebuild();
+    }
+
+    public void requestRebuild() {
+        rebuildExecutor.execute(this::rebuild);
+    }
+
+    private void rebuild() {
+        try {
+            long start = System.nanoTime();
+            CatalogSnapshot next = CatalogSnapshot.of(productRepository.findAllActiveWithCategory());
+            snapshot = next;
+            logger.debug("Catalog snapshot rebuilt with {} products in {} ms",
+                    next.size(), (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            logger.error("Failed to rebuild catalog snapshot, keeping the previous one", e);
+        }
+    }
+}
@@ -2,9 +2,11 @@ package com.bakeryshop.service.impl;
 
 import com.bakeryshop.dto.CategoryDTO;
 import com.bakeryshop.entity.Category;
+import com.bakeryshop.event.CatalogChangedEvent;
 import com.bakeryshop.repository.CategoryRepository;
 import com.bakeryshop.service.CategoryService;
 import com.bakeryshop.service.FileStorageService;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -18,11 +20,14 @@ import java.util.stream.Collectors;
 public class CategoryServiceImpl implements CategoryService {
     private final CategoryRepository categoryRepository;
     private final FileStorageService fileStorageService;
+    private final ApplicationEventPublisher eventPublisher;
 
     public CategoryServiceImpl(CategoryRepository categoryRepository,
-                             FileStorageService fileStorageService) {
+                             FileStorageService fileStorageService,
+                             ApplicationEventPublisher eventPublisher) {
         this.categoryRepository = categoryRepository;
         this.fileStorageService = fileStorageService;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
@@ -66,6 +71,8 @@ public class CategoryServiceImpl implements CategoryService {
         }
 
         Category updatedCategory = categoryRepository.save(category);
+        // Product rows carry the category name
+        eventPublisher.publishEvent(new CatalogChangedEvent(null));
         return convertToDTO(updatedCategory);
     }
 
@@ -0,0 +1,123 @@
+package com.bakeryshop.service.impl;
+
+import com.bakeryshop.entity.EmailOutbox;
+import com.bakeryshop.repository.EmailOutboxRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.mail.internet.MimeMessage;
+import java.time.LocalDateTime;
+
+/**
+ * Drains {@code email_outbox}. Messages are handed over right after the enqueuing transaction
+ * commits; the poller covers anything dropped by a full queue, retries and restarts.
+ */
+@Component
+public class EmailOutboxWorker {
+    private static final Logger logger = LoggerFactory.getLogger(EmailOutboxWorker.class);
+
+    private final EmailOutboxRepository outboxRepository;
+    private final JavaMailSender mailSender;
+    private final TaskExecutor executor;
+
+    @Value("${spring.mail.username}")
+    private String fromEmail;
+
+    @Value("${app.mail.outbox.max-attempts:6}")
+    private int maxAttempts;
+
+    @Value("${app.mail.outbox.initial-backoff-ms:30000}")
+    private long initialBackoffMs;
+
+    @Value("${app.mail.outbox.max-backoff-ms:3600000}")
+    private long maxBackoffMs;
+
+    @Value("${app.mail.outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${app.mail.outbox.stuck-after-ms:300000}")
+    private long stuckAfterMs;
+
+    public EmailOutboxWorker(EmailOutboxRepository outboxRepository,
+                             JavaMailSender mailSender,
+                             @Qualifier("emailOutboxExecutor") TaskExecutor executor) {
+        this.outboxRepository = outboxRepository;
+        this.mailSender = mailSender;
+        this.executor = executor;
+    }
+
+    public void dispatch(Long messageId) {
+        executor.execute(() -> deliver(messageId));
+    }
+
+    @Scheduled(fixedDelayString = "${app.mail.outbox.poll-interval-ms:10000}")
+    public void poll() {
+        LocalDateTime now = LocalDateTime.now();
+        outboxRepository.releaseStuck(EmailOutbox.Status.SENDING, EmailOutbox.Status.PENDING,
+                now.minusNanos(stuckAfterMs * 1_000_000));
+        outboxRepository.findDueIds(EmailOutbox.Status.PENDING, now, PageRequest.of(0, batchSize))
+                .forEach(this::dispatch);
+    }
+
+    private void deliver(Long messageId) {
+        if (outboxRepository.claim(messageId, EmailOutbox.Status.PENDING, EmailOutbox.Status.SENDING,
+                LocalDateTime.now()) == 0) {
+            return;
+        }
+
+        EmailOutbox message = outboxRepository.findById(messageId).orElse(null);
+        if (message == null) {
+            return;
+        }
+
+        try {
+            send(message);
+            message.setStatus(EmailOutbox.Status.SENT);
+            message.setSentAt(LocalDateTime.now());
+            message.setLastError(null);
+        } catch (Exception e) {
+            int attempts = message.getAttempts() + 1;
+            message.setAttempts(attempts);
+            message.setLastError(abbreviate(e.toString()));
+            if (attempts >= maxAttempts) {
+                message.setStatus(EmailOutbox.Status.DEAD);
+                logger.error("Giving up on email {} to {} after {} attempts", messageId, message.getRecipient(), attempts, e);
+            } else {
+                message.setStatus(EmailOutbox.Status.PENDING);
+                message.setNextAttemptAt(LocalDateTime.now().plusNanos(backoffMs(attempts) * 1_000_000));
+                logger.warn("Email {} failed (attempt {}), retrying later: {}", messageId, attempts, e.toString());
+            }
+        }
+        message.setLockedAt(null);
+        outboxRepository.save(message);
+    }
+
+    private void send(EmailOutbox message) throws Exception {
+        MimeMessage mimeMessage = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, true, "UTF-8");
+
+        helper.setFrom(fromEmail);
+        helper.setTo(message.getRecipient());
+        helper.setSubject(message.getSubject());
+        helper.setText(message.getBody(), true);
+
+        mailSender.send(mimeMessage);
+    }
+
+    private long backoffMs(int attempts) {
+        long delay = initialBackoffMs << Math.min(attempts - 1, 20);
+        return Math.min(delay, maxBackoffMs);
+    }
+
+    private String abbreviate(String error) {
+        return error.length() <= 1000 ? error : error.substring(0, 1000);
+    }
+}
@@ -1,32 +1,34 @@
 package com.bakeryshop.service.impl;
 
+import com.bakeryshop.entity.EmailOutbox;
 import com.bakeryshop.entity.Order;
 import com.bakeryshop.entity.User;
+import com.bakeryshop.repository.EmailOutboxRepository;
 import com.bakeryshop.service.EmailService;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.thymeleaf.TemplateEngine;
 import org.thymeleaf.context.Context;
 
-import javax.mail.MessagingException;
-import javax.mail.internet.MimeMessage;
+import java.time.LocalDateTime;
 
 @Service
 public class EmailServiceImpl implements EmailService {
-    private final JavaMailSender mailSender;
     private final TemplateEngine templateEngine;
-
-    @Value("${spring.mail.username}")
-    private String fromEmail;
+    private final EmailOutboxRepository outboxRepository;
+    private final EmailOutboxWorker outboxWorker;
 
     @Value("${app.url}")
     private String appUrl;
 
-    public EmailServiceImpl(JavaMailSender mailSender, TemplateEngine templateEngine) {
-        this.mailSender = mailSender;
+    public EmailServiceImpl(TemplateEngine templateEngine,
+                          EmailOutboxRepository outboxRepository,
+                          EmailOutboxWorker outboxWorker) {
         this.templateEngine = templateEngine;
+        this.outboxRepository = outboxRepository;
+        this.outboxWorker = outboxWorker;
     }
 
     @Override
@@ -97,19 +99,24 @@ public class EmailServiceImpl implements EmailService {
             "Cập nhật trạng thái thanh toán đơn hàng #" + order.getId(), emailContent);
     }
 
+    // Rendered mail is queued in the caller's transaction and only delivered after it commits
     private void sendEmail(String to, String subject, String content) {
-        try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-
-            helper.setFrom(fromEmail);
-            helper.setTo(to);
-            helper.setSubject(subject);
-            helper.setText(content, true);
-
-            mailSender.send(message);
-        } catch (MessagingException e) {
-            throw new RuntimeException("Failed to send email", e);
+        EmailOutbox message = new EmailOutbox();
+        message.setRecipient(to);
+        message.setSubject(subject);
+        message.setBody(content);
+        message.setNextAttemptAt(LocalDateTime.now());
+        Long messageId = outboxRepository.save(message).getId();
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    outboxWorker.dispatch(messageId);
+                }
+            });
+        } else {
+            outboxWorker.dispatch(messageId);
         }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,193 @@
+package com.bakeryshop.service.impl;
+
+import com.bakeryshop.entity.Product;
+import com.bakeryshop.entity.StockReservation;
+import com.bakeryshop.event.CatalogChangedEvent;
+import com.bakeryshop.repository.ProductRepository;
+import com.bakeryshop.repository.StockReservationRepository;
+import com.bakeryshop.util.StripedCounter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Opt-in inventory for products listed in {@code app.inventory.hot-product-ids}. Their stock
+ * is held in {@link StripedCounter}s, so checkouts do not queue on the {@code products} row
+ * lock. Each movement is written to {@code stock_reservation_journal} in the order's
+ * transaction. The journal is applied to {@code products.stock} in coalesced batches and
+ * replayed on startup. Until the counters are loaded, every product is handled by the
+ * database as usual.
+ */
+@Component
+public class HotStockInventory {
+    private static final Logger logger = LoggerFactory.getLogger(HotStockInventory.class);
+
+    private final ProductRepository productRepository;
+    private final StockReservationRepository journal;
+    private final Set<Long> hotProductIds;
+    private final int stripes;
+    private final Map<Long, StripedCounter> counters = new ConcurrentHashMap<>();
+
+    @Value("${app.inventory.flush-batch-size:5000}")
+    private int flushBatchSize;
+
+    public HotStockInventory(ProductRepository productRepository,
+                             StockReservationRepository journal,
+                             @Value("${app.inventory.hot-product-ids:}") Set<Long> hotProductIds,
+                             @Value("${app.inventory.stripes:8}") int stripes) {
+        this.productRepository = productRepository;
+        this.journal = journal;
+        this.hotProductIds = hotProductIds;
+        this.stripes = stripes;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (hotProductIds.isEmpty()) {
+            return;
+        }
+        // Replay what a previous run journaled but never applied, then start from products.stock
+        int replayed = flushAll();
+        for (Product product : productRepository.findAllById(hotProductIds)) {
+            counters.put(product.getId(), new StripedCounter(stripes, stockOf(product)));
+        }
+        logger.info("Hot stock counters loaded for products {} ({} journal rows replayed)",
+                counters.keySet(), replayed);
+    }
+
+    public Set<Long> hotProductIds() {
+        return counters.keySet();
+    }
+
+    public boolean isHot(Long productId) {
+        return counters.containsKey(productId);
+    }
+
+    /** Removes the hot lines from {@code quantities} and returns them. */
+    public Map<Long, Integer> extractHot(Map<Long, Integer> quantities) {
+        Map<Long, Integer> hot = new LinkedHashMap<>();
+        if (counters.isEmpty()) {
+            return hot;
+        }
+        for (Iterator<Map.Entry<Long, Integer>> it = quantities.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Long, Integer> line = it.next();
+            if (isHot(line.getKey())) {
+                hot.put(line.getKey(), line.getValue());
+                it.remove();
+            }
+        }
+        return hot;
+    }
+
+    public long available(Long productId) {
+        StripedCounter counter = counters.get(productId);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    /**
+     * Reserves every line or none. Must run inside the order transaction: the journal rows
+     * commit with the order, and the counters are refunded if it rolls back.
+     */
+    public boolean reserve(Map<Long, Integer> lines) {
+        if (lines.isEmpty()) {
+            return true;
+        }
+        List<Map.Entry<Long, Integer>> granted = new ArrayList<>(lines.size());
+        for (Map.Entry<Long, Integer> line : lines.entrySet()) {
+            if (!counters.get(line.getKey()).tryAcquire(line.getValue())) {
+                granted.forEach(g -> counters.get(g.getKey()).release(g.getValue()));
+                return false;
+            }
+            granted.add(line);
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    lines.forEach((id, qty) -> counters.get(id).release(qty));
+                }
+            }
+        });
+        journal.saveAll(toJournal(lines, 1));
+        return true;
+    }
+
+    /** Journals the release; the stock becomes available again once the transaction commits. */
+    public void release(Map<Long, Integer> lines) {
+        if (lines.isEmpty()) {
+            return;
+        }
+        journal.saveAll(toJournal(lines, -1));
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                lines.forEach((id, qty) -> counters.get(id).release(qty));
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${app.inventory.flush-interval-ms:1000}")
+    public void flush() {
+        if (counters.isEmpty()) {
+            return;
+        }
+        try {
+            flushAll();
+        } catch (Exception e) {
+            logger.error("Failed to flush stock reservation journal, retrying on the next run", e);
+        }
+    }
+
+    // Stock edited outside checkout (admin screens): apply the same change to the counter.
+    // Other product edits leave it alone, and no database read is needed
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (event.getStockDelta() == null || event.getProductId() == null || !isHot(event.getProductId())) {
+            return;
+        }
+        counters.get(event.getProductId()).adjust(event.getStockDelta());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!counters.isEmpty()) {
+            flushAll();
+        }
+    }
+
+    private int flushAll() {
+        int total = 0;
+        int flushed;
+        do {
+            flushed = journal.flushToProducts(flushBatchSize);
+            total += flushed;
+        } while (flushed == flushBatchSize);
+        return total;
+    }
+
+    private static List<StockReservation> toJournal(Map<Long, Integer> lines, int sign) {
+        List<StockReservation> rows = new ArrayList<>(lines.size());
+        lines.forEach((id, qty) -> rows.add(new StockReservation(id, sign * qty)));
+        return rows;
+    }
+
+    private static long stockOf(Product product) {
+        return product.getStock() == null ? 0 : product.getStock();
+    }
+}
@@ -0,0 +1,156 @@
+package com.bakeryshop.service.impl;
+
+import com.bakeryshop.entity.IdempotencyKey;
+import com.bakeryshop.exception.DuplicateRequestException;
+import com.bakeryshop.repository.IdempotencyKeyRepository;
+import com.bakeryshop.service.IdempotencyService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Recent keys are answered from memory, where a request still running holds an incomplete
+ * future that duplicates wait on. Older keys, and keys used on another instance, are found
+ * in {@code idempotency_keys}; its unique index also blocks a concurrent duplicate on another
+ * instance until the first transaction ends.
+ */
+@Service
+public class IdempotencyServiceImpl implements IdempotencyService {
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<String, Entry> recent = new ConcurrentHashMap<>();
+
+    @Value("${app.idempotency.cache-ttl-ms:600000}")
+    private long cacheTtlMs;
+
+    @Value("${app.idempotency.cache-max-size:10000}")
+    private int cacheMaxSize;
+
+    @Value("${app.idempotency.wait-ms:30000}")
+    private long waitMs;
+
+    @Value("${app.idempotency.retention-hours:24}")
+    private long retentionHours;
+
+    public IdempotencyServiceImpl(IdempotencyKeyRepository idempotencyKeyRepository,
+                                  PlatformTransactionManager transactionManager) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public Long createOnce(Long userId, String key, Supplier<Long> createOrder) {
+        if (key == null || key.isBlank()) {
+            return createOrder.get();
+        }
+        if (key.length() > 100) {
+            throw new IllegalArgumentException("Idempotency key must be at most 100 characters");
+        }
+
+        String cacheKey = userId + ":" + key;
+        long now = System.currentTimeMillis();
+        if (recent.size() >= cacheMaxSize) {
+            recent.values().removeIf(e -> e.isStale(now));
+        }
+        Entry mine = new Entry(now + cacheTtlMs);
+        Entry existing = recent.putIfAbsent(cacheKey, mine);
+        if (existing != null && existing.isStale(now) && recent.replace(cacheKey, existing, mine)) {
+            existing = null;
+        }
+        if (existing != null) {
+            return await(existing);
+        }
+
+        try {
+            Long orderId = createOrFind(userId, key, createOrder);
+            mine.result.complete(orderId);
+            return orderId;
+        } catch (RuntimeException e) {
+            // Nothing was stored, so the same key may be retried
+            recent.remove(cacheKey, mine);
+            mine.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public String newKey() {
+        return UUID.randomUUID().toString();
+    }
+
+    @Scheduled(fixedDelayString = "${app.idempotency.cleanup-interval-ms:3600000}")
+    public void cleanup() {
+        long now = System.currentTimeMillis();
+        recent.values().removeIf(e -> e.isStale(now));
+        idempotencyKeyRepository.deleteCreatedBefore(LocalDateTime.now().minusHours(retentionHours));
+    }
+
+    private Long createOrFind(Long userId, String key, Supplier<Long> createOrder) {
+        Long stored = idempotencyKeyRepository.findByUserIdAndKey(userId, key)
+                .map(IdempotencyKey::getOrderId)
+                .orElse(null);
+        if (stored != null) {
+            return stored;
+        }
+
+        try {
+            return transactionTemplate.execute(tx -> {
+                IdempotencyKey claim = new IdempotencyKey();
+                claim.setUserId(userId);
+                claim.setKey(key);
+                idempotencyKeyRepository.saveAndFlush(claim);
+                Long orderId = createOrder.get();
+                claim.setOrderId(orderId);
+                return orderId;
+            });
+        } catch (DataIntegrityViolationException e) {
+            // The same key was committed by another instance first
+            return idempotencyKeyRepository.findByUserIdAndKey(userId, key)
+                    .map(IdempotencyKey::getOrderId)
+                    .orElseThrow(() -> e);
+        }
+    }
+
+    private Long await(Entry entry) {
+        try {
+            return entry.result.get(waitMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new DuplicateRequestException("This order is still being processed, please check your orders");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DuplicateRequestException("This order is still being processed, please check your orders");
+        }
+    }
+
+    private static final class Entry {
+        private final CompletableFuture<Long> result = new CompletableFuture<>();
+        private final long expiresAt;
+
+        private Entry(long expiresAt) {
+            this.expiresAt = expiresAt;
+        }
+
+        // Running requests are kept so their duplicates still find them
+        private boolean isStale(long now) {
+            return expiresAt <= now && result.isDone();
+        }
+    }
+}
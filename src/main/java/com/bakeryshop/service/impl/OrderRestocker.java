@@ -0,0 +1,33 @@
+package com.bakeryshop.service.impl;
+
+import com.bakeryshop.repository.OrderRepository;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Returns the stock of cancelled or deleted orders. Each order is restocked at most once,
+ * however often it is cancelled; hot product lines go through {@link HotStockInventory}.
+ */
+@Component
+public class OrderRestocker {
+    private final OrderRepository orderRepository;
+    private final HotStockInventory hotStockInventory;
+
+    public OrderRestocker(OrderRepository orderRepository, HotStockInventory hotStockInventory) {
+        this.orderRepository = orderRepository;
+        this.hotStockInventory = hotStockInventory;
+    }
+
+    // Must run inside the transaction that cancels or deletes the orders
+    public void restock(Collection<Long> orderIds) {
+        Map<Long, Integer> released = orderRepository.releaseStock(orderIds, hotStockInventory.hotProductIds());
+        hotStockInventory.release(hotStockInventory.extractHot(released));
+    }
+
+    public void restock(Long orderId) {
+        restock(List.of(orderId));
+    }
+}
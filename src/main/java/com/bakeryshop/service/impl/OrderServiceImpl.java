@@ -1,12 +1,18 @@
 package com.bakeryshop.service.impl;
 
+import com.bakeryshop.dto.KeysetCursor;
+import com.bakeryshop.dto.KeysetSlice;
 import com.bakeryshop.dto.OrderDTO;
 import com.bakeryshop.dto.OrderItemDTO;
+import com.bakeryshop.dto.OrderStateRow;
 import com.bakeryshop.entity.Order;
 import com.bakeryshop.entity.OrderItem;
 import com.bakeryshop.entity.Product;
 import com.bakeryshop.entity.User;
+import com.bakeryshop.event.OrderPlacedEvent;
+import com.bakeryshop.exception.InsufficientStockException;
 import com.bakeryshop.exception.ResourceNotFoundException;
+import com.bakeryshop.repository.OrderReportRepository;
 import com.bakeryshop.repository.OrderRepository;
 import com.bakeryshop.repository.ProductRepository;
 import com.bakeryshop.repository.UserRepository;
@@ -14,6 +20,8 @@ import com.bakeryshop.service.CartService;
 import com.bakeryshop.service.EmailService;
 import com.bakeryshop.service.OrderService;
 import com.bakeryshop.service.ProductService;
+import com.bakeryshop.service.SalesReportService;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.PageRequest;
@@ -24,30 +32,54 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collectors;
 
 @Service
 public class OrderServiceImpl implements OrderService {
     private final OrderRepository orderRepository;
+    private final OrderReportRepository orderReportRepository;
     private final UserRepository userRepository;
     private final ProductRepository productRepository;
     private final ProductService productService;
     private final CartService cartService;
     private final EmailService emailService;
+    private final SalesReportService salesReportService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final HotStockInventory hotStockInventory;
+    private final OrderRestocker orderRestocker;
+    private final OrderStateMachine orderStateMachine;
 
     public OrderServiceImpl(OrderRepository orderRepository,
+                          OrderReportRepository orderReportRepository,
                           UserRepository userRepository,
                           ProductRepository productRepository,
                           ProductService productService,
                           CartService cartService,
-                          EmailService emailService) {
+                          EmailService emailService,
+                          SalesReportService salesReportService,
+                          ApplicationEventPublisher eventPublisher,
+                          HotStockInventory hotStockInventory,
+                          OrderRestocker orderRestocker,
+                          OrderStateMachine orderStateMachine) {
         this.orderRepository = orderRepository;
+        this.orderReportRepository = orderReportRepository;
         this.userRepository = userRepository;
         this.productRepository = productRepository;
         this.productService = productService;
         this.cartService = cartService;
         this.emailService = emailService;
+        this.salesReportService = salesReportService;
+        this.eventPublisher = eventPublisher;
+        this.hotStockInventory = hotStockInventory;
+        this.orderRestocker = orderRestocker;
+        this.orderStateMachine = orderStateMachine;
     }
 
     @Override
@@ -73,22 +105,28 @@ public class OrderServiceImpl implements OrderService {
         order.setNote(orderDTO.getNote());
         order.setCreatedAt(LocalDateTime.now());
 
-        // Calculate total and validate stock
+        // Load all products of the order in one query
+        Set<Long> productIds = orderDTO.getOrderItems().stream()
+                .map(OrderItemDTO::getProductId)
+                .collect(Collectors.toSet());
+        Map<Long, Product> products = productRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+        // Calculate total and collect the quantity to reserve per product
         BigDecimal total = BigDecimal.ZERO;
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
         for (OrderItemDTO itemDTO : orderDTO.getOrderItems()) {
-            Product product = productRepository.findById(itemDTO.getProductId())
-                    .orElseThrow(() -> new RuntimeException("Product not found: " + itemDTO.getProductId()));
-
-            // Check stock
-            if (product.getStock() < itemDTO.getQuantity()) {
-                throw new RuntimeException("Insufficient stock for product: " + product.getName() 
-                    + " (Available: " + product.getStock() + ", Required: " + itemDTO.getQuantity() + ")");
+            Product product = products.get(itemDTO.getProductId());
+            if (product == null) {
+                throw new RuntimeException("Product not found: " + itemDTO.getProductId());
             }
+            quantities.merge(product.getId(), itemDTO.getQuantity(), Integer::sum);
 
             // Create order item
             OrderItem orderItem = new OrderItem();
             orderItem.setOrder(order);
             orderItem.setProduct(product);
+            orderItem.setCategoryId(product.getCategory().getId());
             orderItem.setQuantity(itemDTO.getQuantity());
             orderItem.setPrice(product.getPrice());
             orderItem.setSubTotal(product.getPrice().multiply(BigDecimal.valueOf(itemDTO.getQuantity())));
@@ -96,17 +134,17 @@ public class OrderServiceImpl implements OrderService {
 
             // Update total
             total = total.add(orderItem.getSubTotal());
-
-            // Update stock
-            product.setStock(product.getStock() - itemDTO.getQuantity());
-            productRepository.save(product);
         }
 
+        // Reserve stock for all lines in one guarded statement
+        reserveStock(quantities, products);
+
         // Set total amount
         order.setTotalAmount(total);
 
         // Save order
         Order savedOrder = orderRepository.save(order);
+        salesReportService.recordOrderCreated(savedOrder);
 
         // Clear cart
         cartService.clearCart(userId);
@@ -124,6 +162,8 @@ public class OrderServiceImpl implements OrderService {
             savedOrder.setPaymentStatus(Order.PaymentStatus.PENDING);
             orderRepository.save(savedOrder);
         }
+        eventPublisher.publishEvent(new OrderPlacedEvent(savedOrder.getId(), savedOrder.getPaymentMethod(),
+                savedOrder.getCreatedAt()));
 
         return convertToDTO(savedOrder);
     }
@@ -144,30 +184,30 @@ public class OrderServiceImpl implements OrderService {
     @Override
     @Transactional
     public void updateOrderStatus(Long orderId, Order.OrderStatus status, String note) {
+        Order.OrderStatus previousStatus = orderStateMachine.changeStatus(orderId, status, note);
+        if (previousStatus == status) {
+            // Already in that status: nothing moved in the rollup and the customer was already told
+            return;
+        }
         Order order = findById(orderId);
-        String oldStatus = order.getStatus().toString();
-        order.setStatus(status);
-        order.setNote(note);
-        order.setUpdatedAt(LocalDateTime.now());
-        orderRepository.save(order);
+        salesReportService.recordOrderChanged(order, previousStatus, order.getPaymentMethod());
         
         // Send notification email
-        emailService.sendOrderStatusUpdateEmail(order, oldStatus, status.toString());
+        emailService.sendOrderStatusUpdateEmail(order, previousStatus.toString(), status.toString());
     }
 
     @Override
     @Transactional
     public void updatePaymentStatus(Long orderId, Order.PaymentStatus status, String note) {
+        Order.PaymentStatus previousStatus = orderStateMachine.changePaymentStatus(orderId, status, note);
+        if (previousStatus == status) {
+            return;
+        }
         Order order = findById(orderId);
-        String oldStatus = order.getPaymentStatus().toString();
-        order.setPaymentStatus(status);
-        order.setNote(note);
-        order.setUpdatedAt(LocalDateTime.now());
-        orderRepository.save(order);
 
         // Send notification email
         try {
-            emailService.sendPaymentStatusUpdateEmail(order, oldStatus, status.toString());
+            emailService.sendPaymentStatusUpdateEmail(order, previousStatus.toString(), status.toString());
         } catch (Exception e) {
             // Log error but don't fail the transaction
             e.printStackTrace();
@@ -177,46 +217,74 @@ public class OrderServiceImpl implements OrderService {
     @Override
     @Transactional
     public void updatePaymentMethod(Long orderId, Order.PaymentMethod method) {
-        Order order = findById(orderId);
-        order.setPaymentMethod(method);
-        order.setUpdatedAt(LocalDateTime.now());
-        orderRepository.save(order);
+        OrderStateRow previous = orderStateMachine.changePaymentMethod(orderId, method);
+        if (previous.getPaymentMethod() == method) {
+            return;
+        }
+        salesReportService.recordOrderChanged(findById(orderId), previous.getStatus(), previous.getPaymentMethod());
     }
 
     @Override
     @Transactional
     public void updateTransactionNo(Long orderId, String transactionNo) {
-        Order order = findById(orderId);
-        order.setTransactionNo(transactionNo);
-        order.setUpdatedAt(LocalDateTime.now());
-        orderRepository.save(order);
+        // A single UPDATE: a read-modify-save would fail on the version whenever a status change landed in between
+        if (orderRepository.updateTransactionNo(orderId, transactionNo, LocalDateTime.now()) == 0) {
+            throw new ResourceNotFoundException("Order not found with id: " + orderId);
+        }
     }
 
     @Override
     @Transactional
     public void cancelOrder(Long orderId, String reason) {
+        Order.OrderStatus previousStatus = orderStateMachine.changeStatus(orderId, Order.OrderStatus.CANCELLED, reason);
+        if (previousStatus == Order.OrderStatus.CANCELLED) {
+            return;
+        }
         Order order = findById(orderId);
-        String oldStatus = order.getStatus().toString();
-        order.setStatus(Order.OrderStatus.CANCELLED);
-        order.setNote(reason);
-        order.setUpdatedAt(LocalDateTime.now());
-        orderRepository.save(order);
+        salesReportService.recordOrderChanged(order, previousStatus, order.getPaymentMethod());
         
         // Send cancellation email
-        emailService.sendOrderStatusUpdateEmail(order, oldStatus, Order.OrderStatus.CANCELLED.toString());
+        emailService.sendOrderStatusUpdateEmail(order, previousStatus.toString(), Order.OrderStatus.CANCELLED.toString());
         
-        // Return products to stock
-        order.getItems().forEach(item -> {
-            Product product = item.getProduct();
-            product.setStock(product.getStock() + item.getQuantity());
-            productRepository.save(product);
-        });
+        // Return products to stock; a second cancel does not restock again
+        orderRestocker.restock(orderId);
+    }
+
+    @Override
+    @Transactional
+    public int expireUnpaidOrders(Collection<Long> orderIds, String reason) {
+        List<Long> candidates = orderRepository.findUnpaidIds(orderIds, Order.PaymentMethod.VNPAY,
+                Order.PaymentStatus.PENDING, Order.OrderStatus.PENDING);
+
+        // Re-checked by each update: an order paid or cancelled in the meantime is skipped
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> expiredIds = new ArrayList<>(candidates.size());
+        for (Long id : candidates) {
+            if (orderRepository.expireIfUnpaid(id, Order.OrderStatus.PENDING, Order.OrderStatus.CANCELLED,
+                    Order.PaymentStatus.PENDING, Order.PaymentStatus.FAILED, reason, now) == 1) {
+                expiredIds.add(id);
+            }
+        }
+        if (expiredIds.isEmpty()) {
+            return 0;
+        }
+
+        for (Order order : orderRepository.findAllById(expiredIds)) {
+            salesReportService.recordOrderChanged(order, Order.OrderStatus.PENDING, order.getPaymentMethod());
+            emailService.sendOrderStatusUpdateEmail(order, Order.OrderStatus.PENDING.toString(),
+                    Order.OrderStatus.CANCELLED.toString());
+        }
+
+        // Return products to stock in one statement for the whole batch
+        orderRestocker.restock(expiredIds);
+        return expiredIds.size();
     }
 
     @Override
     @Transactional
     public void deleteOrder(Long orderId) {
         Order order = findById(orderId);
+        salesReportService.recordOrderDeleted(order);
         orderRepository.delete(order);
     }
 
@@ -239,7 +307,25 @@ public class OrderServiceImpl implements OrderService {
     public Page<OrderDTO> searchOrders(Long userId, String keyword, 
             Order.OrderStatus status, Order.PaymentStatus paymentStatus, 
             Order.PaymentMethod paymentMethod, Pageable pageable) {
-        
+        return orderRepository.findAll(orderFilter(userId, keyword, status, paymentStatus, paymentMethod), pageable)
+                .map(this::convertToDTO);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public KeysetSlice<OrderDTO> searchOrdersKeyset(Long userId, String keyword,
+            Order.OrderStatus status, Order.PaymentStatus paymentStatus,
+            Order.PaymentMethod paymentMethod, String cursor, int size) {
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        List<Order> rows = orderRepository.findKeyset(
+                orderFilter(userId, keyword, status, paymentStatus, paymentMethod), position, size + 1);
+        return KeysetSlice.of(rows, position, size, Order::getCreatedAt, Order::getId)
+                .map(this::convertToDTO);
+    }
+
+    private Specification<Order> orderFilter(Long userId, String keyword,
+            Order.OrderStatus status, Order.PaymentStatus paymentStatus,
+            Order.PaymentMethod paymentMethod) {
         Specification<Order> spec = Specification.where(null);
         
         if (userId != null) {
@@ -267,8 +353,7 @@ public class OrderServiceImpl implements OrderService {
             spec = spec.and((root, query, cb) -> cb.equal(root.get("paymentMethod"), paymentMethod));
         }
         
-        return orderRepository.findAll(spec, pageable)
-                .map(this::convertToDTO);
+        return spec;
     }
 
     @Override
@@ -294,11 +379,8 @@ public class OrderServiceImpl implements OrderService {
     }
 
     @Override
-    public double calculateTotalRevenue() {
-        return orderRepository.findByStatusAndPaymentStatus(Order.OrderStatus.CONFIRMED,Order.PaymentStatus.PAID)
-                .stream()
-                .mapToDouble(order -> order.getTotalAmount().doubleValue())
-                .sum();
+    public BigDecimal calculateTotalRevenue() {
+        return orderReportRepository.sumRevenue(Order.OrderStatus.CONFIRMED, Order.PaymentStatus.PAID);
     }
 
     @Override
@@ -311,6 +393,36 @@ public class OrderServiceImpl implements OrderService {
         return orderRepository.findByStatus(status);
     }
 
+    private void reserveStock(Map<Long, Integer> quantities, Map<Long, Product> products) {
+        // Hot products are reserved from their in-memory counters, the rest in the database
+        Map<Long, Integer> cold = new LinkedHashMap<>(quantities);
+        Map<Long, Integer> hot = hotStockInventory.extractHot(cold);
+        if (!hotStockInventory.reserve(hot)) {
+            throw insufficientStock(hot, products, hotStockInventory::available);
+        }
+
+        int reserved = productRepository.reserveStock(cold);
+        if (reserved == cold.size()) {
+            return;
+        }
+
+        // Some line was short: the whole transaction rolls back, report what we can
+        throw insufficientStock(cold, products, id -> products.get(id).getStock());
+    }
+
+    // Lists the lines that are short according to available; the stock may have moved since the check failed
+    private static InsufficientStockException insufficientStock(Map<Long, Integer> lines, Map<Long, Product> products,
+                                                                ToLongFunction<Long> available) {
+        String shortLines = lines.entrySet().stream()
+                .filter(line -> available.applyAsLong(line.getKey()) < line.getValue())
+                .map(line -> products.get(line.getKey()).getName()
+                        + " (Available: " + available.applyAsLong(line.getKey())
+                        + ", Required: " + line.getValue() + ")")
+                .collect(Collectors.joining(", "));
+        return new InsufficientStockException("Insufficient stock for product: "
+                + (shortLines.isEmpty() ? "stock changed during checkout, please try again" : shortLines));
+    }
+
     private OrderDTO convertToDTO(Order order) {
         OrderDTO dto = new OrderDTO();
         dto.setId(order.getId());
@@ -0,0 +1,128 @@
+package com.bakeryshop.service.impl;
+
+import com.bakeryshop.dto.OrderStateRow;
+import com.bakeryshop.entity.Order;
+import com.bakeryshop.exception.IllegalOrderTransitionException;
+import com.bakeryshop.exception.ResourceNotFoundException;
+import com.bakeryshop.repository.OrderRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Legal order and payment status transitions. A transition is applied as a conditional
+ * UPDATE on the order's current status and version; when another writer changed the order
+ * in between, the state is re-read and the transition re-checked, up to
+ * {@code app.order.state.max-attempts} times. Setting the current status again only updates
+ * the note; callers compare the returned previous status and skip their side effects.
+ * Must run inside a transaction.
+ */
+@Component
+public class OrderStateMachine {
+    private static final Map<Order.OrderStatus, Set<Order.OrderStatus>> ORDER_TRANSITIONS =
+            new EnumMap<>(Order.OrderStatus.class);
+    private static final Map<Order.PaymentStatus, Set<Order.PaymentStatus>> PAYMENT_TRANSITIONS =
+            new EnumMap<>(Order.PaymentStatus.class);
+
+    static {
+        ORDER_TRANSITIONS.put(Order.OrderStatus.PENDING,
+                EnumSet.of(Order.OrderStatus.CONFIRMED, Order.OrderStatus.CANCELLED));
+        ORDER_TRANSITIONS.put(Order.OrderStatus.CONFIRMED,
+                EnumSet.of(Order.OrderStatus.SHIPPING, Order.OrderStatus.CANCELLED));
+        ORDER_TRANSITIONS.put(Order.OrderStatus.SHIPPING,
+                EnumSet.of(Order.OrderStatus.DELIVERED, Order.OrderStatus.CANCELLED));
+        ORDER_TRANSITIONS.put(Order.OrderStatus.DELIVERED, EnumSet.noneOf(Order.OrderStatus.class));
+        ORDER_TRANSITIONS.put(Order.OrderStatus.CANCELLED, EnumSet.noneOf(Order.OrderStatus.class));
+
+        // FAILED may still become PAID (late callback) or PENDING (customer retries the payment)
+        PAYMENT_TRANSITIONS.put(Order.PaymentStatus.PENDING,
+                EnumSet.of(Order.PaymentStatus.PAID, Order.PaymentStatus.FAILED));
+        PAYMENT_TRANSITIONS.put(Order.PaymentStatus.FAILED,
+                EnumSet.of(Order.PaymentStatus.PENDING, Order.PaymentStatus.PAID));
+        PAYMENT_TRANSITIONS.put(Order.PaymentStatus.PAID, EnumSet.noneOf(Order.PaymentStatus.class));
+    }
+
+    private final OrderRepository orderRepository;
+
+    @Value("${app.order.state.max-attempts:3}")
+    private int maxAttempts;
+
+    public OrderStateMachine(OrderRepository orderRepository) {
+        this.orderRepository = orderRepository;
+    }
+
+    // A status with no entry (or a null legacy status) allows no transitions
+    public static boolean canChange(Order.OrderStatus from, Order.OrderStatus to) {
+        return to != null && (from == to
+                || (from != null && ORDER_TRANSITIONS.getOrDefault(from, Set.of()).contains(to)));
+    }
+
+    public static boolean canChange(Order.PaymentStatus from, Order.PaymentStatus to) {
+        return to != null && (from == to
+                || (from != null && PAYMENT_TRANSITIONS.getOrDefault(from, Set.of()).contains(to)));
+    }
+
+    /** @return the status the order had before */
+    public Order.OrderStatus changeStatus(Long orderId, Order.OrderStatus to, String note) {
+        for (int attempt = 0; attempt < maxAttempts; attempt++) {
+            OrderStateRow state = currentState(orderId);
+            if (!canChange(state.getStatus(), to)) {
+                throw new IllegalOrderTransitionException(
+                        "Cannot change order " + orderId + " from " + state.getStatus() + " to " + to);
+            }
+            if (orderRepository.compareAndSetStatus(orderId, state.getStatus(), to, state.getVersion(),
+                    note, LocalDateTime.now()) == 1) {
+                return state.getStatus();
+            }
+        }
+        throw new ObjectOptimisticLockingFailureException(Order.class, orderId);
+    }
+
+    /** @return the payment status the order had before */
+    public Order.PaymentStatus changePaymentStatus(Long orderId, Order.PaymentStatus to, String note) {
+        for (int attempt = 0; attempt < maxAttempts; attempt++) {
+            OrderStateRow state = currentState(orderId);
+            Order.PaymentStatus from = state.getPaymentStatus() != null ? state.getPaymentStatus()
+                    : Order.PaymentStatus.PENDING;
+            if (!canChange(from, to)) {
+                throw new IllegalOrderTransitionException(
+                        "Cannot change payment of order " + orderId + " from " + from + " to " + to);
+            }
+            if (orderRepository.compareAndSetPaymentStatus(orderId, state.getPaymentStatus(), to,
+                    state.getVersion(), note, LocalDateTime.now()) == 1) {
+                return from;
+            }
+        }
+        throw new ObjectOptimisticLockingFailureException(Order.class, orderId);
+    }
+
+    /**
+     * Payment methods may change freely; the version check only keeps the change from
+     * interleaving with a status change, since the sales rollup is keyed by both.
+     * @return the order's state before the change
+     */
+    public OrderStateRow changePaymentMethod(Long orderId, Order.PaymentMethod to) {
+        for (int attempt = 0; attempt < maxAttempts; attempt++) {
+            OrderStateRow state = currentState(orderId);
+            if (state.getPaymentMethod() == to) {
+                return state;
+            }
+            if (orderRepository.compareAndSetPaymentMethod(orderId, to, state.getVersion(),
+                    LocalDateTime.now()) == 1) {
+                return state;
+            }
+        }
+        throw new ObjectOptimisticLockingFailureException(Order.class, orderId);
+    }
+
+    private OrderStateRow currentState(Long orderId) {
+        return orderRepository.findState(orderId)
+                .orElseThrow(() -> new ResourceNotFoundException("Order not found with id: " + orderId));
+    }
+}
@@ -0,0 +1,141 @@
+package com.bakeryshop.service.impl;
+
+import com.bakeryshop.entity.Order;
+import com.bakeryshop.entity.PaymentEvent;
+import com.bakeryshop.repository.OrderRepository;
+import com.bakeryshop.repository.PaymentEventRepository;
+import com.bakeryshop.service.PaymentEventService;
+import com.bakeryshop.service.PaymentService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Service
+public class PaymentEventServiceImpl implements PaymentEventService {
+    private static final Logger logger = LoggerFactory.getLogger(PaymentEventServiceImpl.class);
+
+    private final PaymentService paymentService;
+    private final OrderRepository orderRepository;
+    private final PaymentEventRepository paymentEventRepository;
+    private final PaymentEventWorker paymentEventWorker;
+
+    public PaymentEventServiceImpl(PaymentService paymentService,
+                                   OrderRepository orderRepository,
+                                   PaymentEventRepository paymentEventRepository,
+                                   PaymentEventWorker paymentEventWorker) {
+        this.paymentService = paymentService;
+        this.orderRepository = orderRepository;
+        this.paymentEventRepository = paymentEventRepository;
+        this.paymentEventWorker = paymentEventWorker;
+    }
+
+    // Each step is a single indexed read or insert; the order itself is updated by PaymentEventWorker
+    @Override
+    public Map<String, String> handleIpn(Map<String, String> params) {
+        try {
+            if (!paymentService.verifySignature(params)) {
+                return response("97", "Invalid Checksum");
+            }
+
+            String txnRef = params.get("vnp_TxnRef");
+            String transactionNo = params.get("vnp_TransactionNo");
+            Long orderId = parseOrderId(txnRef);
+            Order order = orderId == null ? null : orderRepository.findById(orderId).orElse(null);
+            if (order == null || transactionNo == null || transactionNo.isEmpty()) {
+                return response("01", "Order not found");
+            }
+
+            long amount = Long.parseLong(params.get("vnp_Amount"));
+            if (order.getTotalAmount() == null || order.getTotalAmount().longValue() * 100 != amount) {
+                return response("04", "Invalid amount");
+            }
+            // FAILED is still recorded: a payment can succeed after the order expired
+            if (order.getPaymentStatus() == Order.PaymentStatus.PAID) {
+                return response("02", "Order already confirmed");
+            }
+
+            PaymentEvent event = new PaymentEvent();
+            event.setTxnRef(txnRef);
+            event.setTransactionNo(transactionNo);
+            event.setOrderId(order.getId());
+            event.setAmount(amount);
+            event.setResponseCode(params.get("vnp_ResponseCode"));
+            event.setTransactionStatus(params.get("vnp_TransactionStatus"));
+            event.setBankCode(params.get("vnp_BankCode"));
+            try {
+                event = paymentEventRepository.saveAndFlush(event);
+            } catch (DataIntegrityViolationException e) {
+                // Same (txn_ref, transaction_no) already recorded: VNPay retry or replay
+                return response("02", "Order already confirmed");
+            }
+
+            paymentEventWorker.dispatch(event.getId());
+            return response("00", "Confirm Success");
+        } catch (Exception e) {
+            logger.error("Error handling VNPay IPN for {}", params.get("vnp_TxnRef"), e);
+            return response("99", "Unknown error");
+        }
+    }
+
+    @Override
+    public int recordAll(List<PaymentEvent> events) {
+        if (events.isEmpty()) {
+            return 0;
+        }
+        Set<String> recorded = paymentEventRepository.findByTxnRefIn(
+                        events.stream().map(PaymentEvent::getTxnRef).collect(Collectors.toSet()))
+                .stream().map(PaymentEventServiceImpl::key).collect(Collectors.toSet());
+        List<PaymentEvent> fresh = events.stream()
+                .filter(e -> !recorded.contains(key(e)))
+                .collect(Collectors.toList());
+        if (fresh.isEmpty()) {
+            return 0;
+        }
+
+        List<PaymentEvent> saved;
+        try {
+            // One transaction for the whole batch
+            saved = paymentEventRepository.saveAll(fresh);
+        } catch (DataIntegrityViolationException e) {
+            // An IPN landed in between; fall back to one insert per event
+            saved = new ArrayList<>();
+            for (PaymentEvent event : fresh) {
+                event.setId(null);
+                try {
+                    saved.add(paymentEventRepository.saveAndFlush(event));
+                } catch (DataIntegrityViolationException duplicate) {
+                    // recorded by the IPN
+                }
+            }
+        }
+        saved.forEach(e -> paymentEventWorker.dispatch(e.getId()));
+        return saved.size();
+    }
+
+    private static String key(PaymentEvent event) {
+        return event.getTxnRef() + "/" + event.getTransactionNo();
+    }
+
+    private static Long parseOrderId(String txnRef) {
+        try {
+            return txnRef == null ? null : Long.valueOf(txnRef);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Map<String, String> response(String code, String message) {
+        Map<String, String> body = new LinkedHashMap<>();
+        body.put("RspCode", code);
+        body.put("Message", message);
+        return body;
+    }
+}
@@ -0,0 +1,99 @@
+package com.bakeryshop.service.impl;
+
+import com.bakeryshop.entity.Order;
+import com.bakeryshop.entity.PaymentEvent;
+import com.bakeryshop.repository.PaymentEventRepository;
+import com.bakeryshop.service.OrderService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+
+/**
+ * Applies recorded {@code payment_events} to their orders off the IPN request thread.
+ * Events are dispatched as soon as they are stored; the poller picks up anything dropped
+ * by a full queue, failed attempts and events left over from a restart.
+ */
+@Component
+public class PaymentEventWorker {
+    private static final Logger logger = LoggerFactory.getLogger(PaymentEventWorker.class);
+
+    private final PaymentEventRepository paymentEventRepository;
+    private final OrderService orderService;
+    private final TaskExecutor executor;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.payment.events.batch-size:50}")
+    private int batchSize;
+
+    @Value("${app.payment.events.retry-after-ms:30000}")
+    private long retryAfterMs;
+
+    @Value("${app.payment.events.max-attempts:10}")
+    private int maxAttempts;
+
+    public PaymentEventWorker(PaymentEventRepository paymentEventRepository,
+                              OrderService orderService,
+                              @Qualifier("paymentEventExecutor") TaskExecutor executor,
+                              PlatformTransactionManager transactionManager) {
+        this.paymentEventRepository = paymentEventRepository;
+        this.orderService = orderService;
+        this.executor = executor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public void dispatch(Long eventId) {
+        executor.execute(() -> apply(eventId));
+    }
+
+    @Scheduled(fixedDelayString = "${app.payment.events.poll-interval-ms:15000}")
+    public void poll() {
+        LocalDateTime before = LocalDateTime.now().minusNanos(retryAfterMs * 1_000_000);
+        paymentEventRepository.findPendingIds(PaymentEvent.Status.RECEIVED, before, PageRequest.of(0, batchSize))
+                .forEach(this::dispatch);
+    }
+
+    private void apply(Long eventId) {
+        try {
+            transactionTemplate.executeWithoutResult(tx -> {
+                if (paymentEventRepository.markApplied(eventId, PaymentEvent.Status.RECEIVED,
+                        PaymentEvent.Status.APPLIED, LocalDateTime.now()) == 0) {
+                    return;
+                }
+                PaymentEvent event = paymentEventRepository.findById(eventId).orElseThrow();
+                Order order = orderService.findById(event.getOrderId());
+                if (order.getPaymentStatus() == Order.PaymentStatus.PAID
+                        || (order.getPaymentStatus() == Order.PaymentStatus.FAILED && !event.isSuccessful())) {
+                    return;
+                }
+                order.setTransactionNo(event.getTransactionNo());
+                if (event.isSuccessful() && order.getStatus() == Order.OrderStatus.CANCELLED) {
+                    // Paid after the order expired and its stock was released: keep the money on
+                    // record and leave refunding or restoring the order to an admin
+                    logger.warn("Late VNPay payment {} for cancelled order {}, needs refund or manual review",
+                            event.getTransactionNo(), order.getId());
+                    orderService.updatePaymentStatus(order.getId(), Order.PaymentStatus.PAID,
+                            "Late payment on cancelled order, refund or restore manually - Transaction: "
+                                    + event.getTransactionNo());
+                    return;
+                }
+                orderService.updatePaymentStatus(order.getId(),
+                        event.isSuccessful() ? Order.PaymentStatus.PAID : Order.PaymentStatus.FAILED,
+                        "Payment completed via VNPay - Transaction: " + event.getTransactionNo());
+            });
+        } catch (Exception e) {
+            String error = e.toString();
+            paymentEventRepository.recordFailure(eventId, error.length() <= 1000 ? error : error.substring(0, 1000),
+                    maxAttempts, PaymentEvent.Status.DEAD);
+            logger.warn("Applying payment event {} failed, will retry: {}", eventId, error);
+        }
+    }
+}
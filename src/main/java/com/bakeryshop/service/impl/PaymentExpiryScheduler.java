@@ -0,0 +1,111 @@
+package com.bakeryshop.service.impl;
+
+import com.bakeryshop.entity.Order;
+import com.bakeryshop.event.OrderPlacedEvent;
+import com.bakeryshop.repository.OrderRepository;
+import com.bakeryshop.service.OrderService;
+import com.bakeryshop.util.TimingWheel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+/**
+ * Cancels VNPAY orders that are still unpaid when their payment window closes and returns
+ * their stock. Deadlines live in a {@link TimingWheel}; it is filled from the database on
+ * startup and kept up to date by {@link OrderPlacedEvent}s.
+ */
+@Component
+public class PaymentExpiryScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(PaymentExpiryScheduler.class);
+    private static final String REASON = "Payment not received in time";
+
+    private final OrderRepository orderRepository;
+    private final OrderService orderService;
+    private final TimingWheel<Long> wheel;
+
+    // Longer than the 15-minute payment URL so a late IPN or reconciliation run can still settle the order
+    @Value("${app.payment.expiry.ttl-minutes:30}")
+    private long ttlMinutes;
+
+    @Value("${app.payment.expiry.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.payment.expiry.retry-after-ms:60000}")
+    private long retryAfterMs;
+
+    public PaymentExpiryScheduler(OrderRepository orderRepository,
+                                  OrderService orderService,
+                                  @Value("${app.payment.expiry.tick-ms:1000}") long tickMs,
+                                  @Value("${app.payment.expiry.wheel-size:64}") int wheelSize) {
+        this.orderRepository = orderRepository;
+        this.orderService = orderService;
+        this.wheel = new TimingWheel<>(tickMs, wheelSize, System.currentTimeMillis());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        long afterId = 0;
+        int recovered = 0;
+        while (true) {
+            List<Object[]> page = orderRepository.findUnpaidDeadlines(Order.PaymentMethod.VNPAY,
+                    Order.PaymentStatus.PENDING, Order.OrderStatus.PENDING, afterId, PageRequest.of(0, 1000));
+            for (Object[] row : page) {
+                schedule((Long) row[0], (LocalDateTime) row[1]);
+            }
+            recovered += page.size();
+            if (page.size() < 1000) {
+                break;
+            }
+            afterId = (Long) page.get(page.size() - 1)[0];
+        }
+        logger.info("Payment expiry scheduler recovered {} unpaid VNPay orders", recovered);
+    }
+
+    @TransactionalEventListener
+    public void onOrderPlaced(OrderPlacedEvent event) {
+        if (event.getPaymentMethod() == Order.PaymentMethod.VNPAY) {
+            schedule(event.getOrderId(), event.getCreatedAt());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.payment.expiry.tick-ms:1000}")
+    public void expire() {
+        List<Long> expired;
+        synchronized (wheel) {
+            expired = wheel.advanceTo(System.currentTimeMillis());
+        }
+        for (int from = 0; from < expired.size(); from += batchSize) {
+            List<Long> batch = expired.subList(from, Math.min(from + batchSize, expired.size()));
+            try {
+                int cancelled = orderService.expireUnpaidOrders(batch, REASON);
+                if (cancelled > 0) {
+                    logger.info("Cancelled {} unpaid VNPay orders and released their stock", cancelled);
+                }
+            } catch (Exception e) {
+                logger.error("Failed to expire unpaid orders {}, retrying later", batch, e);
+                long retryAt = System.currentTimeMillis() + retryAfterMs;
+                synchronized (wheel) {
+                    batch.forEach(id -> wheel.add(id, retryAt));
+                }
+            }
+        }
+    }
+
+    private void schedule(Long orderId, LocalDateTime createdAt) {
+        LocalDateTime start = createdAt != null ? createdAt : LocalDateTime.now();
+        long deadline = start.plusMinutes(ttlMinutes).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        synchronized (wheel) {
+            wheel.add(orderId, deadline);
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.bakeryshop.service.impl;
+
+import com.bakeryshop.entity.Product;
+import com.bakeryshop.event.CatalogChangedEvent;
+import com.bakeryshop.repository.ProductRepository;
+import com.bakeryshop.util.VietnameseTextAnalyzer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process inverted index over product name and description, ranked with BM25.
+ * Every query syllable must occur in the product (the last one may be a prefix, so results
+ * follow the user while typing); matching syllable pairs raise the score.
+ */
+@Component
+public class ProductSearchIndex {
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final double NAME_WEIGHT = 2.0;
+    private static final double DESCRIPTION_WEIGHT = 1.0;
+    private static final double BIGRAM_WEIGHT = 0.5;
+
+    private final ProductRepository productRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // term -> product id -> term frequencies {name, description}
+    private final NavigableMap<String, Map<Long, int[]>> postings = new TreeMap<>();
+    private final Map<Long, Document> documents = new HashMap<>();
+    private long totalNameLength;
+    private long totalDescriptionLength;
+
+    public ProductSearchIndex(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        List<Product> products = productRepository.findAll();
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            totalNameLength = 0;
+            totalDescriptionLength = 0;
+            products.forEach(this::add);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Product search index built with {} products", products.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (event.getProductId() == null) {
+            return;
+        }
+        Product product = productRepository.findById(event.getProductId()).orElse(null);
+        lock.writeLock().lock();
+        try {
+            remove(event.getProductId());
+            if (product != null) {
+                add(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of matching products, best match first.
+     */
+    public List<Long> search(String query, boolean includeInactive) {
+        List<String> terms = VietnameseTextAnalyzer.tokenize(query);
+        if (terms.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        lock.readLock().lock();
+        try {
+            Map<Long, Double> scores = null;
+            for (int i = 0; i < terms.size(); i++) {
+                boolean prefix = i == terms.size() - 1;
+                Map<Long, Double> termScores = score(terms.get(i), prefix, 1.0);
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    scores.keySet().retainAll(termScores.keySet());
+                    for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+                        entry.setValue(entry.getValue() + termScores.get(entry.getKey()));
+                    }
+                }
+                if (scores.isEmpty()) {
+                    return new ArrayList<>();
+                }
+            }
+
+            for (String bigram : VietnameseTextAnalyzer.bigrams(terms)) {
+                Map<Long, Double> bigramScores = score(bigram, false, BIGRAM_WEIGHT);
+                for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+                    Double bonus = bigramScores.get(entry.getKey());
+                    if (bonus != null) {
+                        entry.setValue(entry.getValue() + bonus);
+                    }
+                }
+            }
+
+            List<Map.Entry<Long, Double>> ranked = new ArrayList<>(scores.entrySet());
+            ranked.sort(Map.Entry.<Long, Double>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+            List<Long> ids = new ArrayList<>(ranked.size());
+            for (Map.Entry<Long, Double> entry : ranked) {
+                if (includeInactive || documents.get(entry.getKey()).active) {
+                    ids.add(entry.getKey());
+                }
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Caller holds the read lock
+    private Map<Long, Double> score(String term, boolean prefix, double weight) {
+        Collection<Map<Long, int[]>> matches = prefix
+                ? postings.subMap(term, true, term + Character.MAX_VALUE, false).values()
+                : single(postings.get(term));
+
+        int n = documents.size();
+        double avgName = n == 0 ? 1 : Math.max(1.0, (double) totalNameLength / n);
+        double avgDescription = n == 0 ? 1 : Math.max(1.0, (double) totalDescriptionLength / n);
+
+        Map<Long, Double> scores = new HashMap<>();
+        for (Map<Long, int[]> posting : matches) {
+            double idf = Math.log(1 + (n - posting.size() + 0.5) / (posting.size() + 0.5));
+            for (Map.Entry<Long, int[]> entry : posting.entrySet()) {
+                Document document = documents.get(entry.getKey());
+                int[] tf = entry.getValue();
+                double score = idf * weight * (
+                        NAME_WEIGHT * bm25(tf[0], document.nameLength, avgName)
+                        + DESCRIPTION_WEIGHT * bm25(tf[1], document.descriptionLength, avgDescription));
+                // For a prefix keep the best expansion per product rather than summing them
+                scores.merge(entry.getKey(), score, Math::max);
+            }
+        }
+        return scores;
+    }
+
+    private static double bm25(int tf, int length, double averageLength) {
+        if (tf == 0) {
+            return 0;
+        }
+        return tf * (K1 + 1) / (tf + K1 * (1 - B + B * length / averageLength));
+    }
+
+    private static Collection<Map<Long, int[]>> single(Map<Long, int[]> posting) {
+        List<Map<Long, int[]>> result = new ArrayList<>(1);
+        if (posting != null) {
+            result.add(posting);
+        }
+        return result;
+    }
+
+    // Caller holds the write lock
+    private void add(Product product) {
+        List<String> name = VietnameseTextAnalyzer.tokenize(product.getName());
+        List<String> description = VietnameseTextAnalyzer.tokenize(product.getDescription());
+
+        Set<String> terms = new HashSet<>();
+        addTerms(product.getId(), name, 0, terms);
+        addTerms(product.getId(), VietnameseTextAnalyzer.bigrams(name), 0, terms);
+        addTerms(product.getId(), description, 1, terms);
+        addTerms(product.getId(), VietnameseTextAnalyzer.bigrams(description), 1, terms);
+
+        documents.put(product.getId(), new Document(terms, name.size(), description.size(), product.isActive()));
+        totalNameLength += name.size();
+        totalDescriptionLength += description.size();
+    }
+
+    private void addTerms(Long productId, List<String> tokens, int field, Set<String> terms) {
+        for (String token : tokens) {
+            postings.computeIfAbsent(token, t -> new HashMap<>())
+                    .computeIfAbsent(productId, id -> new int[2])[field]++;
+            terms.add(token);
+        }
+    }
+
+    // Caller holds the write lock
+    private void remove(Long productId) {
+        Document document = documents.remove(productId);
+        if (document == null) {
+            return;
+        }
+        for (String term : document.terms) {
+            Map<Long, int[]> posting = postings.get(term);
+            if (posting != null) {
+                posting.remove(productId);
+                if (posting.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+        totalNameLength -= document.nameLength;
+        totalDescriptionLength -= document.descriptionLength;
+    }
+
+    private static final class Document {
+        private final Set<String> terms;
+        private final int nameLength;
+        private final int descriptionLength;
+        private final boolean active;
+
+        private Document(Set<String> terms, int nameLength, int descriptionLength, boolean active) {
+            this.terms = terms;
+            this.nameLength = nameLength;
+            this.descriptionLength = descriptionLength;
+            this.active = active;
+        }
+    }
+}
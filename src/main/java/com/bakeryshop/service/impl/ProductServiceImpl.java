@@ -3,10 +3,12 @@ package com.bakeryshop.service.impl;
 import com.bakeryshop.dto.ProductDTO;
 import com.bakeryshop.entity.Category;
 import com.bakeryshop.entity.Product;
+import com.bakeryshop.event.CatalogChangedEvent;
 import com.bakeryshop.repository.CategoryRepository;
 import com.bakeryshop.repository.ProductRepository;
 import com.bakeryshop.service.FileStorageService;
 import com.bakeryshop.service.ProductService;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -30,14 +32,23 @@ public class ProductServiceImpl implements ProductService {
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
     private final FileStorageService fileStorageService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CatalogSnapshotService catalogSnapshotService;
+    private final ProductSearchIndex productSearchIndex;
     private static final int LOW_STOCK_THRESHOLD = 10;
 
     public ProductServiceImpl(ProductRepository productRepository,
                             CategoryRepository categoryRepository,
-                            FileStorageService fileStorageService) {
+                            FileStorageService fileStorageService,
+                            ApplicationEventPublisher eventPublisher,
+                            CatalogSnapshotService catalogSnapshotService,
+                            ProductSearchIndex productSearchIndex) {
         this.productRepository = productRepository;
         this.categoryRepository = categoryRepository;
         this.fileStorageService = fileStorageService;
+        this.eventPublisher = eventPublisher;
+        this.catalogSnapshotService = catalogSnapshotService;
+        this.productSearchIndex = productSearchIndex;
     }
 
     @Override
@@ -55,6 +66,7 @@ public class ProductServiceImpl implements ProductService {
         }
 
         Product savedProduct = productRepository.save(product);
+        eventPublisher.publishEvent(new CatalogChangedEvent(savedProduct.getId()));
         return convertToDTO(savedProduct);
     }
 
@@ -66,6 +78,7 @@ public class ProductServiceImpl implements ProductService {
 
         Category category = categoryRepository.findById(productDTO.getCategoryId())
                 .orElseThrow(() -> new RuntimeException("Category not found"));
+        Integer previousStock = product.getStock();
 
         updateProductFromDTO(product, productDTO, category);
 
@@ -78,6 +91,9 @@ public class ProductServiceImpl implements ProductService {
         }
 
         Product updatedProduct = productRepository.save(product);
+        int stockDelta = (updatedProduct.getStock() == null ? 0 : updatedProduct.getStock())
+                - (previousStock == null ? 0 : previousStock);
+        eventPublisher.publishEvent(new CatalogChangedEvent(id, stockDelta != 0 ? stockDelta : null));
         return convertToDTO(updatedProduct);
     }
 
@@ -92,6 +108,7 @@ public class ProductServiceImpl implements ProductService {
         }
 
         productRepository.delete(product);
+        eventPublisher.publishEvent(new CatalogChangedEvent(id));
     }
 
     @Override
@@ -103,16 +120,31 @@ public class ProductServiceImpl implements ProductService {
 
     @Override
     public Page<ProductDTO> getAllProducts(Pageable pageable) {
-        return productRepository.findAll(pageable).map(this::convertToDTO);
+        CatalogSnapshot snapshot = catalogSnapshotService.current();
+        CatalogSnapshot.SortOrder sortOrder = snapshotSortOrder(pageable.getSort());
+        if (snapshot != null && sortOrder != null) {
+            return snapshot.query(null, null, null, null, 0, sortOrder, pageable);
+        }
+        return productRepository.findByActive(true, pageable).map(this::convertToDTO);
     }
 
     @Override
     public Page<ProductDTO> getProductsByCategory(Long categoryId, Pageable pageable) {
+        CatalogSnapshot snapshot = catalogSnapshotService.current();
+        CatalogSnapshot.SortOrder sortOrder = snapshotSortOrder(pageable.getSort());
+        if (snapshot != null && sortOrder != null) {
+            return snapshot.query(categoryId, null, null, null, 0, sortOrder, pageable);
+        }
         return productRepository.findByCategoryId(categoryId, pageable).map(this::convertToDTO);
     }
 
     @Override
     public Page<ProductDTO> searchProducts(String keyword, Pageable pageable) {
+        CatalogSnapshot snapshot = catalogSnapshotService.current();
+        if (snapshot != null) {
+            return snapshot.query(null, productSearchIndex.search(keyword, false), null, null, 0,
+                    CatalogSnapshot.SortOrder.RELEVANCE, PageRequest.of(pageable.getPageNumber(), pageable.getPageSize()));
+        }
         return productRepository.findByNameContainingIgnoreCase(keyword, pageable)
                 .map(this::convertToDTO);
     }
@@ -151,12 +183,35 @@ public class ProductServiceImpl implements ProductService {
 
         product.setStock(newStock);
         productRepository.save(product);
+        eventPublisher.publishEvent(new CatalogChangedEvent(productId, quantity));
     }
 
     @Override
     public Page<ProductDTO> getProducts(Long categoryId, String keyword, Double minPrice, Double maxPrice, String sort, Pageable pageable) {
+        // Served from the in-memory catalog once it has been loaded
+        CatalogSnapshot snapshot = catalogSnapshotService.current();
+        if (snapshot != null) {
+            boolean hasKeyword = keyword != null && !keyword.trim().isEmpty();
+            List<Long> matchingIds = hasKeyword ? productSearchIndex.search(keyword, false) : null;
+
+            // Without an explicit sort, search results are listed by relevance
+            CatalogSnapshot.SortOrder sortOrder = hasKeyword && sort == null
+                    ? CatalogSnapshot.SortOrder.RELEVANCE : CatalogSnapshot.SortOrder.NEWEST;
+            int requiredFlags = 0;
+            if ("price_asc".equals(sort)) {
+                sortOrder = CatalogSnapshot.SortOrder.PRICE_ASC;
+            } else if ("price_desc".equals(sort)) {
+                sortOrder = CatalogSnapshot.SortOrder.PRICE_DESC;
+            } else if ("bestseller".equals(sort)) {
+                requiredFlags = CatalogSnapshot.BEST_SELLER;
+            }
+            return snapshot.query(categoryId, matchingIds,
+                    CatalogSnapshot.toCents(minPrice, true), CatalogSnapshot.toCents(maxPrice, false),
+                    requiredFlags, sortOrder, PageRequest.of(pageable.getPageNumber(), pageable.getPageSize()));
+        }
+
         // Create base specification
-        Specification<Product> spec = Specification.where(null);
+        Specification<Product> spec = Specification.where((root, query, cb) -> cb.isTrue(root.get("active")));
 
         // Add category filter
         if (categoryId != null) {
@@ -230,6 +285,25 @@ public class ProductServiceImpl implements ProductService {
         return productRepository.findByStockLessThanEqual(LOW_STOCK_THRESHOLD);
     }
 
+    // Null when the requested sort cannot be answered from the snapshot
+    private CatalogSnapshot.SortOrder snapshotSortOrder(Sort sort) {
+        if (sort.isUnsorted()) {
+            return CatalogSnapshot.SortOrder.NEWEST;
+        }
+        List<Order> orders = sort.toList();
+        if (orders.size() != 1) {
+            return null;
+        }
+        Order order = orders.get(0);
+        if ("createdAt".equals(order.getProperty()) && order.isDescending()) {
+            return CatalogSnapshot.SortOrder.NEWEST;
+        }
+        if ("price".equals(order.getProperty())) {
+            return order.isAscending() ? CatalogSnapshot.SortOrder.PRICE_ASC : CatalogSnapshot.SortOrder.PRICE_DESC;
+        }
+        return null;
+    }
+
     private void updateProductFromDTO(Product product, ProductDTO dto, Category category) {
         product.setName(dto.getName());
         product.setDescription(dto.getDescription());
@@ -0,0 +1,135 @@
+package com.bakeryshop.service.impl;
+
+import com.bakeryshop.dto.SalesReport;
+import com.bakeryshop.dto.SalesRollupRow;
+import com.bakeryshop.entity.Order;
+import com.bakeryshop.repository.DailySalesRollupRepository;
+import com.bakeryshop.repository.OrderReportRepository;
+import com.bakeryshop.service.SalesReportService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Service
+public class SalesReportServiceImpl implements SalesReportService {
+    private static final Logger logger = LoggerFactory.getLogger(SalesReportServiceImpl.class);
+
+    private final DailySalesRollupRepository rollupRepository;
+    private final OrderReportRepository orderReportRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.sales-rollup.fold-batch-size:1000}")
+    private int foldBatchSize;
+
+    public SalesReportServiceImpl(DailySalesRollupRepository rollupRepository,
+                                  OrderReportRepository orderReportRepository,
+                                  PlatformTransactionManager transactionManager) {
+        this.rollupRepository = rollupRepository;
+        this.orderReportRepository = orderReportRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    @Transactional
+    public void recordOrderCreated(Order order) {
+        rollupRepository.applyOrder(order.getId(), order.getStatus(), order.getPaymentMethod(), 1);
+    }
+
+    @Override
+    @Transactional
+    public void recordOrderChanged(Order order, Order.OrderStatus oldStatus, Order.PaymentMethod oldPaymentMethod) {
+        if (order.getStatus() == oldStatus && order.getPaymentMethod() == oldPaymentMethod) {
+            return;
+        }
+        if (oldStatus != null) {
+            rollupRepository.applyOrder(order.getId(), oldStatus, oldPaymentMethod, -1);
+        }
+        rollupRepository.applyOrder(order.getId(), order.getStatus(), order.getPaymentMethod(), 1);
+    }
+
+    @Override
+    @Transactional
+    public void recordOrderDeleted(Order order) {
+        if (order.getStatus() != null) {
+            rollupRepository.applyOrder(order.getId(), order.getStatus(), order.getPaymentMethod(), -1);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.sales-rollup.fold-interval-ms:5000}")
+    public void foldJournal() {
+        try {
+            int folded;
+            do {
+                folded = rollupRepository.foldJournal(foldBatchSize);
+            } while (folded == foldBatchSize);
+        } catch (Exception e) {
+            logger.error("Failed to fold sales rollup journal, retrying on the next run", e);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public SalesReport getSalesReport(LocalDate startDate, LocalDate endDate) {
+        SalesReport report = new SalesReport();
+        report.setStartDate(startDate);
+        report.setEndDate(endDate);
+
+        for (SalesRollupRow row : rollupRepository.summarize(startDate, endDate)) {
+            report.setTotalOrders(report.getTotalOrders() + row.getOrderCount());
+            report.getOrdersByStatus().merge(row.getStatus(), row.getOrderCount(), Long::sum);
+            report.getRevenueByStatus().merge(row.getStatus(), row.getRevenue(), BigDecimal::add);
+            if (row.getStatus() != Order.OrderStatus.CANCELLED) {
+                report.getRevenueByPaymentMethod().merge(row.getPaymentMethod(), row.getRevenue(), BigDecimal::add);
+            }
+        }
+
+        report.setDeliveredOrders(report.getOrdersByStatus().getOrDefault(Order.OrderStatus.DELIVERED, 0L));
+        report.setDeliveredRevenue(report.getRevenueByStatus().getOrDefault(Order.OrderStatus.DELIVERED, BigDecimal.ZERO));
+        if (report.getDeliveredOrders() > 0) {
+            report.setAverageOrderValue(report.getDeliveredRevenue()
+                    .divide(BigDecimal.valueOf(report.getDeliveredOrders()), 2, RoundingMode.HALF_UP));
+        }
+
+        report.setDailyRevenue(rollupRepository.dailyRevenue(Order.OrderStatus.DELIVERED, startDate, endDate));
+        report.setRevenueByCategory(rollupRepository.revenueByCategory(Order.OrderStatus.DELIVERED, startDate, endDate));
+        return report;
+    }
+
+    @Override
+    public void rebuild(LocalDate startDate, LocalDate endDate) {
+        if (startDate == null) {
+            LocalDateTime firstOrder = orderReportRepository.findFirstOrderTime();
+            if (firstOrder == null) {
+                return;
+            }
+            startDate = firstOrder.toLocalDate();
+        }
+        if (endDate == null) {
+            endDate = LocalDate.now();
+        }
+
+        // One month per transaction so the rollup table is never locked for the whole history
+        LocalDate from = startDate;
+        while (!from.isAfter(endDate)) {
+            LocalDate to = from.plusMonths(1).withDayOfMonth(1);
+            if (to.isAfter(endDate)) {
+                to = endDate.plusDays(1);
+            }
+            LocalDate chunkFrom = from;
+            LocalDate chunkTo = to;
+            transactionTemplate.executeWithoutResult(status -> rollupRepository.rebuild(chunkFrom, chunkTo));
+            logger.info("Rebuilt daily sales rollup for {} - {}", chunkFrom, chunkTo.minusDays(1));
+            from = to;
+        }
+    }
+}
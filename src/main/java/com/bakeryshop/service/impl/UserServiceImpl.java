@@ -4,6 +4,7 @@ import com.bakeryshop.dto.SignUpRequest;
 import com.bakeryshop.dto.UserDTO;
 import com.bakeryshop.entity.User;
 import com.bakeryshop.repository.UserRepository;
+import com.bakeryshop.security.UserDetailsCache;
 import com.bakeryshop.service.EmailService;
 import com.bakeryshop.service.UserService;
 import org.springframework.data.domain.Page;
@@ -20,13 +21,16 @@ public class UserServiceImpl implements UserService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final EmailService emailService;
+    private final UserDetailsCache userDetailsCache;
 
     public UserServiceImpl(UserRepository userRepository,
                          PasswordEncoder passwordEncoder,
-                         EmailService emailService) {
+                         EmailService emailService,
+                         UserDetailsCache userDetailsCache) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.emailService = emailService;
+        this.userDetailsCache = userDetailsCache;
     }
 
     @Override
@@ -114,6 +118,7 @@ public class UserServiceImpl implements UserService {
             throw new RuntimeException("Email đã được sử dụng");
         }
 
+        userDetailsCache.invalidate(user.getEmail());
         user.setName(userDTO.getName());
         user.setEmail(userDTO.getEmail());
         user.setPhone(userDTO.getPhone());
@@ -131,10 +136,10 @@ public class UserServiceImpl implements UserService {
     @Override
     @Transactional
     public void deleteUser(Long id) {
-        if (!userRepository.existsById(id)) {
-            throw new RuntimeException("User not found");
-        }
-        userRepository.deleteById(id);
+        User user = userRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        userDetailsCache.invalidate(user.getEmail());
+        userRepository.delete(user);
     }
 
     @Override
@@ -156,6 +161,7 @@ public class UserServiceImpl implements UserService {
         }
         user.setPassword(passwordEncoder.encode(newPassword));
         userRepository.save(user);
+        userDetailsCache.invalidate(user.getEmail());
     }
 
     @Override
@@ -219,6 +225,7 @@ public class UserServiceImpl implements UserService {
         user.setResetPasswordToken(null);
         user.setResetPasswordTokenExpiry(null);
         userRepository.save(user);
+        userDetailsCache.invalidate(user.getEmail());
     }
 
     @Override
@@ -236,6 +243,13 @@ public class UserServiceImpl implements UserService {
         user.setResetPasswordToken(null);
         user.setResetPasswordTokenExpiry(null);
         userRepository.save(user);
+        userDetailsCache.invalidate(user.getEmail());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public boolean isActiveAdmin(Long userId) {
+        return userRepository.existsByIdAndRoleAndBlockedFalse(userId, "ADMIN");
     }
 
     @Override
@@ -259,6 +273,7 @@ public class UserServiceImpl implements UserService {
         user.setVerificationToken(null);
         user.setVerificationTokenExpiry(null);
         userRepository.save(user);
+        userDetailsCache.invalidate(user.getEmail());
     }
 
     private UserDTO convertToDTO(User user) {
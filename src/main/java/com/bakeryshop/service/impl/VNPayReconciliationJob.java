@@ -0,0 +1,192 @@
+package com.bakeryshop.service.impl;
+
+import com.bakeryshop.config.VNPayConfig;
+import com.bakeryshop.entity.Order;
+import com.bakeryshop.entity.PaymentEvent;
+import com.bakeryshop.repository.OrderRepository;
+import com.bakeryshop.service.PaymentEventService;
+import com.bakeryshop.util.VNPayUtils;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * Settles VNPAY orders left PENDING when neither the IPN nor the return URL reached us
+ * (for example the customer closed the browser). Pending orders are scanned page by page,
+ * each page is queried against the querydr API in parallel, and the final results are
+ * recorded as {@code payment_events} so they are applied exactly like an IPN. Runs on its own
+ * thread, so slow querydr calls never hold up the shared scheduler.
+ */
+@Component
+public class VNPayReconciliationJob {
+    private static final Logger logger = LoggerFactory.getLogger(VNPayReconciliationJob.class);
+    private static final TypeReference<Map<String, Object>> JSON_MAP = new TypeReference<>() {};
+
+    private final OrderRepository orderRepository;
+    private final PaymentEventService paymentEventService;
+    private final VNPayUtils vnPayUtils;
+    private final VNPayConfig vnPayConfig;
+    private final ObjectMapper objectMapper;
+    private final TaskExecutor runner;
+    private final TaskExecutor executor;
+    private final HttpClient httpClient;
+
+    @Value("${app.payment.reconcile.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.payment.reconcile.min-age-minutes:15}")
+    private long minAgeMinutes;
+
+    @Value("${app.payment.reconcile.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.payment.reconcile.timeout-ms:5000}")
+    private long timeoutMs;
+
+    public VNPayReconciliationJob(OrderRepository orderRepository,
+                                  PaymentEventService paymentEventService,
+                                  VNPayUtils vnPayUtils,
+                                  VNPayConfig vnPayConfig,
+                                  ObjectMapper objectMapper,
+                                  @Qualifier("paymentReconcileRunner") TaskExecutor runner,
+                                  @Qualifier("paymentReconcileExecutor") TaskExecutor executor,
+                                  @Value("${app.payment.reconcile.connect-timeout-ms:3000}") long connectTimeoutMs) {
+        this.orderRepository = orderRepository;
+        this.paymentEventService = paymentEventService;
+        this.vnPayUtils = vnPayUtils;
+        this.vnPayConfig = vnPayConfig;
+        this.objectMapper = objectMapper;
+        this.runner = runner;
+        this.executor = executor;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .build();
+    }
+
+    @Scheduled(initialDelayString = "${app.payment.reconcile.interval-ms:300000}",
+               fixedDelayString = "${app.payment.reconcile.interval-ms:300000}")
+    public void reconcile() {
+        if (enabled) {
+            runner.execute(this::reconcilePending);
+        }
+    }
+
+    private void reconcilePending() {
+        try {
+            reconcileAll();
+        } catch (Exception e) {
+            logger.error("VNPay reconciliation failed, retrying on the next run", e);
+        }
+    }
+
+    private void reconcileAll() {
+        LocalDateTime before = LocalDateTime.now().minusMinutes(minAgeMinutes);
+        long afterId = 0;
+        int checked = 0;
+        int recorded = 0;
+        while (true) {
+            List<Order> page = orderRepository.findPaymentsToReconcile(Order.PaymentMethod.VNPAY,
+                    Order.PaymentStatus.PENDING, before, afterId, PageRequest.of(0, batchSize));
+            if (page.isEmpty()) {
+                break;
+            }
+
+            List<CompletableFuture<PaymentEvent>> calls = page.stream()
+                    .map(order -> CompletableFuture.supplyAsync(() -> query(order), executor)
+                            .exceptionally(e -> {
+                                logger.warn("querydr failed for order {}: {}", order.getId(), e.getMessage());
+                                return null;
+                            }))
+                    .collect(Collectors.toList());
+            List<PaymentEvent> results = calls.stream()
+                    .map(CompletableFuture::join)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+            recorded += paymentEventService.recordAll(results);
+
+            checked += page.size();
+            afterId = page.get(page.size() - 1).getId();
+            if (page.size() < batchSize) {
+                break;
+            }
+        }
+        if (checked > 0) {
+            logger.info("VNPay reconciliation checked {} pending orders, recorded {} results", checked, recorded);
+        }
+    }
+
+    // Returns null while the transaction is still open or unknown to VNPay
+    private PaymentEvent query(Order order) {
+        String txnRef = String.valueOf(order.getId());
+        try {
+            Map<String, String> request = vnPayUtils.buildQueryDrRequest(txnRef, order.getPaymentId());
+            HttpRequest httpRequest = HttpRequest.newBuilder(URI.create(vnPayConfig.getVnpApiUrl()))
+                    .timeout(Duration.ofMillis(timeoutMs))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(request)))
+                    .build();
+            HttpResponse<String> httpResponse = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofString());
+            if (httpResponse.statusCode() != 200) {
+                logger.warn("querydr for order {} returned HTTP {}", order.getId(), httpResponse.statusCode());
+                return null;
+            }
+
+            Map<String, String> response = new HashMap<>();
+            objectMapper.readValue(httpResponse.body(), JSON_MAP)
+                    .forEach((name, value) -> response.put(name, value == null ? null : String.valueOf(value)));
+            if (!vnPayUtils.verifyQueryDrResponse(response)) {
+                logger.warn("querydr for order {} returned an invalid signature", order.getId());
+                return null;
+            }
+            // vnp_ResponseCode is the query result; vnp_TransactionStatus 01 means the payment is still open
+            if (!"00".equals(response.get("vnp_ResponseCode")) || "01".equals(response.get("vnp_TransactionStatus"))) {
+                return null;
+            }
+            String transactionNo = response.get("vnp_TransactionNo");
+            if (transactionNo == null || transactionNo.isEmpty() || !txnRef.equals(response.get("vnp_TxnRef"))) {
+                return null;
+            }
+            long amount = Long.parseLong(response.get("vnp_Amount"));
+            if (order.getTotalAmount().longValue() * 100 != amount) {
+                logger.error("querydr amount {} does not match order {}", amount, order.getId());
+                return null;
+            }
+
+            PaymentEvent event = new PaymentEvent();
+            event.setTxnRef(txnRef);
+            event.setTransactionNo(transactionNo);
+            event.setOrderId(order.getId());
+            event.setAmount(amount);
+            event.setResponseCode(response.get("vnp_ResponseCode"));
+            event.setTransactionStatus(response.get("vnp_TransactionStatus"));
+            event.setBankCode(response.get("vnp_BankCode"));
+            return event;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            logger.warn("querydr failed for order {}: {}", order.getId(), e.getMessage());
+            return null;
+        }
+    }
+}
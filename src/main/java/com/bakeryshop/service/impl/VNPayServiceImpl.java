@@ -1,30 +1,44 @@
 package com.bakeryshop.service.impl;
 
 import com.bakeryshop.entity.Order;
+import com.bakeryshop.repository.OrderRepository;
 import com.bakeryshop.service.PaymentService;
 import com.bakeryshop.util.VNPayUtils;
 import org.springframework.stereotype.Service;
 
+import java.util.Calendar;
 import java.util.Map;
 
 @Service
 public class VNPayServiceImpl implements PaymentService {
     private final VNPayUtils vnPayUtils;
+    private final OrderRepository orderRepository;
 
-    public VNPayServiceImpl(VNPayUtils vnPayUtils) {
+    public VNPayServiceImpl(VNPayUtils vnPayUtils, OrderRepository orderRepository) {
         this.vnPayUtils = vnPayUtils;
+        this.orderRepository = orderRepository;
     }
 
+    // payment_id keeps the vnp_CreateDate of the latest attempt so the reconciliation job can query it
     @Override
     public String createPaymentUrl(Order order) throws Exception {
-        return vnPayUtils.createPaymentUrl(
+        Calendar createdAt = vnPayUtils.now();
+        String paymentUrl = vnPayUtils.createPaymentUrl(
             String.valueOf(order.getId()),
-            order.getTotalAmount().longValue()
+            order.getTotalAmount().longValue(),
+            createdAt
         );
+        orderRepository.updatePaymentId(order.getId(), vnPayUtils.format(createdAt));
+        return paymentUrl;
     }
 
     @Override
     public boolean validatePaymentResponse(Map<String, String> response) {
         return vnPayUtils.validatePaymentResponse(response);
     }
+
+    @Override
+    public boolean verifySignature(Map<String, String> params) {
+        return vnPayUtils.verifySignature(params);
+    }
 } 
\ No newline at end of file
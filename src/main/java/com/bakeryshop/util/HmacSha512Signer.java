@@ -0,0 +1,100 @@
+package com.bakeryshop.util;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+
+/**
+ * HMAC-SHA512 over the UTF-8 bytes of a text, with one initialised {@link Mac} per thread.
+ * Signatures are lowercase hex; verification accepts either case and compares in constant time.
+ */
+public class HmacSha512Signer {
+    private static final String ALGORITHM = "HmacSHA512";
+    private static final int MAC_LENGTH = 64;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final ThreadLocal<State> state;
+
+    public HmacSha512Signer(String secret) {
+        SecretKeySpec key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        newMac(key); // fail at startup rather than on the first payment
+        this.state = ThreadLocal.withInitial(() -> new State(newMac(key)));
+    }
+
+    public String sign(CharSequence data) {
+        State s = state.get();
+        s.compute(data);
+        char[] hex = new char[MAC_LENGTH * 2];
+        for (int i = 0; i < MAC_LENGTH; i++) {
+            int b = s.result[i] & 0xff;
+            hex[i * 2] = HEX[b >>> 4];
+            hex[i * 2 + 1] = HEX[b & 0x0f];
+        }
+        return new String(hex);
+    }
+
+    public boolean verify(CharSequence data, String expectedHex) {
+        if (expectedHex == null || expectedHex.length() != MAC_LENGTH * 2) {
+            return false;
+        }
+        State s = state.get();
+        for (int i = 0; i < MAC_LENGTH; i++) {
+            int hi = Character.digit(expectedHex.charAt(i * 2), 16);
+            int lo = Character.digit(expectedHex.charAt(i * 2 + 1), 16);
+            if (hi < 0 || lo < 0) {
+                return false;
+            }
+            s.expected[i] = (byte) ((hi << 4) | lo);
+        }
+        s.compute(data);
+        return MessageDigest.isEqual(s.result, s.expected);
+    }
+
+    private static Mac newMac(SecretKeySpec key) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA512 is not available", e);
+        }
+    }
+
+    private static final class State {
+        private final Mac mac;
+        private final byte[] result = new byte[MAC_LENGTH];
+        private final byte[] expected = new byte[MAC_LENGTH];
+        private byte[] input = new byte[512];
+
+        private State(Mac mac) {
+            this.mac = mac;
+        }
+
+        // URL-encoded query strings are ASCII and copied one byte per char; anything else
+        // (the querydr pipe string carries vnp_Message with diacritics) is encoded as UTF-8
+        private void compute(CharSequence data) {
+            int length = data.length();
+            if (input.length < length) {
+                input = new byte[Math.max(length, input.length * 2)];
+            }
+            boolean ascii = true;
+            for (int i = 0; i < length && ascii; i++) {
+                char c = data.charAt(i);
+                input[i] = (byte) c;
+                ascii = c < 0x80;
+            }
+            try {
+                if (ascii) {
+                    mac.update(input, 0, length);
+                } else {
+                    mac.update(data.toString().getBytes(StandardCharsets.UTF_8));
+                }
+                mac.doFinal(result, 0);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Error generating HMAC-SHA512", e);
+            }
+        }
+    }
+}
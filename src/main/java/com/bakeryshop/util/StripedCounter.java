@@ -0,0 +1,82 @@
+package com.bakeryshop.util;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Non-negative counter split over several stripes so concurrent acquirers rarely CAS the
+ * same word. An acquire is served from a single stripe without locking; only when no
+ * stripe holds enough on its own are the stripes merged under a lock and checked as a whole.
+ */
+public class StripedCounter {
+    // Stripes sit 16 longs apart so each one has its own cache line
+    private static final int PAD = 16;
+
+    private final int stripes;
+    private final AtomicLongArray cells;
+
+    public StripedCounter(int stripes, long initial) {
+        this.stripes = stripes;
+        this.cells = new AtomicLongArray(stripes * PAD);
+        spread(initial);
+    }
+
+    public boolean tryAcquire(long amount) {
+        int home = ThreadLocalRandom.current().nextInt(stripes);
+        for (int i = 0; i < stripes; i++) {
+            int cell = ((home + i) % stripes) * PAD;
+            long current;
+            while ((current = cells.get(cell)) >= amount) {
+                if (cells.compareAndSet(cell, current, current - amount)) {
+                    return true;
+                }
+            }
+        }
+        return acquireMerged(amount);
+    }
+
+    public void release(long amount) {
+        cells.addAndGet(ThreadLocalRandom.current().nextInt(stripes) * PAD, amount);
+    }
+
+    public long sum() {
+        long sum = 0;
+        for (int i = 0; i < stripes; i++) {
+            sum += cells.get(i * PAD);
+        }
+        return sum;
+    }
+
+    public synchronized void reset(long value) {
+        drain();
+        spread(value);
+    }
+
+    /** Adds {@code delta}, which may be negative; the total does not go below zero. */
+    public synchronized void adjust(long delta) {
+        spread(drain() + delta);
+    }
+
+    private synchronized boolean acquireMerged(long amount) {
+        long total = drain();
+        boolean acquired = total >= amount;
+        spread(acquired ? total - amount : total);
+        return acquired;
+    }
+
+    private long drain() {
+        long total = 0;
+        for (int i = 0; i < stripes; i++) {
+            total += cells.getAndSet(i * PAD, 0);
+        }
+        return total;
+    }
+
+    private void spread(long value) {
+        long share = Math.max(value, 0) / stripes;
+        long rest = Math.max(value, 0) - share * stripes;
+        for (int i = 0; i < stripes; i++) {
+            cells.addAndGet(i * PAD, i == 0 ? share + rest : share);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.bakeryshop.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel. Level 0 has {@code wheelSize} slots of one tick each; every
+ * higher level has slots as wide as a full turn of the level below and is added only when
+ * a deadline needs it. When a slot comes round its entries move down a level, so adding an
+ * entry and expiring it are O(1) per level regardless of how many entries are waiting.
+ * Not thread-safe.
+ */
+public class TimingWheel<T> {
+    private final long tickMs;
+    private final int wheelSize;
+    private final List<ArrayDeque<Entry<T>>[]> levels = new ArrayList<>();
+    private final List<T> due = new ArrayList<>();
+    private long currentTick;
+    private int size;
+
+    public TimingWheel(long tickMs, int wheelSize, long startMs) {
+        if (tickMs <= 0 || wheelSize < 2) {
+            throw new IllegalArgumentException("tickMs must be > 0 and wheelSize >= 2");
+        }
+        this.tickMs = tickMs;
+        this.wheelSize = wheelSize;
+        this.currentTick = startMs / tickMs;
+    }
+
+    public void add(T item, long deadlineMs) {
+        place(new Entry<>(item, (deadlineMs + tickMs - 1) / tickMs));
+        size++;
+    }
+
+    /** Moves the wheel to {@code nowMs} and returns every item whose deadline has passed. */
+    public List<T> advanceTo(long nowMs) {
+        long target = nowMs / tickMs;
+        if (size == due.size()) {
+            // Nothing waiting in the slots: skip the idle ticks
+            currentTick = Math.max(currentTick, target);
+        }
+        while (currentTick < target) {
+            currentTick++;
+            // Highest level first so cascaded entries can still expire on this tick
+            for (int level = levels.size() - 1; level >= 0; level--) {
+                long span = span(level);
+                if (currentTick % span == 0) {
+                    ArrayDeque<Entry<T>> slot = levels.get(level)[(int) ((currentTick / span) % wheelSize)];
+                    for (int n = slot.size(); n > 0; n--) {
+                        place(slot.poll());
+                    }
+                }
+            }
+        }
+
+        List<T> expired = new ArrayList<>(due);
+        due.clear();
+        size -= expired.size();
+        return expired;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void place(Entry<T> entry) {
+        long delta = entry.deadlineTick - currentTick;
+        if (delta <= 0) {
+            due.add(entry.item);
+            return;
+        }
+        int level = 0;
+        while (delta >= span(level) * wheelSize) {
+            level++;
+        }
+        long span = span(level);
+        slots(level)[(int) ((entry.deadlineTick / span) % wheelSize)].add(entry);
+    }
+
+    @SuppressWarnings("unchecked")
+    private ArrayDeque<Entry<T>>[] slots(int level) {
+        while (levels.size() <= level) {
+            ArrayDeque<Entry<T>>[] slots = new ArrayDeque[wheelSize];
+            for (int i = 0; i < wheelSize; i++) {
+                slots[i] = new ArrayDeque<>();
+            }
+            levels.add(slots);
+        }
+        return levels.get(level);
+    }
+
+    private long span(int level) {
+        long span = 1;
+        for (int i = 0; i < level; i++) {
+            span *= wheelSize;
+        }
+        return span;
+    }
+
+    private static final class Entry<T> {
+        final T item;
+        final long deadlineTick;
+
+        Entry(T item, long deadlineTick) {
+            this.item = item;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.bakeryshop.util;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Builds the VNPay canonical query: non-empty parameters sorted by name, values form-encoded
+ * as {@code URLEncoder.encode(value, US_ASCII)} would, joined with '&'. The same string is
+ * both the signed data and the URL query. Instances reuse their buffers and are not
+ * thread-safe; {@link VNPayUtils} keeps one per thread.
+ */
+final class VNPayQueryBuilder {
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+    private static final boolean[] UNRESERVED = new boolean[128];
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) UNRESERVED[c] = true;
+        for (char c = 'A'; c <= 'Z'; c++) UNRESERVED[c] = true;
+        for (char c = '0'; c <= '9'; c++) UNRESERVED[c] = true;
+        UNRESERVED['.'] = true;
+        UNRESERVED['-'] = true;
+        UNRESERVED['*'] = true;
+        UNRESERVED['_'] = true;
+    }
+
+    private final StringBuilder query = new StringBuilder(512);
+    private String[] names = new String[32];
+
+    /** Canonical query of {@code params} without the hash fields; valid until the next call. */
+    CharSequence build(Map<String, String> params) {
+        int count = 0;
+        if (names.length < params.size()) {
+            names = new String[params.size()];
+        }
+        for (Map.Entry<String, String> entry : params.entrySet()) {
+            String value = entry.getValue();
+            String name = entry.getKey();
+            if (value != null && !value.isEmpty()
+                    && !"vnp_SecureHash".equals(name) && !"vnp_SecureHashType".equals(name)) {
+                names[count++] = name;
+            }
+        }
+        Arrays.sort(names, 0, count);
+
+        query.setLength(0);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                query.append('&');
+            }
+            encode(names[i]);
+            query.append('=');
+            encode(params.get(names[i]));
+        }
+        Arrays.fill(names, 0, count, null);
+        return query;
+    }
+
+    private void encode(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 128 && UNRESERVED[c]) {
+                query.append(c);
+            } else if (c == ' ') {
+                query.append('+');
+            } else if (c < 128) {
+                query.append('%').append(HEX[c >>> 4]).append(HEX[c & 0x0f]);
+            } else {
+                // Not representable in US-ASCII: the JDK encoder substitutes '?', once per surrogate pair
+                if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    i++;
+                }
+                query.append("%3F");
+            }
+        }
+    }
+}
@@ -6,15 +6,10 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
 import javax.servlet.http.HttpServletRequest;
 import java.io.UnsupportedEncodingException;
-import java.math.BigInteger;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
-import java.security.InvalidKeyException;
-import java.security.NoSuchAlgorithmException;
 import java.text.SimpleDateFormat;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
@@ -23,14 +18,29 @@ import java.util.*;
 
 @Component
 public class VNPayUtils {
+    private static final String[] QUERY_DR_REQUEST_FIELDS = {
+            "vnp_RequestId", "vnp_Version", "vnp_Command", "vnp_TmnCode", "vnp_TxnRef",
+            "vnp_TransactionDate", "vnp_CreateDate", "vnp_IpAddr", "vnp_OrderInfo"};
+    private static final String[] QUERY_DR_RESPONSE_FIELDS = {
+            "vnp_ResponseId", "vnp_Command", "vnp_ResponseCode", "vnp_Message", "vnp_TmnCode", "vnp_TxnRef",
+            "vnp_Amount", "vnp_BankCode", "vnp_PayDate", "vnp_TransactionNo", "vnp_TransactionType",
+            "vnp_TransactionStatus", "vnp_OrderInfo", "vnp_PromotionCode", "vnp_PromotionAmount"};
+
     private final VNPayConfig vnPayConfig;
+    private final HmacSha512Signer signer;
+    private final ThreadLocal<VNPayQueryBuilder> queryBuilder = ThreadLocal.withInitial(VNPayQueryBuilder::new);
 
     public VNPayUtils(VNPayConfig vnPayConfig) {
         this.vnPayConfig = vnPayConfig;
+        this.signer = new HmacSha512Signer(vnPayConfig.getVnpHashSecret());
     }
 
     public String createPaymentUrl(String orderId, long amount) throws Exception {
-        String vnp_HashSecret = vnPayConfig.getVnpHashSecret();
+        return createPaymentUrl(orderId, amount, now());
+    }
+
+    // vnp_CreateDate is taken from createdAt; querydr needs the same value back as vnp_TransactionDate
+    public String createPaymentUrl(String orderId, long amount, Calendar createdAt) throws Exception {
         String vnp_TmnCode = vnPayConfig.getVnpTmnCode();
         String vnp_ReturnUrl = vnPayConfig.getVnpReturnUrl();
         String vnp_PayUrl = vnPayConfig.getVnpPayUrl();
@@ -40,11 +50,10 @@ public class VNPayUtils {
         String orderType = "other";
         String vnp_IpAddr = "127.0.0.1";
 
-        Calendar cld = Calendar.getInstance(TimeZone.getTimeZone("Etc/GMT+7"));
-        SimpleDateFormat formatter = new SimpleDateFormat("yyyyMMddHHmmss");
-        String vnp_CreateDate = formatter.format(cld.getTime());
+        Calendar cld = (Calendar) createdAt.clone();
+        String vnp_CreateDate = format(cld);
         cld.add(Calendar.MINUTE, 15);
-        String vnp_ExpireDate = formatter.format(cld.getTime());
+        String vnp_ExpireDate = format(cld);
 
         Map<String, String> vnpParams = new HashMap<>();
         vnpParams.put("vnp_Version", vnp_Version);
@@ -62,28 +71,14 @@ public class VNPayUtils {
         vnpParams.put("vnp_ExpireDate", vnp_ExpireDate);
         vnpParams.put("vnp_Locale", "vn");
 
-        List<String> fieldNames = new ArrayList<>(vnpParams.keySet());
-        Collections.sort(fieldNames);
-        StringBuilder hashData = new StringBuilder();
-        StringBuilder query = new StringBuilder();
-        for (int i = 0; i < fieldNames.size(); i++) {
-            String key = fieldNames.get(i);
-            String value = vnpParams.get(key);
-            if (value != null && !value.isEmpty()) {
-                hashData.append(key).append('=').append(URLEncoder.encode(value, StandardCharsets.US_ASCII));
-                query.append(URLEncoder.encode(key, StandardCharsets.US_ASCII))
-                        .append('=').append(URLEncoder.encode(value, StandardCharsets.US_ASCII));
-                if (i < fieldNames.size() - 1) {
-                    hashData.append('&');
-                    query.append('&');
-                }
-            }
-        }
+        // Keys are plain ASCII names, so the signed data and the URL query are the same string
+        CharSequence query = queryBuilder.get().build(vnpParams);
+        String secureHash = signer.sign(query);
 
-        String secureHash = hmacSHA512(vnp_HashSecret, hashData.toString());
-        query.append("&vnp_SecureHash=").append(secureHash);
-
-        return vnp_PayUrl + "?" + query.toString();
+        return new StringBuilder(vnp_PayUrl.length() + query.length() + 150)
+                .append(vnp_PayUrl).append('?').append(query)
+                .append("&vnp_SecureHash=").append(secureHash)
+                .toString();
     }
 
 
@@ -161,70 +156,68 @@ public class VNPayUtils {
             return false;
         }
 
-        String vnp_SecureHash = response.get("vnp_SecureHash");
         String vnp_ResponseCode = response.get("vnp_ResponseCode");
         String vnp_TransactionStatus = response.get("vnp_TransactionStatus");
+        boolean validResponse = "00".equals(vnp_ResponseCode) && "00".equals(vnp_TransactionStatus);
+
+        return verifySignature(response) && validResponse;
+    }
 
+    /** Checks vnp_SecureHash against the other vnp_* parameters. */
+    public boolean verifySignature(Map<String, String> params) {
+        String vnp_SecureHash = params.get("vnp_SecureHash");
         if (vnp_SecureHash == null || vnp_SecureHash.isEmpty()) {
             return false;
         }
+        return signer.verify(queryBuilder.get().build(params), vnp_SecureHash);
+    }
 
-        // Remove hash params
-        Map<String, String> validationParams = new HashMap<>(response);
-        validationParams.remove("vnp_SecureHash");
-        validationParams.remove("vnp_SecureHashType");
-
-        // Sort fields
-        List<String> fieldNames = new ArrayList<>(validationParams.keySet());
-        Collections.sort(fieldNames);
-
-        // Create validation hash
-        StringBuilder hashData = new StringBuilder();
-        Iterator<String> itr = fieldNames.iterator();
-        while (itr.hasNext()) {
-            String fieldName = itr.next();
-            String fieldValue = validationParams.get(fieldName);
-            if ((fieldValue != null) && (fieldValue.length() > 0)) {
-                hashData.append(fieldName);
-                hashData.append('=');
-                try {
-                    hashData.append(URLEncoder.encode(fieldValue, StandardCharsets.US_ASCII.toString()));
-                    if (itr.hasNext()) {
-                        hashData.append('&');
-                    }
-                } catch (Exception e) {
-                    throw new RuntimeException(e);
-                }
-            }
-        }
-
-        String calculatedHash = hmacSHA512(vnPayConfig.getVnpHashSecret(), hashData.toString());
-        boolean validSignature = calculatedHash.equals(vnp_SecureHash);
-        boolean validResponse = "00".equals(vnp_ResponseCode) && "00".equals(vnp_TransactionStatus);
+    public Calendar now() {
+        return Calendar.getInstance(TimeZone.getTimeZone("Etc/GMT+7"));
+    }
 
-        return validSignature && validResponse;
+    public String format(Calendar calendar) {
+        SimpleDateFormat formatter = new SimpleDateFormat("yyyyMMddHHmmss");
+        formatter.setTimeZone(calendar.getTimeZone());
+        return formatter.format(calendar.getTime());
     }
 
-    private String hmacSHA512(String key, String data) {
-        try {
-            Mac hmac = Mac.getInstance("HmacSHA512");
-            SecretKeySpec secretKeySpec = new SecretKeySpec(key.getBytes(StandardCharsets.UTF_8), "HmacSHA512");
-            hmac.init(secretKeySpec);
-            byte[] bytes = hmac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+    /**
+     * Builds a signed querydr request body for the transaction created at
+     * {@code transactionDate} (the vnp_CreateDate of the payment URL).
+     */
+    public Map<String, String> buildQueryDrRequest(String txnRef, String transactionDate) {
+        Map<String, String> request = new LinkedHashMap<>();
+        request.put("vnp_RequestId", UUID.randomUUID().toString().replace("-", ""));
+        request.put("vnp_Version", vnPayConfig.getVnpVersion());
+        request.put("vnp_Command", "querydr");
+        request.put("vnp_TmnCode", vnPayConfig.getVnpTmnCode());
+        request.put("vnp_TxnRef", txnRef);
+        request.put("vnp_OrderInfo", "Kiem tra ket qua GD OrderId:" + txnRef);
+        request.put("vnp_TransactionDate", transactionDate);
+        request.put("vnp_CreateDate", format(now()));
+        request.put("vnp_IpAddr", "127.0.0.1");
+        request.put("vnp_SecureHash", signer.sign(pipeJoin(request, QUERY_DR_REQUEST_FIELDS)));
+        return request;
+    }
 
-            // Convert byte array to hex string (exactly like VNPay expects)
-            StringBuilder hash = new StringBuilder();
-            for (byte b : bytes) {
-                String hex = Integer.toHexString(0xff & b);
-                if (hex.length() == 1) hash.append('0'); // ensure leading zero
-                hash.append(hex);
-            }
-            return hash.toString();
-        } catch (Exception e) {
-            throw new RuntimeException("Error generating HMAC-SHA512", e);
+    public boolean verifyQueryDrResponse(Map<String, String> response) {
+        String vnp_SecureHash = response.get("vnp_SecureHash");
+        if (vnp_SecureHash == null || vnp_SecureHash.isEmpty()) {
+            return false;
         }
+        return signer.verify(pipeJoin(response, QUERY_DR_RESPONSE_FIELDS), vnp_SecureHash);
     }
 
+    // The merchant API signs a fixed field list joined with '|' rather than the sorted query string
+    private static String pipeJoin(Map<String, String> values, String[] fields) {
+        StringJoiner joiner = new StringJoiner("|");
+        for (String field : fields) {
+            String value = values.get(field);
+            joiner.add(value == null ? "" : value);
+        }
+        return joiner.toString();
+    }
 
     private String urlEncode(String value) {
         try {
@@ -0,0 +1,53 @@
+package com.bakeryshop.util;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Turns Vietnamese text into search terms. Text is lowercased and accent-folded
+ * ("Bánh kem Đà Lạt" becomes "banh kem da lat") and split into syllables. Vietnamese words
+ * are mostly two syllables, so {@link #bigrams(List)} adds adjacent pairs to reward phrase
+ * matches such as "banh_kem".
+ */
+public final class VietnameseTextAnalyzer {
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern HTML_TAGS = Pattern.compile("<[^>]*>");
+    private static final Pattern NON_WORD = Pattern.compile("[^a-z0-9]+");
+
+    private VietnameseTextAnalyzer() {
+    }
+
+    public static String fold(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        String lower = text.toLowerCase(Locale.ROOT).replace('đ', 'd');
+        return COMBINING_MARKS.matcher(Normalizer.normalize(lower, Normalizer.Form.NFD)).replaceAll("");
+    }
+
+    public static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String folded = fold(HTML_TAGS.matcher(text).replaceAll(" "));
+        List<String> tokens = new ArrayList<>();
+        for (String token : NON_WORD.split(folded)) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    public static List<String> bigrams(List<String> tokens) {
+        List<String> bigrams = new ArrayList<>(Math.max(tokens.size() - 1, 0));
+        for (int i = 0; i + 1 < tokens.size(); i++) {
+            bigrams.add(tokens.get(i) + "_" + tokens.get(i + 1));
+        }
+        return bigrams;
+    }
+}
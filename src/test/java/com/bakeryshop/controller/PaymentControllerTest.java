@@ -0,0 +1,75 @@
+package com.bakeryshop.controller;
+
+import com.bakeryshop.entity.Order;
+import com.bakeryshop.service.OrderService;
+import com.bakeryshop.service.PaymentEventService;
+import com.bakeryshop.service.PaymentService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.support.RedirectAttributesModelMap;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PaymentControllerTest {
+    private PaymentService paymentService;
+    private OrderService orderService;
+    private PaymentController controller;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        paymentService = mock(PaymentService.class);
+        orderService = mock(OrderService.class);
+        controller = new PaymentController(paymentService, orderService, mock(PaymentEventService.class));
+        when(paymentService.createPaymentUrl(any())).thenReturn("https://pay.example/vpcpay.html");
+    }
+
+    @Test
+    void expiredOrderGetsNoPaymentUrl() throws Exception {
+        when(orderService.findById(7L)).thenReturn(order(Order.OrderStatus.CANCELLED, Order.PaymentStatus.FAILED));
+
+        ResponseEntity<?> post = controller.createPaymentPost(7L);
+        String get = controller.createPaymentGet(7L, new RedirectAttributesModelMap());
+
+        assertEquals(HttpStatus.CONFLICT, post.getStatusCode());
+        assertEquals("redirect:/orders/7", get);
+        verify(paymentService, never()).createPaymentUrl(any());
+    }
+
+    @Test
+    void shippedOrderGetsNoPaymentUrl() throws Exception {
+        when(orderService.findById(7L)).thenReturn(order(Order.OrderStatus.SHIPPING, Order.PaymentStatus.PENDING));
+
+        assertEquals(HttpStatus.CONFLICT, controller.createPaymentPost(7L).getStatusCode());
+        verify(paymentService, never()).createPaymentUrl(any());
+    }
+
+    @Test
+    void openOrderCanRetryAFailedPayment() throws Exception {
+        when(orderService.findById(7L)).thenReturn(order(Order.OrderStatus.PENDING, Order.PaymentStatus.FAILED));
+
+        ResponseEntity<?> post = controller.createPaymentPost(7L);
+
+        assertEquals(HttpStatus.OK, post.getStatusCode());
+        verify(paymentService, times(1)).createPaymentUrl(any());
+    }
+
+    private static Order order(Order.OrderStatus status, Order.PaymentStatus paymentStatus) {
+        Order order = new Order();
+        order.setId(7L);
+        order.setTotalAmount(BigDecimal.valueOf(120_000));
+        order.setPaymentMethod(Order.PaymentMethod.VNPAY);
+        order.setStatus(status);
+        order.setPaymentStatus(paymentStatus);
+        return order;
+    }
+}
@@ -0,0 +1,161 @@
+package com.bakeryshop.controller.admin;
+
+import com.bakeryshop.entity.Category;
+import com.bakeryshop.entity.Order;
+import com.bakeryshop.entity.OrderItem;
+import com.bakeryshop.entity.Product;
+import com.bakeryshop.entity.User;
+import com.bakeryshop.monitoring.SqlMetricsRegistry;
+import com.bakeryshop.repository.CategoryRepository;
+import com.bakeryshop.repository.OrderRepository;
+import com.bakeryshop.repository.ProductRepository;
+import com.bakeryshop.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The order listing must issue the same number of statements whatever the page size, so a
+ * lazy association touched per row shows up as a failure here. With fail-on-exceed on, going
+ * over the endpoint's budget fails the request itself. Run with {@code -Dit.database=true};
+ * the test creates its own user, product and orders and deletes them afterwards.
+ */
+@SpringBootTest(properties = {
+        "app.sql-budget.enabled=true",
+        "app.sql-budget.fail-on-exceed=true"
+})
+@AutoConfigureMockMvc
+@EnabledIfSystemProperty(named = "it.database", matches = "true")
+@WithMockUser(roles = "ADMIN")
+class AdminOrderControllerSqlTest {
+    private static final String ENDPOINT = "AdminOrderController.listOrders";
+    private static final int SMALL_PAGE = 2;
+    private static final int LARGE_PAGE = 20;
+    // Both page sizes must be smaller than the result, or Spring Data skips the count query
+    private static final int ORDERS = LARGE_PAGE + 5;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private SqlMetricsRegistry sqlMetricsRegistry;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private User user;
+    private Category category;
+    private Product product;
+    private List<Order> orders;
+
+    @BeforeEach
+    void createOrders() throws Exception {
+        String tag = "admin-order-sql-" + UUID.randomUUID();
+        user = new User();
+        user.setName(tag);
+        user.setEmail(tag + "@example.com");
+        user.setPassword("unused");
+        user.setPhone("0900000000");
+        user = userRepository.save(user);
+
+        category = new Category();
+        category.setName(tag);
+        category = categoryRepository.save(category);
+
+        product = new Product();
+        product.setName(tag);
+        product.setPrice(BigDecimal.valueOf(10_000));
+        product.setStock(0);
+        product.setCategory(category);
+        product = productRepository.save(product);
+
+        List<Order> created = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i++) {
+            created.add(order());
+        }
+        orders = orderRepository.saveAll(created);
+
+        // Warm-up: the first request also pays for lazy initialisation
+        statementsFor(SMALL_PAGE);
+    }
+
+    @AfterEach
+    void deleteOrders() {
+        orderRepository.deleteAll(orders);
+        productRepository.deleteById(product.getId());
+        categoryRepository.deleteById(category.getId());
+        userRepository.deleteById(user.getId());
+    }
+
+    @Test
+    void offsetPageStatementCountDoesNotDependOnPageSize() throws Exception {
+        assertEquals(statementsFor(SMALL_PAGE), statementsFor(LARGE_PAGE));
+    }
+
+    @Test
+    void keysetPageStatementCountDoesNotDependOnPageSize() throws Exception {
+        assertEquals(statementsFor(SMALL_PAGE, "keyset", "true"), statementsFor(LARGE_PAGE, "keyset", "true"));
+    }
+
+    @Test
+    void searchStatementCountDoesNotDependOnPageSize() throws Exception {
+        // Every email contains @, so the search matches as many orders as the plain listing
+        assertEquals(statementsFor(SMALL_PAGE, "keyword", "@"), statementsFor(LARGE_PAGE, "keyword", "@"));
+    }
+
+    private Order order() {
+        Order order = new Order();
+        order.setUser(user);
+        order.setTotalAmount(product.getPrice());
+        order.setStatus(Order.OrderStatus.DELIVERED);
+        order.setPaymentMethod(Order.PaymentMethod.COD);
+        order.setShippingName(user.getName());
+        order.setShippingPhone(user.getPhone());
+        order.setShippingAddress("1 Test Street");
+
+        OrderItem item = new OrderItem();
+        item.setOrder(order);
+        item.setProduct(product);
+        item.setCategoryId(category.getId());
+        item.setQuantity(1);
+        item.setPrice(product.getPrice());
+        item.setSubTotal(product.getPrice());
+        order.getItems().add(item);
+        return order;
+    }
+
+    private long statementsFor(int size, String... params) throws Exception {
+        MockHttpServletRequestBuilder request = get("/admin/orders").param("size", String.valueOf(size));
+        for (int i = 0; i < params.length; i += 2) {
+            request.param(params[i], params[i + 1]);
+        }
+        sqlMetricsRegistry.reset();
+        mockMvc.perform(request).andExpect(status().isOk());
+        return (Long) sqlMetricsRegistry.snapshot().get(ENDPOINT).get("maxStatements");
+    }
+}
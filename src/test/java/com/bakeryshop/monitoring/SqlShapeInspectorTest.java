@@ -0,0 +1,55 @@
+package com.bakeryshop.monitoring;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SqlShapeInspectorTest {
+
+    @Test
+    void replacesNumericLiterals() {
+        assertEquals("select * from products where id = ? and price > ?",
+                SqlShapeInspector.shapeOf("select * from products where id = 42 and price > 10.50"));
+    }
+
+    @Test
+    void replacesStringLiteralsIncludingEscapedQuotes() {
+        assertEquals("select * from users where name = ? and email = ?",
+                SqlShapeInspector.shapeOf("select * from users where name = 'O''Brien' and email = 'a@b.vn'"));
+    }
+
+    @Test
+    void keepsDigitsThatArePartOfIdentifiers() {
+        assertEquals("select p1_0.id, p1_0.name from products p1_0 where p1_0.id = @P0",
+                SqlShapeInspector.shapeOf("select p1_0.id, p1_0.name from products p1_0 where p1_0.id = @P0"));
+    }
+
+    @Test
+    void collapsesWhitespace() {
+        assertEquals("select id from orders where status = ?",
+                SqlShapeInspector.shapeOf("  select  id\n  from\torders\r\n where status = ?  "));
+    }
+
+    @Test
+    void collapsesInListsOfAnyLength() {
+        String two = SqlShapeInspector.shapeOf("select * from products where id in (?, ?)");
+        String five = SqlShapeInspector.shapeOf("select * from products where id in (?,?, ?,  ?, ?)");
+        String literals = SqlShapeInspector.shapeOf("select * from products where id in (1, 2, 3)");
+
+        assertEquals("select * from products where id in (?)", two);
+        assertEquals(two, five);
+        assertEquals(two, literals);
+    }
+
+    @Test
+    void leavesSingleParameterGroupsAlone() {
+        assertEquals("select * from products where id in (?)",
+                SqlShapeInspector.shapeOf("select * from products where id in (?)"));
+    }
+
+    @Test
+    void sameQueryWithDifferentValuesHasSameShape() {
+        assertEquals(SqlShapeInspector.shapeOf("select * from carts where user_id = 7"),
+                SqlShapeInspector.shapeOf("select * from carts where user_id = 1234"));
+    }
+}
@@ -0,0 +1,88 @@
+package com.bakeryshop.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Statement built by reserveStock; ProductRepositoryReserveStockTest runs it against a database.
+ */
+class ProductRepositoryImplTest {
+    private final List<String> statements = new ArrayList<>();
+    private final Map<String, Object> parameters = new LinkedHashMap<>();
+
+    private EntityManager entityManager;
+    private ProductRepositoryImpl repository;
+
+    @BeforeEach
+    void setUp() {
+        Query query = mock(Query.class);
+        when(query.setParameter(anyString(), any())).thenAnswer(invocation -> {
+            parameters.put(invocation.getArgument(0), invocation.getArgument(1));
+            return query;
+        });
+        when(query.executeUpdate()).thenReturn(3);
+        entityManager = mock(EntityManager.class);
+        when(entityManager.createNativeQuery(anyString())).thenAnswer(invocation -> {
+            statements.add(invocation.getArgument(0));
+            return query;
+        });
+        repository = new ProductRepositoryImpl();
+        ReflectionTestUtils.setField(repository, "entityManager", entityManager);
+    }
+
+    @Test
+    void reservesAllLinesInOneGuardedStatement() {
+        Map<Long, Integer> lines = new LinkedHashMap<>();
+        lines.put(7L, 1);
+        lines.put(3L, 2);
+        lines.put(5L, 4);
+
+        assertEquals(3, repository.reserveStock(lines));
+
+        assertEquals(1, statements.size());
+        assertEquals("UPDATE p SET p.stock = p.stock - v.quantity FROM products p JOIN (VALUES "
+                + "(:id0, :qty0), (:id1, :qty1), (:id2, :qty2)) AS v(product_id, quantity) "
+                + "ON p.id = v.product_id WHERE p.stock >= v.quantity", statements.get(0));
+    }
+
+    @Test
+    void bindsLinesInProductIdOrderWhateverTheBasketOrder() {
+        Map<Long, Integer> lines = new LinkedHashMap<>();
+        lines.put(42L, 1);
+        lines.put(7L, 2);
+        lines.put(19L, 3);
+
+        repository.reserveStock(lines);
+
+        Map<String, Object> expected = new LinkedHashMap<>();
+        expected.put("id0", 7L);
+        expected.put("qty0", 2);
+        expected.put("id1", 19L);
+        expected.put("qty1", 3);
+        expected.put("id2", 42L);
+        expected.put("qty2", 1);
+        assertEquals(expected, parameters);
+    }
+
+    @Test
+    void emptyBasketRunsNoStatement() {
+        assertEquals(0, repository.reserveStock(Map.of()));
+        verify(entityManager, never()).createNativeQuery(anyString());
+    }
+}
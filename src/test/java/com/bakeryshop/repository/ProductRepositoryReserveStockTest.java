@@ -0,0 +1,139 @@
+package com.bakeryshop.repository;
+
+import com.bakeryshop.entity.Category;
+import com.bakeryshop.entity.Product;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Concurrent checkouts against a real database. Run with {@code -Dit.database=true} and the
+ * datasource pointing at a disposable SQL Server schema.
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "it.database", matches = "true")
+class ProductRepositoryReserveStockTest {
+    private static final int STOCK = 25;
+    private static final int BUYERS = 40;
+    private static final int ATTEMPTS_PER_BUYER = 5;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Category category;
+    private Product first;
+    private Product second;
+
+    @BeforeEach
+    void createProducts() {
+        category = new Category();
+        category.setName("reserve-stock-" + UUID.randomUUID());
+        category = categoryRepository.save(category);
+        first = productRepository.save(product("first"));
+        second = productRepository.save(product("second"));
+    }
+
+    @AfterEach
+    void deleteProducts() {
+        productRepository.deleteAllById(List.of(first.getId(), second.getId()));
+        categoryRepository.deleteById(category.getId());
+    }
+
+    @Test
+    void concurrentSingleLineCheckoutsNeverOversell() throws Exception {
+        int sold = checkoutConcurrently(Map.of(first.getId(), 1));
+
+        assertEquals(STOCK, sold);
+        assertEquals(0, stockOf(first));
+    }
+
+    @Test
+    void concurrentMultiLineCheckoutsReserveAllLinesOrNone() throws Exception {
+        Map<Long, Integer> basket = new LinkedHashMap<>();
+        basket.put(first.getId(), 2);
+        basket.put(second.getId(), 3);
+
+        int sold = checkoutConcurrently(basket);
+
+        // second runs out first: 25 / 3 = 8 complete baskets
+        assertEquals(STOCK / 3, sold);
+        assertEquals(STOCK - 2 * sold, stockOf(first));
+        assertEquals(STOCK - 3 * sold, stockOf(second));
+    }
+
+    // Each checkout rolls back unless every line was reserved, as OrderServiceImpl does
+    private int checkoutConcurrently(Map<Long, Integer> basket) throws Exception {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        ExecutorService pool = Executors.newFixedThreadPool(BUYERS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int buyer = 0; buyer < BUYERS; buyer++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    int bought = 0;
+                    for (int attempt = 0; attempt < ATTEMPTS_PER_BUYER; attempt++) {
+                        Boolean reserved = transactionTemplate.execute(tx -> {
+                            if (productRepository.reserveStock(basket) == basket.size()) {
+                                return true;
+                            }
+                            tx.setRollbackOnly();
+                            return false;
+                        });
+                        if (Boolean.TRUE.equals(reserved)) {
+                            bought++;
+                        }
+                    }
+                    return bought;
+                }));
+            }
+            start.countDown();
+
+            int sold = 0;
+            for (Future<Integer> result : results) {
+                sold += result.get(60, TimeUnit.SECONDS);
+            }
+            return sold;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private int stockOf(Product product) {
+        return productRepository.findById(product.getId()).orElseThrow().getStock();
+    }
+
+    private Product product(String name) {
+        Product product = new Product();
+        product.setName("reserve-stock-" + name);
+        product.setPrice(BigDecimal.valueOf(10_000));
+        product.setStock(STOCK);
+        product.setCategory(category);
+        return product;
+    }
+}
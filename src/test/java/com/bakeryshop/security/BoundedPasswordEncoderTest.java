@@ -0,0 +1,91 @@
+package com.bakeryshop.security;
+
+import com.bakeryshop.exception.PasswordHashingRejectedException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoundedPasswordEncoderTest {
+    private final AtomicInteger hashes = new AtomicInteger();
+    private volatile long hashMillis;
+    private volatile CountDownLatch release = new CountDownLatch(0);
+
+    private ThreadPoolTaskExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(4);
+        executor.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.shutdown();
+    }
+
+    @Test
+    void hashSlowerThanTheWaitLimitStillCompletes() {
+        hashMillis = 300;
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(slowEncoder(), executor, 100);
+
+        assertEquals("hash:secret", encoder.encode("secret"));
+        assertEquals(1, hashes.get());
+        assertEquals(0L, encoder.getMetrics().get("rejected"));
+    }
+
+    @Test
+    void jobStillQueuedAtTheDeadlineIsRejectedAndNeverHashed() throws Exception {
+        release = new CountDownLatch(1);
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(slowEncoder(), executor, 100);
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> encoder.encode("first"));
+        while (executor.getActiveCount() == 0) {
+            Thread.sleep(5);
+        }
+
+        long start = System.nanoTime();
+        assertThrows(PasswordHashingRejectedException.class, () -> encoder.encode("second"));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+
+        release.countDown();
+        assertEquals("hash:first", first.get(5, TimeUnit.SECONDS));
+        executor.shutdown();
+        executor.getThreadPoolExecutor().awaitTermination(5, TimeUnit.SECONDS);
+        assertEquals(1, hashes.get());
+    }
+
+    private PasswordEncoder slowEncoder() {
+        return new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                try {
+                    release.await();
+                    Thread.sleep(hashMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                hashes.incrementAndGet();
+                return "hash:" + rawPassword;
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return encode(rawPassword).equals(encodedPassword);
+            }
+        };
+    }
+}
@@ -0,0 +1,155 @@
+package com.bakeryshop.service.impl;
+
+import com.bakeryshop.dto.ProductDTO;
+import com.bakeryshop.entity.Cart;
+import com.bakeryshop.entity.Product;
+import com.bakeryshop.repository.CartRepository;
+import com.bakeryshop.repository.ProductRepository;
+import com.bakeryshop.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CartCacheTest {
+    private static final Long USER_ID = 7L;
+
+    private CartRepository cartRepository;
+    private ProductRepository productRepository;
+    private CartCache cartCache;
+
+    @BeforeEach
+    void setUp() {
+        cartRepository = mock(CartRepository.class);
+        productRepository = mock(ProductRepository.class);
+        cartCache = new CartCache(cartRepository, mock(UserRepository.class), productRepository,
+                mock(CatalogSnapshotService.class), mock(PlatformTransactionManager.class), 4);
+        ReflectionTestUtils.setField(cartCache, "maxSize", 100);
+        ReflectionTestUtils.setField(cartCache, "idleMs", 60_000L);
+        ReflectionTestUtils.setField(cartCache, "flushBatchSize", 10);
+    }
+
+    @Test
+    void changedCartIsWrittenOnceUntilChangedAgain() {
+        cartCache.update(USER_ID, lines -> lines.put(1L, line(1L, 2)));
+
+        cartCache.flush();
+        cartCache.flush();
+        verify(cartRepository, times(1)).save(any(Cart.class));
+
+        cartCache.update(USER_ID, lines -> lines.get(1L).setQuantity(3));
+        cartCache.flush();
+        verify(cartRepository, times(2)).save(any(Cart.class));
+    }
+
+    @Test
+    void changeMadeWhileFlushingIsWrittenOnTheNextRun() {
+        AtomicBoolean changed = new AtomicBoolean();
+        when(cartRepository.findWithItemsByUserIdIn(any())).thenAnswer(invocation -> {
+            if (changed.compareAndSet(false, true)) {
+                cartCache.update(USER_ID, lines -> lines.put(2L, line(2L, 1)));
+            }
+            return List.of();
+        });
+        cartCache.update(USER_ID, lines -> lines.put(1L, line(1L, 1)));
+
+        cartCache.flush();
+        cartCache.flush();
+        cartCache.flush();
+
+        verify(cartRepository, times(2)).save(any(Cart.class));
+    }
+
+    @Test
+    void unsavedCartIsKeptUntilWritten() {
+        ReflectionTestUtils.setField(cartCache, "idleMs", -60_000L);
+        AtomicBoolean failing = new AtomicBoolean(true);
+        when(cartRepository.save(any(Cart.class))).thenAnswer(invocation -> {
+            if (failing.get()) {
+                throw new IllegalStateException("database unavailable");
+            }
+            return invocation.getArgument(0);
+        });
+        cartCache.update(USER_ID, lines -> lines.put(1L, line(1L, 1)));
+
+        cartCache.flush();
+        assertEquals(1, (int) cartCache.read(USER_ID, lines -> lines.size()));
+        verify(cartRepository, times(1)).findWithItemsByUserId(USER_ID);
+
+        failing.set(false);
+        cartCache.flush();
+        // Clean and idle: evicted, so the next read loads the cart again
+        cartCache.read(USER_ID, lines -> lines.size());
+        verify(cartRepository, times(2)).findWithItemsByUserId(USER_ID);
+    }
+
+    @Test
+    void deletedProductIsDroppedAndTheRestWritten() {
+        AtomicInteger attempts = new AtomicInteger();
+        when(cartRepository.save(any(Cart.class))).thenAnswer(invocation -> {
+            attempts.incrementAndGet();
+            Cart cart = invocation.getArgument(0);
+            if (cart.getItems().size() > 1) {
+                throw new DataIntegrityViolationException("FK_cart_items_products");
+            }
+            return cart;
+        });
+        when(productRepository.findAllById(any())).thenReturn(List.of(product(1L)));
+        cartCache.update(USER_ID, lines -> {
+            lines.put(1L, line(1L, 1));
+            lines.put(2L, line(2L, 1));
+        });
+
+        cartCache.flush();
+
+        assertEquals(Set.of(1L), cartCache.read(USER_ID, lines -> Set.copyOf(lines.keySet())));
+        // Batch, cart on its own, then without the deleted product
+        assertEquals(3, attempts.get());
+        cartCache.flush();
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    void cartThatCannotBeWrittenIsNotRetriedForever() {
+        AtomicInteger attempts = new AtomicInteger();
+        when(cartRepository.save(any(Cart.class))).thenAnswer(invocation -> {
+            attempts.incrementAndGet();
+            throw new DataIntegrityViolationException("CK_cart_items_quantity");
+        });
+        when(productRepository.findAllById(any())).thenReturn(List.of(product(1L)));
+        cartCache.update(USER_ID, lines -> lines.put(1L, line(1L, 1)));
+
+        cartCache.flush();
+        int afterFirstRun = attempts.get();
+        cartCache.flush();
+
+        assertEquals(afterFirstRun, attempts.get());
+    }
+
+    private static CartCache.Line line(Long productId, int quantity) {
+        ProductDTO product = new ProductDTO();
+        product.setId(productId);
+        product.setPrice(BigDecimal.valueOf(25_000));
+        return new CartCache.Line(product, quantity);
+    }
+
+    private static Product product(Long id) {
+        Product product = new Product();
+        product.setId(id);
+        return product;
+    }
+}
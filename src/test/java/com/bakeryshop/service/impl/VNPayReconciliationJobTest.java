@@ -0,0 +1,295 @@
+package com.bakeryshop.service.impl;
+
+import com.bakeryshop.config.VNPayConfig;
+import com.bakeryshop.entity.Order;
+import com.bakeryshop.entity.PaymentEvent;
+import com.bakeryshop.repository.OrderRepository;
+import com.bakeryshop.repository.PaymentEventRepository;
+import com.bakeryshop.service.PaymentEventService;
+import com.bakeryshop.service.PaymentService;
+import com.bakeryshop.util.VNPayUtils;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.StringJoiner;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the reconciliation against a local HTTP server standing in for the VNPay merchant API.
+ * The stub checks request signatures with its own HMAC code and signs its responses the same way.
+ */
+class VNPayReconciliationJobTest {
+    private static final String SECRET = "TESTSECRETKEY0123456789";
+    private static final String TMN_CODE = "TESTTMN1";
+    private static final String[] REQUEST_FIELDS = {
+            "vnp_RequestId", "vnp_Version", "vnp_Command", "vnp_TmnCode", "vnp_TxnRef",
+            "vnp_TransactionDate", "vnp_CreateDate", "vnp_IpAddr", "vnp_OrderInfo"};
+    private static final String[] RESPONSE_FIELDS = {
+            "vnp_ResponseId", "vnp_Command", "vnp_ResponseCode", "vnp_Message", "vnp_TmnCode", "vnp_TxnRef",
+            "vnp_Amount", "vnp_BankCode", "vnp_PayDate", "vnp_TransactionNo", "vnp_TransactionType",
+            "vnp_TransactionStatus", "vnp_OrderInfo", "vnp_PromotionCode", "vnp_PromotionAmount"};
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<Map<String, String>> requests = new CopyOnWriteArrayList<>();
+    private final List<Boolean> requestSignaturesValid = new CopyOnWriteArrayList<>();
+    private volatile long responseDelayMs;
+    private volatile boolean corruptResponseSignature;
+    private volatile String transactionStatus = "00";
+
+    private HttpServer server;
+    private VNPayConfig vnPayConfig;
+    private VNPayUtils vnPayUtils;
+    private OrderRepository orderRepository;
+    private List<PaymentEvent> recorded;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/merchant_webapi/api/transaction", this::handleQueryDr);
+        server.start();
+
+        vnPayConfig = new VNPayConfig();
+        ReflectionTestUtils.setField(vnPayConfig, "vnpHashSecret", SECRET);
+        ReflectionTestUtils.setField(vnPayConfig, "vnpTmnCode", TMN_CODE);
+        ReflectionTestUtils.setField(vnPayConfig, "vnpVersion", "2.1.0");
+        ReflectionTestUtils.setField(vnPayConfig, "vnpApiUrl",
+                "http://127.0.0.1:" + server.getAddress().getPort() + "/merchant_webapi/api/transaction");
+        vnPayUtils = new VNPayUtils(vnPayConfig);
+        orderRepository = mock(OrderRepository.class);
+        recorded = new ArrayList<>();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void signedQueryRoundTripRecordsThePayment() {
+        Order order = pendingOrder(1001L, 250_000);
+        when(orderRepository.findPaymentsToReconcile(any(), any(), any(), any(), any())).thenReturn(List.of(order));
+
+        newJob(recordingService(), 2_000).reconcile();
+
+        assertEquals(1, requests.size());
+        assertEquals(List.of(true), requestSignaturesValid);
+        assertEquals("querydr", requests.get(0).get("vnp_Command"));
+        assertEquals("1001", requests.get(0).get("vnp_TxnRef"));
+        assertEquals(order.getPaymentId(), requests.get(0).get("vnp_TransactionDate"));
+
+        assertEquals(1, recorded.size());
+        PaymentEvent event = recorded.get(0);
+        assertEquals(Long.valueOf(1001L), event.getOrderId());
+        assertEquals("1001", event.getTxnRef());
+        assertEquals("14000001", event.getTransactionNo());
+        assertEquals(25_000_000L, event.getAmount());
+        assertEquals("00", event.getTransactionStatus());
+    }
+
+    @Test
+    void responseWithBadSignatureIsIgnored() {
+        corruptResponseSignature = true;
+        when(orderRepository.findPaymentsToReconcile(any(), any(), any(), any(), any()))
+                .thenReturn(List.of(pendingOrder(1002L, 100_000)));
+
+        newJob(recordingService(), 2_000).reconcile();
+
+        assertEquals(1, requests.size());
+        assertTrue(recorded.isEmpty());
+    }
+
+    @Test
+    void paymentStillOpenAtVnPayIsNotRecorded() {
+        transactionStatus = "01";
+        when(orderRepository.findPaymentsToReconcile(any(), any(), any(), any(), any()))
+                .thenReturn(List.of(pendingOrder(1005L, 100_000)));
+
+        newJob(recordingService(), 2_000).reconcile();
+
+        assertEquals(1, requests.size());
+        assertTrue(recorded.isEmpty());
+    }
+
+    @Test
+    void slowGatewayTimesOutWithoutRecording() {
+        responseDelayMs = 3_000;
+        when(orderRepository.findPaymentsToReconcile(any(), any(), any(), any(), any()))
+                .thenReturn(List.of(pendingOrder(1003L, 100_000)));
+
+        long start = System.nanoTime();
+        newJob(recordingService(), 200).reconcile();
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsedMs < 2_000, "reconciliation waited " + elapsedMs + " ms");
+        assertTrue(recorded.isEmpty());
+    }
+
+    @Test
+    void paymentAlreadyRecordedByIpnIsNotRecordedAgain() {
+        PaymentService paymentService = mock(PaymentService.class);
+        PaymentEventRepository eventRepository = mock(PaymentEventRepository.class);
+        List<PaymentEvent> stored = new ArrayList<>();
+        when(paymentService.verifySignature(any())).thenReturn(true);
+        when(eventRepository.saveAndFlush(any(PaymentEvent.class))).thenAnswer(invocation -> {
+            PaymentEvent event = invocation.getArgument(0);
+            event.setId((long) stored.size() + 1);
+            stored.add(event);
+            return event;
+        });
+        when(eventRepository.findByTxnRefIn(any())).thenAnswer(invocation -> new ArrayList<>(stored));
+        PaymentEventService eventService = new PaymentEventServiceImpl(paymentService, orderRepository,
+                eventRepository, mock(PaymentEventWorker.class));
+
+        Order order = pendingOrder(1004L, 300_000);
+        when(orderRepository.findById(1004L)).thenReturn(Optional.of(order));
+        when(orderRepository.findPaymentsToReconcile(any(), any(), any(), any(), any())).thenReturn(List.of(order));
+
+        // The IPN for the same VNPay transaction arrives first
+        Map<String, String> ipn = new HashMap<>();
+        ipn.put("vnp_TxnRef", "1004");
+        ipn.put("vnp_TransactionNo", "14000001");
+        ipn.put("vnp_Amount", "30000000");
+        ipn.put("vnp_ResponseCode", "00");
+        ipn.put("vnp_TransactionStatus", "00");
+        assertEquals("00", eventService.handleIpn(ipn).get("RspCode"));
+
+        newJob(eventService, 2_000).reconcile();
+
+        assertEquals(1, requests.size());
+        assertEquals(1, stored.size());
+        verify(eventRepository, never()).saveAll(any());
+    }
+
+    private VNPayReconciliationJob newJob(PaymentEventService eventService, long timeoutMs) {
+        VNPayReconciliationJob job = new VNPayReconciliationJob(orderRepository, eventService, vnPayUtils, vnPayConfig, objectMapper,
+                new SyncTaskExecutor(), new SyncTaskExecutor(), 1_000);
+        ReflectionTestUtils.setField(job, "enabled", true);
+        ReflectionTestUtils.setField(job, "minAgeMinutes", 15L);
+        ReflectionTestUtils.setField(job, "batchSize", 10);
+        ReflectionTestUtils.setField(job, "timeoutMs", timeoutMs);
+        return job;
+    }
+
+    private PaymentEventService recordingService() {
+        PaymentEventService service = mock(PaymentEventService.class);
+        when(service.recordAll(any())).thenAnswer(invocation -> {
+            List<PaymentEvent> events = invocation.getArgument(0);
+            recorded.addAll(events);
+            return events.size();
+        });
+        return service;
+    }
+
+    private static Order pendingOrder(Long id, long total) {
+        Order order = new Order();
+        order.setId(id);
+        order.setTotalAmount(BigDecimal.valueOf(total));
+        order.setPaymentMethod(Order.PaymentMethod.VNPAY);
+        order.setPaymentStatus(Order.PaymentStatus.PENDING);
+        order.setPaymentId("20261018101500");
+        return order;
+    }
+
+    private void handleQueryDr(HttpExchange exchange) throws IOException {
+        Map<String, String> request = objectMapper.readValue(exchange.getRequestBody(),
+                new TypeReference<Map<String, String>>() {});
+        requests.add(request);
+        requestSignaturesValid.add(hmac(pipeJoin(request, REQUEST_FIELDS)).equals(request.get("vnp_SecureHash")));
+        if (responseDelayMs > 0) {
+            try {
+                Thread.sleep(responseDelayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        Map<String, String> response = new LinkedHashMap<>();
+        response.put("vnp_ResponseId", "r" + request.get("vnp_RequestId"));
+        response.put("vnp_Command", "querydr");
+        response.put("vnp_ResponseCode", "00");
+        response.put("vnp_Message", "QueryDR Success");
+        response.put("vnp_TmnCode", TMN_CODE);
+        response.put("vnp_TxnRef", request.get("vnp_TxnRef"));
+        response.put("vnp_Amount", amountFor(request.get("vnp_TxnRef")));
+        response.put("vnp_BankCode", "NCB");
+        response.put("vnp_PayDate", "20261018102000");
+        response.put("vnp_TransactionNo", "14000001");
+        response.put("vnp_TransactionType", "01");
+        response.put("vnp_TransactionStatus", transactionStatus);
+        response.put("vnp_OrderInfo", request.get("vnp_OrderInfo"));
+        response.put("vnp_PromotionCode", "");
+        response.put("vnp_PromotionAmount", "");
+        String hash = hmac(pipeJoin(response, RESPONSE_FIELDS));
+        response.put("vnp_SecureHash", corruptResponseSignature ? hash.replace(hash.charAt(0), 'x') : hash);
+
+        byte[] body = objectMapper.writeValueAsBytes(response);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    // Amount in VNPay's units (x100) of the order created by pendingOrder for this txnRef
+    private static String amountFor(String txnRef) {
+        switch (txnRef) {
+            case "1001":
+                return "25000000";
+            case "1004":
+                return "30000000";
+            default:
+                return "10000000";
+        }
+    }
+
+    private static String pipeJoin(Map<String, String> values, String[] fields) {
+        StringJoiner joiner = new StringJoiner("|");
+        for (String field : fields) {
+            String value = values.get(field);
+            joiner.add(value == null ? "" : value);
+        }
+        return joiner.toString();
+    }
+
+    private static String hmac(String data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA512");
+            mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA512"));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : mac.doFinal(data.getBytes(StandardCharsets.UTF_8))) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
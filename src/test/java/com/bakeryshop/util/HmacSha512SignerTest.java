@@ -0,0 +1,78 @@
+package com.bakeryshop.util;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HmacSha512SignerTest {
+    private static final String SECRET = "0PUG9LIUUK29U82GYN88513MLJWM7VDX";
+
+    private final HmacSha512Signer signer = new HmacSha512Signer(SECRET);
+
+    @Test
+    void signsAsciiLikeMac() {
+        String data = "vnp_Amount=10000000&vnp_Command=pay&vnp_OrderInfo=Thanh+toan+don+hang%3A42";
+
+        assertEquals(reference(data), signer.sign(data));
+    }
+
+    @Test
+    void signsNonAsciiAsUtf8() {
+        // querydr pipe string: vnp_Message and vnp_OrderInfo are raw Vietnamese text
+        String data = "r1|querydr|00|Giao dịch thành công|TESTTMN1|42|10000000|NCB|Thanh toán đơn hàng 🍰";
+
+        assertEquals(reference(data), signer.sign(data));
+    }
+
+    @Test
+    void switchesBetweenAsciiAndUtf8OnTheSameThread() {
+        String ascii = "a|b|c";
+        String utf8 = "a|bánh|c";
+
+        assertEquals(reference(ascii), signer.sign(ascii));
+        assertEquals(reference(utf8), signer.sign(utf8));
+        assertEquals(reference(ascii), signer.sign(ascii));
+    }
+
+    @Test
+    void growsItsBufferForLongInputAndStillSignsShortInput() {
+        String longData = "x".repeat(5_000);
+
+        assertEquals(reference(longData), signer.sign(longData));
+        assertEquals(reference("short"), signer.sign("short"));
+        assertEquals(reference(""), signer.sign(""));
+    }
+
+    @Test
+    void verifyAcceptsEitherCaseAndRejectsTampering() {
+        String data = "vnp_TxnRef=42";
+        String hash = reference(data);
+
+        assertTrue(signer.verify(data, hash));
+        assertTrue(signer.verify(data, hash.toUpperCase()));
+        assertFalse(signer.verify("vnp_TxnRef=43", hash));
+        assertFalse(signer.verify(data, hash.substring(2)));
+        assertFalse(signer.verify(data, "zz" + hash.substring(2)));
+        assertFalse(signer.verify(data, null));
+    }
+
+    private static String reference(String data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA512");
+            mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA512"));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : mac.doFinal(data.getBytes(StandardCharsets.UTF_8))) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
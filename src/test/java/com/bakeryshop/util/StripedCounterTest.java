@@ -0,0 +1,121 @@
+package com.bakeryshop.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StripedCounterTest {
+
+    @Test
+    void spreadsInitialValueOverStripes() {
+        assertEquals(11, new StripedCounter(4, 11).sum());
+        assertEquals(0, new StripedCounter(4, -5).sum());
+    }
+
+    @Test
+    void acquiresFromASingleStripe() {
+        StripedCounter counter = new StripedCounter(4, 40);
+
+        assertTrue(counter.tryAcquire(7));
+        assertEquals(33, counter.sum());
+    }
+
+    @Test
+    void mergesStripesWhenNoneHoldsEnough() {
+        // 2 per stripe: an acquire of 5 can only be served by merging
+        StripedCounter counter = new StripedCounter(4, 8);
+
+        assertTrue(counter.tryAcquire(5));
+        assertEquals(3, counter.sum());
+    }
+
+    @Test
+    void failedMergeLeavesTotalUnchanged() {
+        StripedCounter counter = new StripedCounter(4, 8);
+
+        assertFalse(counter.tryAcquire(9));
+        assertEquals(8, counter.sum());
+        assertTrue(counter.tryAcquire(8));
+        assertEquals(0, counter.sum());
+        assertFalse(counter.tryAcquire(1));
+    }
+
+    @Test
+    void releaseMakesAmountAvailableAgain() {
+        StripedCounter counter = new StripedCounter(4, 3);
+        assertTrue(counter.tryAcquire(3));
+
+        counter.release(3);
+
+        assertEquals(3, counter.sum());
+        assertTrue(counter.tryAcquire(3));
+    }
+
+    @Test
+    void resetReplacesTotal() {
+        StripedCounter counter = new StripedCounter(4, 10);
+        counter.tryAcquire(4);
+
+        counter.reset(25);
+
+        assertEquals(25, counter.sum());
+    }
+
+    @Test
+    void adjustAddsAndNeverGoesNegative() {
+        StripedCounter counter = new StripedCounter(4, 10);
+
+        counter.adjust(5);
+        assertEquals(15, counter.sum());
+        counter.adjust(-12);
+        assertEquals(3, counter.sum());
+        counter.adjust(-10);
+        assertEquals(0, counter.sum());
+    }
+
+    @Test
+    void concurrentAcquirersNeverTakeMoreThanTheTotal() throws Exception {
+        int threads = 16;
+        long initial = 1000;
+        StripedCounter counter = new StripedCounter(8, initial);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Long>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                // Mixed sizes so some acquires have to fall back to the merged path
+                long amount = 1 + t % 3;
+                results.add(pool.submit(() -> {
+                    start.await();
+                    long taken = 0;
+                    for (int i = 0; i < 200; i++) {
+                        if (counter.tryAcquire(amount)) {
+                            taken += amount;
+                        }
+                    }
+                    return taken;
+                }));
+            }
+            start.countDown();
+
+            long taken = 0;
+            for (Future<Long> result : results) {
+                taken += result.get(30, TimeUnit.SECONDS);
+            }
+            assertTrue(taken <= initial, "acquired " + taken + " of " + initial);
+            assertEquals(initial, taken + counter.sum());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
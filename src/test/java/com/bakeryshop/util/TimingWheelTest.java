@@ -0,0 +1,117 @@
+package com.bakeryshop.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimingWheelTest {
+
+    @Test
+    void rejectsInvalidConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> new TimingWheel<String>(0, 8, 0));
+        assertThrows(IllegalArgumentException.class, () -> new TimingWheel<String>(10, 1, 0));
+    }
+
+    @Test
+    void expiresOnFirstLevelAtDeadline() {
+        TimingWheel<String> wheel = new TimingWheel<>(10, 8, 0);
+        wheel.add("a", 30);
+
+        assertTrue(wheel.advanceTo(29).isEmpty());
+        assertEquals(List.of("a"), wheel.advanceTo(30));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void roundsDeadlinesUpToTheNextTick() {
+        TimingWheel<String> wheel = new TimingWheel<>(10, 8, 0);
+        wheel.add("a", 21);
+
+        assertTrue(wheel.advanceTo(29).isEmpty());
+        assertEquals(List.of("a"), wheel.advanceTo(30));
+    }
+
+    @Test
+    void pastDeadlineIsDueOnNextAdvance() {
+        TimingWheel<String> wheel = new TimingWheel<>(10, 8, 1000);
+        wheel.add("late", 500);
+
+        assertEquals(1, wheel.size());
+        assertEquals(List.of("late"), wheel.advanceTo(1000));
+    }
+
+    @Test
+    void cascadesFromHigherLevelsWithoutExpiringEarly() {
+        // wheelSize 4: level 0 holds deltas below 4 ticks, level 1 below 16, level 2 below 64, level 3 below 256
+        TimingWheel<String> wheel = new TimingWheel<>(1, 4, 0);
+        wheel.add("level1", 9);
+        wheel.add("level2", 37);
+        wheel.add("level3", 100);
+
+        assertTrue(wheel.advanceTo(8).isEmpty());
+        assertEquals(List.of("level1"), wheel.advanceTo(9));
+        assertTrue(wheel.advanceTo(36).isEmpty());
+        assertEquals(List.of("level2"), wheel.advanceTo(37));
+        assertTrue(wheel.advanceTo(99).isEmpty());
+        assertEquals(List.of("level3"), wheel.advanceTo(100));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void jumpingPastSeveralDeadlinesReturnsThemAll() {
+        TimingWheel<Integer> wheel = new TimingWheel<>(1, 4, 0);
+        wheel.add(1, 3);
+        wheel.add(2, 17);
+        wheel.add(3, 70);
+        wheel.add(4, 200);
+
+        List<Integer> expired = wheel.advanceTo(100);
+        assertEquals(3, expired.size());
+        assertTrue(expired.containsAll(List.of(1, 2, 3)));
+        assertEquals(1, wheel.size());
+    }
+
+    @Test
+    void idleWheelSkipsAheadAndStillPlacesRelativeToNow() {
+        TimingWheel<String> wheel = new TimingWheel<>(1, 4, 0);
+        assertTrue(wheel.advanceTo(1_000_000).isEmpty());
+
+        wheel.add("a", 1_000_005);
+        assertTrue(wheel.advanceTo(1_000_004).isEmpty());
+        assertEquals(List.of("a"), wheel.advanceTo(1_000_005));
+    }
+
+    @Test
+    void everyItemExpiresExactlyAtItsTick() {
+        Random random = new Random(42);
+        TimingWheel<Integer> wheel = new TimingWheel<>(1, 8, 0);
+        Map<Integer, Long> deadlines = new HashMap<>();
+        long now = 0;
+        int next = 0;
+        while (now < 5000) {
+            for (int i = random.nextInt(3); i > 0; i--) {
+                long deadline = now + 1 + random.nextInt(2000);
+                deadlines.put(next, deadline);
+                wheel.add(next++, deadline);
+            }
+            now += 1 + random.nextInt(5);
+            List<Integer> expired = new ArrayList<>(wheel.advanceTo(now));
+            for (Integer item : expired) {
+                long deadline = deadlines.remove(item);
+                assertTrue(deadline <= now, "item " + item + " expired early");
+            }
+            for (Long deadline : deadlines.values()) {
+                assertTrue(deadline > now, "item due at " + deadline + " still waiting at " + now);
+            }
+            assertEquals(deadlines.size(), wheel.size());
+        }
+    }
+}
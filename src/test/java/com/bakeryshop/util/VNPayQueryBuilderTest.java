@@ -0,0 +1,86 @@
+package com.bakeryshop.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class VNPayQueryBuilderTest {
+    private final VNPayQueryBuilder builder = new VNPayQueryBuilder();
+
+    @Test
+    void buildsSortedFormEncodedQueryWithoutHashFields() {
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("vnp_TxnRef", "42");
+        params.put("vnp_Amount", "10000000");
+        params.put("vnp_OrderInfo", "Thanh toan don hang: 42 & more");
+        params.put("vnp_BankCode", "");
+        params.put("vnp_SecureHashType", "HmacSHA512");
+        params.put("vnp_SecureHash", "abc");
+
+        assertEquals("vnp_Amount=10000000&vnp_OrderInfo=Thanh+toan+don+hang%3A+42+%26+more&vnp_TxnRef=42",
+                builder.build(params).toString());
+    }
+
+    @Test
+    void encodesLikeUrlEncoderWithUsAscii() {
+        Map<String, String> params = new HashMap<>();
+        params.put("vnp_OrderInfo", "Thanh toán đơn hàng 🍰 ~!*'()/?=+");
+        params.put("vnp_ReturnUrl", "http://localhost:8081/bakery-shop/vnpay/return");
+        params.put("vnp_Lone", "a\ud83cb\udf70c");
+        params.put("vnp_Null", null);
+
+        assertEquals(reference(params), builder.build(params).toString());
+    }
+
+    @Test
+    void matchesReferenceOnRandomParameters() {
+        Random random = new Random(17);
+        String alphabet = "abcXYZ019 .-*_~+&=%/:?#@!\"'()é đơnàÂ🍰🍰🍰𐀀\udfff";
+        for (int round = 0; round < 500; round++) {
+            Map<String, String> params = new HashMap<>();
+            int count = random.nextInt(40);
+            for (int i = 0; i < count; i++) {
+                params.put("vnp_" + random.nextInt(60), randomText(random, alphabet, random.nextInt(30)));
+            }
+            assertEquals(reference(params), builder.build(params).toString(), "round " + round);
+        }
+    }
+
+    private static String randomText(Random random, String alphabet, int length) {
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return text.toString();
+    }
+
+    // The query VNPayUtils built before VNPayQueryBuilder existed
+    private static String reference(Map<String, String> params) {
+        List<String> names = new ArrayList<>(params.keySet());
+        Collections.sort(names);
+        StringBuilder query = new StringBuilder();
+        for (String name : names) {
+            String value = params.get(name);
+            if (value == null || value.isEmpty() || name.equals("vnp_SecureHash") || name.equals("vnp_SecureHashType")) {
+                continue;
+            }
+            if (query.length() > 0) {
+                query.append('&');
+            }
+            query.append(URLEncoder.encode(name, StandardCharsets.US_ASCII))
+                    .append('=')
+                    .append(URLEncoder.encode(value, StandardCharsets.US_ASCII));
+        }
+        return query.toString();
+    }
+}